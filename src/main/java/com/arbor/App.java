@@ -3,12 +3,19 @@ package com.arbor;
 import com.arbor.controller.TabController;
 import com.arbor.model.ArborConfig;
 import com.arbor.model.CommandEntry;
+import com.arbor.model.FileChange;
 import com.arbor.model.Grove;
 import com.arbor.service.*;
+import com.arbor.util.FxPulseMonitor;
+import com.arbor.util.MetricsRegistry;
+import com.arbor.util.StartupGraph;
 import com.arbor.view.*;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Worker;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.print.PrinterJob;
 import javafx.scene.Scene;
 import javafx.scene.control.SplitPane;
 import javafx.scene.control.Tab;
@@ -19,6 +26,7 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.shape.Rectangle;
+import javafx.scene.web.WebView;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
 import org.slf4j.Logger;
@@ -29,6 +37,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Arbor - A place where your ideas take root.
@@ -40,6 +50,12 @@ public class App extends Application {
 
     private static final Logger log = LoggerFactory.getLogger(App.class);
 
+    /** Opens this grove instead of the last one, leaving the saved config and session alone. */
+    static final String GROVE_PROPERTY = "arbor.grove";
+    // Set by StartupHarness for benchmark and training runs; never by a normal launch
+    private static StartupListener startupListener = new StartupListener() {
+    };
+
     private ConfigService configService;
     private GroveService groveService;
     private FileOperationService fileOps;
@@ -50,7 +66,23 @@ public class App extends Application {
     private TemplateService templateService;
     private DailyNoteService dailyNoteService;
     private ExportService exportService;
+    private SiteExportService siteExportService;
+    private PdfExportService pdfExportService;
+    // Held until it has printed; nothing else references the view
+    private WebView pdfPrintView;
     private TagService tagService;
+    private ContentIndexService contentIndexService;
+    private PathIndexService pathIndexService;
+    private GroveWatchService groveWatchService;
+    private FileRegistry fileRegistry;
+    // Per-file index updates from saves, the watcher and Replace in Grove run one at a time, in
+    // order, so a slower rescan can never commit older content over a newer one
+    private final ExecutorService indexExecutor =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("arbor-index").factory());
+    private final FxPulseMonitor pulseMonitor = new FxPulseMonitor();
+    private final FlightRecorderService flightRecorder = new FlightRecorderService();
+    private PerformanceDialog performanceDialog;
+    private GroveReplaceService groveReplaceService;
     private TabController tabController;
     private SearchBar searchBar;
     private OutlinePanel outlinePanel;
@@ -61,23 +93,27 @@ public class App extends Application {
     private SplitPane mainSplitPane;
     private CommandRegistry commandRegistry;
     private CommandPalette commandPalette;
+    private QuickOpenPalette quickOpenPalette;
     private boolean outlineVisible = false;
+    private final StartupGraph startup = new StartupGraph();
 
     @Override
     public void start(Stage primaryStage) {
-        // Initialize services
+        // Initialize services; templates, exporters and the outline are created on first use
         configService = new ConfigService();
+        startup.mark("config.load");
         groveService = new GroveService();
         fileOps = new FileOperationService();
         treeService = new FileTreeService();
-        searchService = new SearchService();
-        outlineService = new OutlineService();
-        backlinkService = new BacklinkService();
-        templateService = new TemplateService();
-        templateService.ensureTemplatesDir();
-        templateService.initDefaults();
-        exportService = new ExportService();
-        tagService = new TagService();
+        // One set of file ids for every index, so they agree on paths and follow renames
+        fileRegistry = new FileRegistry();
+        contentIndexService = new ContentIndexService(fileRegistry);
+        searchService = new SearchService(contentIndexService);
+        pathIndexService = new PathIndexService();
+        groveWatchService = new GroveWatchService();
+        backlinkService = new BacklinkService(fileRegistry);
+        tagService = new TagService(fileRegistry);
+        groveReplaceService = new GroveReplaceService(fileOps, contentIndexService);
 
         ArborConfig config = configService.getConfig();
 
@@ -88,29 +124,42 @@ public class App extends Application {
             return;
         }
 
+        String groveOverride = System.getProperty(GROVE_PROPERTY);
+
         // Load or create grove
         try {
+            startupListener.beforeGroveLoad(grovePath);
             grove = groveService.loadOrCreateGrove(grovePath);
         } catch (IOException e) {
             log.error("Failed to load grove", e);
             grove = new Grove(grovePath, grovePath.getFileName().toString());
         }
+        startup.mark("grove.load");
 
         // Update config
-        config.setLastGrovePath(grovePath);
-        config.addRecentGrove(grovePath);
-        configService.save();
+        if (groveOverride == null) {
+            config.setLastGrovePath(grovePath);
+            config.addRecentGrove(grovePath);
+            configService.saveInBackground();
+        }
 
         // Initialize backlink service
         backlinkService.setGrovePath(grovePath);
-        Thread.startVirtualThread(backlinkService::fullScan);
+        startup.async("backlinks.scan", backlinkService::fullScan);
 
         // Initialize daily note service
         dailyNoteService = new DailyNoteService(fileOps);
 
-        // Initialize tag service
+        // Initialize tag service; the scan starts once the file tree exists to show its results
         tagService.setGrovePath(grovePath);
-        Thread.startVirtualThread(tagService::fullScan);
+
+        // Initialize content search index
+        contentIndexService.setGrovePath(grovePath);
+        startup.async("content.scan", contentIndexService::fullScan);
+
+        // Initialize quick open path index
+        pathIndexService.setGrovePath(grovePath);
+        startup.async("paths.scan", pathIndexService::fullScan);
 
         // Build UI
         BorderPane root = new BorderPane();
@@ -119,21 +168,20 @@ public class App extends Application {
         DraggableTabPane primaryTabPane = new DraggableTabPane();
         splitEditorPane = new SplitEditorPane(primaryTabPane);
         tabController = new TabController(splitEditorPane, fileOps);
-
-        // Restore previous session tabs
-        if (config.getOpenTabs() != null && !config.getOpenTabs().isEmpty()) {
-            java.util.List<Path> tabPaths = config.getOpenTabs().stream()
-                    .map(Path::of)
-                    .toList();
-            tabController.restoreSession(tabPaths, config.getSelectedTabIndex());
-        }
+        tabController.setLargeFileThreshold(largeFileThreshold(config));
+        tabController.setHibernateAfterMinutes(config.getHibernateTabsAfterMinutes());
 
         // File tree panel
         FileTreePanel fileTreePanel = new FileTreePanel(treeService, fileOps, tabController::openFile, tagService);
         fileTreePanel.loadGrove(grovePath);
+        startup.mark("tree.load");
+        startup.async("tags.scan", () -> {
+            tagService.fullScan();
+            fileTreePanel.refreshCells();
+        });
 
-        // Outline panel (starts hidden)
-        outlinePanel = new OutlinePanel(outlineService);
+        // Keep the tree and indexes in sync with changes made outside the app
+        groveWatchService.start(grovePath, changes -> indexExecutor.execute(() -> onFileChanges(changes, fileTreePanel)));
 
         // Search bar (inline, hidden by default)
         searchBar = new SearchBar(searchService, tagService);
@@ -163,17 +211,25 @@ public class App extends Application {
         // Command palette
         commandRegistry = new CommandRegistry();
         commandPalette = new CommandPalette(commandRegistry);
-        commandPalette.setOnHide(() -> {
+        Runnable focusEditor = () -> {
             Tab active = splitEditorPane.getActivePane().getSelectionModel().getSelectedItem();
             if (active instanceof EditorTab editorTab) {
                 editorTab.getTextArea().requestFocus();
             }
-        });
+        };
+        commandPalette.setOnHide(focusEditor);
+
+        // Quick open
+        quickOpenPalette = new QuickOpenPalette(pathIndexService);
+        quickOpenPalette.setOnHide(focusEditor);
+        quickOpenPalette.setOnFileOpen(path -> tabController.openFile(path));
 
-        // Wrap editor in StackPane for command palette overlay
-        StackPane editorStack = new StackPane(splitEditorPane, commandPalette);
+        // Wrap editor in StackPane for command palette and quick open overlays
+        StackPane editorStack = new StackPane(splitEditorPane, commandPalette, quickOpenPalette);
         StackPane.setAlignment(commandPalette, Pos.TOP_CENTER);
         StackPane.setMargin(commandPalette, new Insets(10, 0, 0, 0));
+        StackPane.setAlignment(quickOpenPalette, Pos.TOP_CENTER);
+        StackPane.setMargin(quickOpenPalette, new Insets(10, 0, 0, 0));
 
         // Split pane
         mainSplitPane = new SplitPane(fileTreePanel, editorStack);
@@ -244,10 +300,18 @@ public class App extends Application {
                 new KeyCodeCombination(KeyCode.P, KeyCombination.CONTROL_DOWN, KeyCombination.SHIFT_DOWN),
                 commandPalette::toggle
         );
+        scene.getAccelerators().put(
+                new KeyCodeCombination(KeyCode.P, KeyCombination.CONTROL_DOWN),
+                quickOpenPalette::toggle
+        );
         scene.getAccelerators().put(
                 new KeyCodeCombination(KeyCode.D, KeyCombination.CONTROL_DOWN),
                 () -> openDailyNote(grovePath, fileTreePanel, config)
         );
+        scene.getAccelerators().put(
+                new KeyCodeCombination(KeyCode.H, KeyCombination.CONTROL_DOWN, KeyCombination.SHIFT_DOWN),
+                () -> openGroveReplace(primaryStage)
+        );
 
         // Register commands
         registerCommands(grovePath, fileTreePanel, primaryStage, toolbarHolder[0], config);
@@ -255,6 +319,10 @@ public class App extends Application {
         // Window close handler
         primaryStage.setOnCloseRequest(event -> {
             tabController.promptSaveAllDirty();
+            groveWatchService.stop();
+            indexExecutor.shutdown();
+            pulseMonitor.stop();
+            flightRecorder.close();
 
             // Save open tabs for session restore
             java.util.List<String> openTabPaths = new java.util.ArrayList<>();
@@ -291,13 +359,39 @@ public class App extends Application {
                 getClass().getResourceAsStream("/images/tree.png")));
         primaryStage.setTitle("Arbor - " + grove.getName());
         primaryStage.setScene(scene);
+        startup.mark("ui.build");
         primaryStage.centerOnScreen();
         primaryStage.show();
+        startup.mark("window.show");
+        pulseMonitor.start();
+
+        // Reopen the previous session's tabs after the first frame so they don't delay the window;
+        // the tab listeners are wired by now, so the restored selection gets its callbacks
+        Platform.runLater(() -> {
+            long firstWindowMillis = startup.millisSinceLaunch();
+            if (groveOverride == null && config.getOpenTabs() != null && !config.getOpenTabs().isEmpty()) {
+                java.util.List<Path> tabPaths = config.getOpenTabs().stream()
+                        .map(Path::of)
+                        .toList();
+                tabController.restoreSession(tabPaths, config.getSelectedTabIndex());
+            }
+            startup.mark("session.restore");
+            startup.finish().thenRun(() -> Platform.runLater(() -> onInteractive(firstWindowMillis, grovePath)));
+        });
+    }
+
+    /** Called once the window is up, the session restored and the grove indexed. */
+    private void onInteractive(long firstWindowMillis, Path grovePath) {
+        startupListener.onInteractive(firstWindowMillis, startup.millisSinceLaunch(), grovePath,
+                tabController::openFile, () -> splitEditorPane.getActivePane().getSelectionModel().getSelectedItem());
     }
 
     private void wireTabListeners(DraggableTabPane tabPane, Path grovePath, FileTreePanel fileTreePanel) {
         tabPane.getSelectionModel().selectedItemProperty().addListener((obs, oldTab, newTab) -> {
             if (newTab instanceof EditorTab editorTab) {
+                // Quick open ranks recently viewed files first
+                pathIndexService.markOpened(editorTab.getFilePath());
+
                 // Outline panel
                 if (outlineVisible) {
                     outlinePanel.bindToTab(editorTab);
@@ -313,14 +407,21 @@ public class App extends Application {
 
                 // Save callback for backlink and tag re-indexing
                 editorTab.setOnSaveCallback(() -> {
-                    backlinkService.rescanFile(editorTab.getFilePath());
-                    tagService.rescanFile(editorTab.getFilePath());
-                    fileTreePanel.refreshCells();
-                    // Update backlinks panel for any visible tab
-                    Tab activeTab = splitEditorPane.getActivePane().getSelectionModel().getSelectedItem();
-                    if (activeTab instanceof EditorTab activeEditor) {
-                        updateBacklinksForTab(activeEditor);
-                    }
+                    Path saved = editorTab.getFilePath();
+                    indexExecutor.execute(() -> {
+                        boolean tagsChanged = reindexFile(saved);
+                        Platform.runLater(() -> {
+                            // Tree cells only show tags, so repaint them only when those changed
+                            if (tagsChanged) {
+                                fileTreePanel.refreshCells();
+                            }
+                            // Update backlinks panel for any visible tab
+                            Tab activeTab = splitEditorPane.getActivePane().getSelectionModel().getSelectedItem();
+                            if (activeTab instanceof EditorTab activeEditor) {
+                                updateBacklinksForTab(activeEditor);
+                            }
+                        });
+                    });
                 });
 
                 // Split right action
@@ -335,12 +436,77 @@ public class App extends Application {
 
                 // Backlinks panel
                 updateBacklinksForTab(editorTab);
-            } else {
+            } else if (outlinePanel != null) {
                 outlinePanel.clear();
             }
         });
     }
 
+    /**
+     * Applies a batch of file-system changes from the watcher: the tree gets the minimal diff
+     * and each index updates only the files involved. Runs on the index executor.
+     */
+    private void onFileChanges(List<FileChange> changes, FileTreePanel fileTreePanel) {
+        Platform.runLater(() -> fileTreePanel.applyChanges(changes));
+        boolean tagsChanged = false;
+        for (FileChange change : changes) {
+            switch (change.kind()) {
+                case CREATED, MODIFIED -> {
+                    // Files inside a new directory are reported individually
+                    if (!change.directory()) {
+                        pathIndexService.add(change.path());
+                        tagsChanged |= reindexFile(change.path());
+                    }
+                }
+                case DELETED -> {
+                    for (Path removed : pathIndexService.remove(change.path())) {
+                        tagsChanged |= reindexFile(removed);
+                    }
+                }
+                case RENAMED -> {
+                    // The watcher only guesses file renames from a delete and a create in one
+                    // directory, and the file may have changed on the way, so a renamed file is
+                    // always rescanned. A renamed directory's files also arrive as creates after
+                    // this change, which rescan each of them once; here their ids just move so
+                    // the entries follow, or the old paths are dropped if they could not
+                    boolean moved = fileRegistry.rename(change.path(), change.target());
+                    List<Path> removed = pathIndexService.remove(change.path());
+                    if (removed.isEmpty() && !change.directory()) {
+                        removed = List.of(change.path());
+                    }
+                    for (Path old : removed) {
+                        Path target = change.target().resolve(change.path().relativize(old));
+                        pathIndexService.add(target);
+                        if (!moved) {
+                            tagsChanged |= reindexFile(old);
+                        }
+                        if (!change.directory()) {
+                            tagsChanged |= reindexFile(target);
+                        }
+                    }
+                }
+                case OVERFLOW -> {
+                    // Events were dropped; only a rescan can tell what changed
+                    backlinkService.fullScan();
+                    tagService.fullScan();
+                    contentIndexService.fullScan();
+                    pathIndexService.fullScan();
+                    tagsChanged = true;
+                }
+            }
+        }
+        if (tagsChanged) {
+            fileTreePanel.refreshCells();
+        }
+    }
+
+    /** Re-indexes one file (or drops it if gone); returns whether its tags changed. */
+    private boolean reindexFile(Path file) {
+        backlinkService.rescanFile(file);
+        contentIndexService.rescanFile(file);
+        return tagService.rescanFile(file);
+    }
+
     private void updateBacklinksForTab(EditorTab editorTab) {
         BacklinksPanel backlinksPanelForTab = new BacklinksPanel(backlinkService);
         backlinksPanelForTab.setOnFileOpen(tabController::openFile);
@@ -363,6 +529,8 @@ public class App extends Application {
                         this::openTemplatesFolder),
                 new CommandEntry("Daily Note", "File", "Ctrl+D",
                         () -> openDailyNote(grovePath, fileTreePanel, config)),
+                new CommandEntry("Quick Open", "File", "Ctrl+P",
+                        quickOpenPalette::toggle),
                 new CommandEntry("Save", "File", "Ctrl+S",
                         tabController::saveCurrentTab),
                 new CommandEntry("Close Tab", "File", "Ctrl+W",
@@ -410,8 +578,26 @@ public class App extends Application {
                         () -> exportHtml(stage, config)),
                 new CommandEntry("Export as PDF", "Export", null,
                         () -> exportPdf(stage, config)),
+                new CommandEntry("Export Grove as Site", "Export", null,
+                        () -> exportSite(grovePath, stage, config)),
+                new CommandEntry("Export Grove as PDFs", "Export", null,
+                        () -> exportGrovePdfs(grovePath, stage)),
+
+                // Diagnostics
+                new CommandEntry("Show Performance", "Diagnostics", null,
+                        () -> showPerformance(stage)),
+                new CommandEntry("Dump Metrics as JSON", "Diagnostics", null,
+                        () -> dumpMetrics(stage)),
+                new CommandEntry("Open Stall Log", "Diagnostics", null,
+                        this::openStallLog),
+                new CommandEntry("Start Flight Recording", "Diagnostics", null,
+                        this::startFlightRecording),
+                new CommandEntry("Stop Flight Recording", "Diagnostics", null,
+                        () -> stopFlightRecording(stage)),
 
                 // Grove
+                new CommandEntry("Replace in Grove", "Grove", "Ctrl+Shift+H",
+                        () -> openGroveReplace(stage)),
                 new CommandEntry("Switch Grove", "Grove", null,
                         () -> switchGrove(stage, toolbar, fileTreePanel, config)),
                 new CommandEntry("Open Settings", "Grove", null,
@@ -425,7 +611,7 @@ public class App extends Application {
             outlinePanel.clear();
             outlineVisible = false;
         } else {
-            mainSplitPane.getItems().add(outlinePanel);
+            mainSplitPane.getItems().add(outlinePanel());
             // Set divider to ~75%
             if (mainSplitPane.getDividers().size() >= 2) {
                 mainSplitPane.setDividerPosition(1, 0.75);
@@ -440,7 +626,19 @@ public class App extends Application {
         }
     }
 
+    private OutlinePanel outlinePanel() {
+        if (outlinePanel == null) {
+            outlineService = new OutlineService();
+            outlinePanel = new OutlinePanel(outlineService);
+        }
+        return outlinePanel;
+    }
+
     private Path resolveGrovePath(Stage stage, ArborConfig config) {
+        String override = System.getProperty(GROVE_PROPERTY);
+        if (override != null) {
+            return Path.of(override).toAbsolutePath();
+        }
         if (config.getLastGrovePath() != null && Files.isDirectory(config.getLastGrovePath())) {
             return config.getLastGrovePath();
         }
@@ -457,7 +655,8 @@ public class App extends Application {
                 .ifPresent(name -> {
                     try {
                         Path newFile = fileOps.createFile(grovePath, name);
-                        panel.refresh();
+                        pathIndexService.add(newFile);
+                        panel.applyChanges(List.of(FileChange.created(newFile, false)));
                         tabController.openFile(newFile);
                     } catch (IOException e) {
                         com.arbor.util.DialogHelper.showError("Error", "Could not create file: " + e.getMessage());
@@ -469,8 +668,8 @@ public class App extends Application {
         com.arbor.util.DialogHelper.showTextInput("New Folder", "Folder name:", "New Folder")
                 .ifPresent(name -> {
                     try {
-                        fileOps.createDirectory(grovePath, name);
-                        panel.refresh();
+                        Path newDir = fileOps.createDirectory(grovePath, name);
+                        panel.applyChanges(List.of(FileChange.created(newDir, true)));
                     } catch (IOException e) {
                         com.arbor.util.DialogHelper.showError("Error", "Could not create folder: " + e.getMessage());
                     }
@@ -482,6 +681,40 @@ public class App extends Application {
         SettingsDialog dialog = new SettingsDialog(stage, configService,
                 () -> switchGrove(stage, toolbar, fileTreePanel, config),
                 () -> applyTheme(config.getTheme()));
+        dialog.setOnHidden(e -> {
+            tabController.setLargeFileThreshold(largeFileThreshold(config));
+            tabController.setHibernateAfterMinutes(config.getHibernateTabsAfterMinutes());
+        });
+        dialog.show();
+    }
+
+    private void openGroveReplace(Stage stage) {
+        String selectedText = null;
+        Tab active = splitEditorPane.getActivePane().getSelectionModel().getSelectedItem();
+        if (active instanceof EditorTab editorTab && editorTab.isMaterialized()) {
+            selectedText = editorTab.getTextArea().getSelectedText();
+        }
+
+        boolean dark = mainScene.getRoot().getStyleClass().contains("dark");
+        GroveReplaceDialog dialog = new GroveReplaceDialog(stage, groveReplaceService, grove.getRootPath(),
+                tabController.getDirtyPaths(), dark, result -> {
+                    // Open tabs pick up the new text; the indexes update per changed file
+                    tabController.reloadTabs(result.changed());
+                    indexExecutor.execute(() -> {
+                        for (Path changed : result.changed()) {
+                            backlinkService.rescanFile(changed);
+                            tagService.rescanFile(changed);
+                            contentIndexService.rescanFile(changed);
+                        }
+                    });
+                    if (!result.skipped().isEmpty() || !result.failed().isEmpty()) {
+                        com.arbor.util.DialogHelper.showInfo("Replace in Grove",
+                                "Replaced in " + result.changed().size() + " files. "
+                                        + result.skipped().size() + " skipped because they changed since the preview, "
+                                        + result.failed().size() + " failed.");
+                    }
+                });
+        dialog.setInitialQuery(selectedText);
         dialog.show();
     }
 
@@ -542,11 +775,15 @@ public class App extends Application {
         toolbar.setGroveName(grove.getName());
         stage.setTitle("Arbor - " + grove.getName());
         fileTreePanel.loadGrove(newPath);
+        groveWatchService.start(newPath, changes -> indexExecutor.execute(() -> onFileChanges(changes, fileTreePanel)));
 
         // Clear editor tabs and recreate controller
         splitEditorPane.collapseSplit();
         splitEditorPane.getPrimaryPane().getTabs().clear();
+        tabController.dispose();
         tabController = new TabController(splitEditorPane, fileOps);
+        tabController.setLargeFileThreshold(largeFileThreshold(config));
+        tabController.setHibernateAfterMinutes(config.getHibernateTabsAfterMinutes());
 
         // Re-init backlink service
         backlinkService.setGrovePath(newPath);
@@ -554,7 +791,19 @@ public class App extends Application {
 
         // Re-init tag service
         tagService.setGrovePath(newPath);
-        Thread.startVirtualThread(tagService::fullScan);
+        Thread.startVirtualThread(() -> {
+            tagService.fullScan();
+            fileTreePanel.refreshCells();
+        });
+
+        // Re-init content search index
+        contentIndexService.setGrovePath(newPath);
+        Thread.startVirtualThread(contentIndexService::fullScan);
+
+        // Re-init quick open path index
+        pathIndexService.setGrovePath(newPath);
+        Thread.startVirtualThread(pathIndexService::fullScan);
+        quickOpenPalette.hide();
 
         // Rebind outline
         if (outlineVisible) {
@@ -567,8 +816,7 @@ public class App extends Application {
         searchBar.hide();
 
         // Rewire file tree
-        fileTreePanel.getTreeView().setCellFactory(tv ->
-                new PathTreeCell(fileOps, treeService, tabController::openFile, tagService));
+        fileTreePanel.setOnFileOpen(tabController::openFile);
 
         // Rewire tab listeners
         wireTabListeners(splitEditorPane.getPrimaryPane(), newPath, fileTreePanel);
@@ -577,7 +825,39 @@ public class App extends Application {
         registerCommands(newPath, fileTreePanel, stage, toolbar, config);
     }
 
+    /** Creates the template service on first use, writing the default templates if needed. */
+    private TemplateService templateService() {
+        if (templateService == null) {
+            templateService = new TemplateService();
+            templateService.ensureTemplatesDir();
+            templateService.initDefaults();
+        }
+        return templateService;
+    }
+
+    private ExportService exportService() {
+        if (exportService == null) {
+            exportService = new ExportService();
+        }
+        return exportService;
+    }
+
+    private SiteExportService siteExportService() {
+        if (siteExportService == null) {
+            siteExportService = new SiteExportService(exportService());
+        }
+        return siteExportService;
+    }
+
+    private PdfExportService pdfExportService() {
+        if (pdfExportService == null) {
+            pdfExportService = new PdfExportService();
+        }
+        return pdfExportService;
+    }
+
     private void createFromTemplate(Path grovePath, FileTreePanel fileTreePanel) {
+        TemplateService templateService = templateService();
         var templates = templateService.listTemplates();
         if (templates.isEmpty()) {
             com.arbor.util.DialogHelper.showInfo("Templates", "No templates found in " + templateService.getTemplatesDir());
@@ -597,7 +877,8 @@ public class App extends Application {
                                 .ifPresent(fileName -> {
                                     try {
                                         Path newFile = fileOps.createFileWithContent(grovePath, fileName, content);
-                                        fileTreePanel.refresh();
+                                        pathIndexService.add(newFile);
+                                        fileTreePanel.applyChanges(List.of(FileChange.created(newFile, false)));
                                         tabController.openFile(newFile);
                                     } catch (IOException e) {
                                         com.arbor.util.DialogHelper.showError("Error", "Could not create file: " + e.getMessage());
@@ -611,7 +892,7 @@ public class App extends Application {
 
     private void openTemplatesFolder() {
         try {
-            java.awt.Desktop.getDesktop().open(templateService.getTemplatesDir().toFile());
+            java.awt.Desktop.getDesktop().open(templateService().getTemplatesDir().toFile());
         } catch (IOException e) {
             com.arbor.util.DialogHelper.showError("Error", "Could not open templates folder: " + e.getMessage());
         }
@@ -620,7 +901,10 @@ public class App extends Application {
     private void openDailyNote(Path grovePath, FileTreePanel fileTreePanel, ArborConfig config) {
         try {
             Path notePath = dailyNoteService.openOrCreateDailyNote(grovePath, config.getDailyNotesFolder());
-            fileTreePanel.refresh();
+            pathIndexService.add(notePath);
+            // The journal folder may be new as well
+            fileTreePanel.applyChanges(List.of(FileChange.created(notePath.getParent(), true),
+                    FileChange.created(notePath, false)));
             tabController.openFile(notePath);
         } catch (IOException e) {
             com.arbor.util.DialogHelper.showError("Error", "Could not open daily note: " + e.getMessage());
@@ -635,7 +919,7 @@ public class App extends Application {
         }
 
         boolean darkMode = "dark".equals(config.getTheme());
-        String html = exportService.toStyledHtml(editorTab.getTextArea().getText(), darkMode);
+        String html = exportService().toStyledHtml(editorTab.getTextArea().getText(), darkMode);
 
         javafx.stage.FileChooser fileChooser = new javafx.stage.FileChooser();
         fileChooser.setTitle("Export as HTML");
@@ -645,7 +929,7 @@ public class App extends Application {
         File outputFile = fileChooser.showSaveDialog(stage);
         if (outputFile != null) {
             try {
-                exportService.exportHtml(html, outputFile.toPath());
+                exportService().exportHtml(html, outputFile.toPath());
                 com.arbor.util.DialogHelper.showInfo("Export", "Exported HTML to " + outputFile.getName());
             } catch (IOException e) {
                 com.arbor.util.DialogHelper.showError("Error", "Export failed: " + e.getMessage());
@@ -660,9 +944,166 @@ public class App extends Application {
             return;
         }
 
+        // WebKit lays out the themed preview HTML, so images, non-Latin text and the theme
+        // survive; the print dialog's PDF printer writes the file
         boolean darkMode = "dark".equals(config.getTheme());
-        String html = exportService.toStyledHtml(editorTab.getTextArea().getText(), darkMode);
-        exportService.exportPdf(html, stage);
+        String html = exportService().toStyledHtml(editorTab.getTextArea().getText(), darkMode);
+        WebView webView = new WebView();
+        pdfPrintView = webView;
+        webView.getEngine().getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
+            if (newState == Worker.State.SUCCEEDED) {
+                PrinterJob job = PrinterJob.createPrinterJob();
+                if (job != null && job.showPrintDialog(stage)) {
+                    webView.getEngine().print(job);
+                    job.endJob();
+                }
+                pdfPrintView = null;
+            } else if (newState == Worker.State.FAILED || newState == Worker.State.CANCELLED) {
+                pdfPrintView = null;
+            }
+        });
+        webView.getEngine().loadContent(html, "text/html");
+    }
+
+    private void exportGrovePdfs(Path grovePath, Stage stage) {
+        javafx.stage.DirectoryChooser chooser = new javafx.stage.DirectoryChooser();
+        chooser.setTitle("Export Grove as PDFs");
+        File outputDir = chooser.showDialog(stage);
+        if (outputDir == null) return;
+
+        PdfExportService pdfExportService = pdfExportService();
+        Thread.startVirtualThread(() -> {
+            try {
+                PdfExportService.BatchResult result = pdfExportService.exportFolder(grovePath, outputDir.toPath());
+                Platform.runLater(() -> com.arbor.util.DialogHelper.showInfo("Export",
+                        "Exported " + result.exported() + " PDFs to " + outputDir.getName()
+                                + (result.failed() > 0 ? " (" + result.failed() + " failed)" : "") + "."));
+            } catch (IOException e) {
+                Platform.runLater(() -> com.arbor.util.DialogHelper.showError("Error",
+                        "Export failed: " + e.getMessage()));
+            }
+        });
+    }
+
+    private void exportSite(Path grovePath, Stage stage, ArborConfig config) {
+        javafx.stage.DirectoryChooser chooser = new javafx.stage.DirectoryChooser();
+        chooser.setTitle("Export Grove as Site");
+        File outputDir = chooser.showDialog(stage);
+        if (outputDir == null) return;
+
+        boolean darkMode = "dark".equals(config.getTheme());
+        SiteExportService siteExportService = siteExportService();
+        Thread.startVirtualThread(() -> {
+            try {
+                SiteExportService.SiteExportResult result =
+                        siteExportService.exportSite(grovePath, outputDir.toPath(), darkMode);
+                Platform.runLater(() -> com.arbor.util.DialogHelper.showInfo("Export",
+                        "Exported site to " + outputDir.getName() + ": " + result.rendered() + " pages written, "
+                                + result.unchanged() + " unchanged, " + result.failed() + " failed."));
+            } catch (IOException e) {
+                Platform.runLater(() -> com.arbor.util.DialogHelper.showError("Error",
+                        "Site export failed: " + e.getMessage()));
+            }
+        });
+    }
+
+    private void showPerformance(Stage stage) {
+        if (performanceDialog == null || !performanceDialog.isShowing()) {
+            boolean dark = mainScene.getRoot().getStyleClass().contains("dark");
+            performanceDialog = new PerformanceDialog(stage, MetricsRegistry.global(), dark);
+            performanceDialog.show();
+        }
+        performanceDialog.toFront();
+    }
+
+    /** Writes every metric plus enough context to compare runs, for attaching to regression reports. */
+    private void dumpMetrics(Stage stage) {
+        javafx.stage.FileChooser fileChooser = new javafx.stage.FileChooser();
+        fileChooser.setTitle("Dump Metrics as JSON");
+        fileChooser.setInitialFileName("arbor-metrics-"
+                + java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))
+                + ".json");
+        fileChooser.getExtensionFilters().add(
+                new javafx.stage.FileChooser.ExtensionFilter("JSON Files", "*.json"));
+        File outputFile = fileChooser.showSaveDialog(stage);
+        if (outputFile == null) return;
+
+        com.google.gson.JsonObject dump = new com.google.gson.JsonObject();
+        dump.addProperty("arborVersion", VERSION);
+        dump.addProperty("timestamp", java.time.Instant.now().toString());
+        dump.addProperty("javaVersion", System.getProperty("java.version"));
+        dump.addProperty("os", System.getProperty("os.name") + " " + System.getProperty("os.version"));
+        dump.addProperty("processors", Runtime.getRuntime().availableProcessors());
+        dump.addProperty("maxHeapMb", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        com.google.gson.JsonObject phases = new com.google.gson.JsonObject();
+        for (StartupGraph.Phase phase : startup.getPhases()) {
+            com.google.gson.JsonObject timing = new com.google.gson.JsonObject();
+            timing.addProperty("thread", phase.thread());
+            timing.addProperty("startMillis", phase.startMillis());
+            timing.addProperty("durationMillis", phase.durationMillis());
+            phases.add(phase.name(), timing);
+        }
+        dump.add("startup", phases);
+        dump.add("metrics", MetricsRegistry.global().toJson());
+        try {
+            Files.writeString(outputFile.toPath(), com.arbor.util.GsonFactory.gson().toJson(dump));
+            com.arbor.util.DialogHelper.showInfo("Metrics", "Wrote metrics to " + outputFile.getName());
+        } catch (IOException e) {
+            com.arbor.util.DialogHelper.showError("Error", "Could not write metrics: " + e.getMessage());
+        }
+    }
+
+    private void openStallLog() {
+        Path stallLog = pulseMonitor.getStallLogFile();
+        if (!Files.exists(stallLog)) {
+            com.arbor.util.DialogHelper.showInfo("Stall Log", "No FX-thread stalls have been recorded.");
+            return;
+        }
+        try {
+            java.awt.Desktop.getDesktop().open(stallLog.toFile());
+        } catch (IOException e) {
+            com.arbor.util.DialogHelper.showError("Error", "Could not open stall log: " + e.getMessage());
+        }
+    }
+
+    private void startFlightRecording() {
+        if (flightRecorder.isRecording()) {
+            com.arbor.util.DialogHelper.showInfo("Flight Recording", "A recording is already running.");
+            return;
+        }
+        try {
+            flightRecorder.start();
+        } catch (IOException | java.text.ParseException e) {
+            com.arbor.util.DialogHelper.showError("Error", "Could not start recording: " + e.getMessage());
+        }
+    }
+
+    /** Asks where to save first; cancelling leaves the recording running. */
+    private void stopFlightRecording(Stage stage) {
+        if (!flightRecorder.isRecording()) {
+            com.arbor.util.DialogHelper.showInfo("Flight Recording", "No recording is running.");
+            return;
+        }
+        javafx.stage.FileChooser fileChooser = new javafx.stage.FileChooser();
+        fileChooser.setTitle("Save Flight Recording");
+        fileChooser.setInitialFileName("arbor-"
+                + java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))
+                + ".jfr");
+        fileChooser.getExtensionFilters().add(
+                new javafx.stage.FileChooser.ExtensionFilter("Flight Recordings", "*.jfr"));
+        File outputFile = fileChooser.showSaveDialog(stage);
+        if (outputFile == null) return;
+
+        Thread.startVirtualThread(() -> {
+            try {
+                flightRecorder.stop(outputFile.toPath());
+                Platform.runLater(() -> com.arbor.util.DialogHelper.showInfo("Flight Recording",
+                        "Wrote recording to " + outputFile.getName()));
+            } catch (IOException e) {
+                Platform.runLater(() -> com.arbor.util.DialogHelper.showError("Error",
+                        "Could not write recording: " + e.getMessage()));
+            }
+        });
     }
 
     private void toggleFocusMode(ArborConfig config) {
@@ -689,6 +1130,10 @@ public class App extends Application {
         statusBar.setTypewriterIndicator(newState);
     }
 
+    private long largeFileThreshold(ArborConfig config) {
+        return config.isLargeFileModeEnabled() ? config.getLargeFileThresholdMb() * 1024L * 1024L : 0;
+    }
+
     private String stripExtension(Path filePath) {
         String name = filePath.getFileName().toString();
         int dot = name.lastIndexOf('.');
@@ -761,6 +1206,10 @@ public class App extends Application {
         });
     }
 
+    static void setStartupListener(StartupListener listener) {
+        startupListener = listener;
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
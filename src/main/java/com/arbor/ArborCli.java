@@ -0,0 +1,384 @@
+package com.arbor;
+
+import com.arbor.model.BacklinkEntry;
+import com.arbor.model.MatchMode;
+import com.arbor.service.BacklinkService;
+import com.arbor.service.ContentIndexService;
+import com.arbor.service.FileRegistry;
+import com.arbor.service.ExportService;
+import com.arbor.service.PdfExportService;
+import com.arbor.service.SearchService;
+import com.arbor.service.SiteExportService;
+import com.arbor.service.TagService;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Headless command-line entry point for grove maintenance: indexing, search, backlinks, tags,
+ * export and statistics, printed as JSON on stdout. It never touches JavaFX, so it runs on
+ * servers without a display. Logging goes to stderr at WARN unless {@code --verbose} is given.
+ * It has to be the main class itself: the Java launcher starts the FX toolkit before
+ * {@code main} runs for any class extending {@code Application}, so {@link App} can't hand off.
+ *
+ * <pre>
+ * arbor &lt;command&gt; [--grove DIR] [options] [args]
+ * </pre>
+ */
+public final class ArborCli {
+
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILURE = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_NOT_FOUND = 3;
+
+    private static final Set<String> COMMANDS = Set.of("index", "search", "backlinks", "tags", "export", "stats",
+            "help");
+
+    private static final String USAGE = """
+            Usage: arbor <command> [--grove DIR] [options] [args]
+
+            Commands:
+              index                     Build the backlink, tag and content indexes and report their size
+              search QUERY              Search note contents [--word | --regex] [--case] [--limit N]
+              backlinks NOTE            List notes linking to NOTE (a path or [[link]] name)
+              tags [TAG]                List tags with file counts, or the files tagged TAG
+              export OUT_DIR            Export notes [--format site|pdf] [--dark]
+              stats                     Count files, notes, folders and bytes
+              help                      Show this message
+
+            The grove defaults to the current directory. Output is JSON on stdout.
+            Exit codes: 0 success, 1 failure, 2 usage error, 3 not found.
+            """;
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    private Path grove = Path.of("").toAbsolutePath();
+    private final List<String> positional = new ArrayList<>();
+    private final Map<String, String> options = new HashMap<>();
+
+    ArborCli(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /** Runs one command and returns its exit code. */
+    public static int run(String[] args) {
+        boolean verbose = List.of(args).contains("--verbose");
+        // Read by logback.xml; must be set before the first logger is created
+        System.setProperty("arbor.log.level", verbose ? "DEBUG" : "WARN");
+        return new ArborCli(System.out, System.err).execute(args);
+    }
+
+    int execute(String[] args) {
+        if (args.length == 0 || !COMMANDS.contains(args[0])) {
+            err.print(USAGE);
+            return EXIT_USAGE;
+        }
+        String command = args[0];
+        try {
+            parseArguments(args);
+            if (!Files.isDirectory(grove)) {
+                return usageError("Not a directory: " + grove);
+            }
+            return switch (command) {
+                case "index" -> index();
+                case "search" -> search();
+                case "backlinks" -> backlinks();
+                case "tags" -> tags();
+                case "export" -> export();
+                case "stats" -> stats();
+                default -> {
+                    out.print(USAGE);
+                    yield EXIT_OK;
+                }
+            };
+        } catch (IllegalArgumentException e) {
+            return usageError(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            err.println("arbor " + command + ": " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--grove" -> grove = Path.of(value(args, ++i, arg)).toAbsolutePath().normalize();
+                case "--limit", "--format" -> options.put(arg, value(args, ++i, arg));
+                case "--word", "--regex", "--case", "--dark", "--verbose" -> options.put(arg, "true");
+                default -> {
+                    if (arg.startsWith("--")) throw new IllegalArgumentException("Unknown option: " + arg);
+                    positional.add(arg);
+                }
+            }
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) throw new IllegalArgumentException(option + " needs a value");
+        return args[index];
+    }
+
+    private String argument(int index, String name) {
+        if (index >= positional.size()) throw new IllegalArgumentException("Missing " + name);
+        return positional.get(index);
+    }
+
+    private int usageError(String message) {
+        err.println("arbor: " + message);
+        err.println("Run 'arbor help' for usage.");
+        return EXIT_USAGE;
+    }
+
+    private int index() throws IOException {
+        long start = System.currentTimeMillis();
+        FileRegistry files = new FileRegistry();
+        BacklinkService backlinks = new BacklinkService(files);
+        TagService tags = new TagService(files);
+        ContentIndexService content = new ContentIndexService(files);
+        backlinks.setGrovePath(grove);
+        tags.setGrovePath(grove);
+        content.setGrovePath(grove);
+
+        // The three scans are independent; run them side by side
+        JsonObject timings = new JsonObject();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> scans = List.of(
+                    executor.submit(() -> timings(timings, "backlinks", backlinks::fullScan)),
+                    executor.submit(() -> timings(timings, "tags", tags::fullScan)),
+                    executor.submit(() -> timings(timings, "content", content::fullScan)));
+            for (Future<?> scan : scans) {
+                scan.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+
+        JsonObject result = new JsonObject();
+        result.addProperty("grove", grove.toString());
+        result.addProperty("files", content.getDocumentCount());
+        result.addProperty("links", backlinks.getLinkCount());
+        result.addProperty("tags", tags.getAllTags().size());
+        result.add("millis", timings);
+        timings.addProperty("total", System.currentTimeMillis() - start);
+        print(result);
+        return EXIT_OK;
+    }
+
+    private static void timings(JsonObject timings, String name, Runnable scan) {
+        long start = System.currentTimeMillis();
+        scan.run();
+        synchronized (timings) {
+            timings.addProperty(name, System.currentTimeMillis() - start);
+        }
+    }
+
+    private int search() {
+        String query = argument(0, "QUERY");
+        MatchMode mode = options.containsKey("--regex") ? MatchMode.REGEX
+                : options.containsKey("--word") ? MatchMode.WHOLE_WORD : MatchMode.LITERAL;
+        int limit = parseLimit();
+
+        List<SearchService.SearchResult> results;
+        try {
+            results = new SearchService().searchByContent(grove, query, mode, options.containsKey("--case"));
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid regex: " + e.getDescription());
+        }
+
+        JsonArray array = new JsonArray();
+        for (SearchService.SearchResult result : results.subList(0, Math.min(limit, results.size()))) {
+            JsonObject item = new JsonObject();
+            item.addProperty("path", relative(result.path()));
+            item.addProperty("score", Math.round(result.score() * 1000) / 1000.0);
+            item.addProperty("hits", result.hitCount());
+            JsonArray snippets = new JsonArray();
+            for (SearchService.Snippet snippet : result.snippets()) {
+                JsonObject line = new JsonObject();
+                line.addProperty("line", snippet.lineNumber() + 1);
+                line.addProperty("text", snippet.text());
+                snippets.add(line);
+            }
+            item.add("snippets", snippets);
+            array.add(item);
+        }
+        print(array);
+        return EXIT_OK;
+    }
+
+    private int parseLimit() {
+        String limit = options.getOrDefault("--limit", "50");
+        try {
+            int value = Integer.parseInt(limit);
+            if (value <= 0) throw new NumberFormatException();
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--limit must be a positive number: " + limit);
+        }
+    }
+
+    private int backlinks() {
+        String note = argument(0, "NOTE");
+        BacklinkService backlinks = new BacklinkService();
+        backlinks.setGrovePath(grove);
+
+        Path target = grove.resolve(note).normalize();
+        if (!Files.isRegularFile(target)) {
+            target = backlinks.resolveLink(note, grove);
+        }
+        if (target == null) {
+            err.println("arbor backlinks: no note matches " + note);
+            return EXIT_NOT_FOUND;
+        }
+        backlinks.fullScan();
+
+        JsonArray array = new JsonArray();
+        for (BacklinkEntry entry : backlinks.getBacklinksTo(target)) {
+            JsonObject item = new JsonObject();
+            item.addProperty("source", relative(entry.sourcePath()));
+            item.addProperty("line", entry.lineNumber() + 1);
+            item.addProperty("link", entry.linkTarget());
+            array.add(item);
+        }
+        JsonObject result = new JsonObject();
+        result.addProperty("note", relative(target));
+        result.add("backlinks", array);
+        print(result);
+        return EXIT_OK;
+    }
+
+    private int tags() {
+        TagService tags = new TagService();
+        tags.setGrovePath(grove);
+        tags.fullScan();
+
+        if (positional.isEmpty()) {
+            JsonObject counts = new JsonObject();
+            tags.getAllTags().forEach((tag, files) -> counts.addProperty(tag, files.size()));
+            print(counts);
+            return EXIT_OK;
+        }
+        String tag = positional.getFirst().replaceFirst("^#", "");
+        Set<Path> files = tags.getFilesForTag(tag);
+        if (files.isEmpty()) {
+            err.println("arbor tags: no files tagged #" + tag);
+            return EXIT_NOT_FOUND;
+        }
+        JsonArray array = new JsonArray();
+        files.stream().map(this::relative).sorted().forEach(array::add);
+        print(array);
+        return EXIT_OK;
+    }
+
+    private int export() throws IOException {
+        Path outputDir = Path.of(argument(0, "OUT_DIR")).toAbsolutePath().normalize();
+        String format = options.getOrDefault("--format", "site");
+        JsonObject result = new JsonObject();
+        result.addProperty("output", outputDir.toString());
+        result.addProperty("format", format);
+        int failed;
+        switch (format) {
+            case "site" -> {
+                SiteExportService.SiteExportResult export = new SiteExportService(new ExportService())
+                        .exportSite(grove, outputDir, options.containsKey("--dark"));
+                result.addProperty("rendered", export.rendered());
+                result.addProperty("unchanged", export.unchanged());
+                result.addProperty("tagPages", export.tagPages());
+                result.addProperty("failed", export.failed());
+                result.addProperty("millis", export.millis());
+                failed = export.failed();
+            }
+            case "pdf" -> {
+                PdfExportService.BatchResult export = new PdfExportService().exportFolder(grove, outputDir);
+                result.addProperty("exported", export.exported());
+                result.addProperty("failed", export.failed());
+                result.addProperty("millis", export.millis());
+                failed = export.failed();
+            }
+            default -> throw new IllegalArgumentException("Unknown export format: " + format);
+        }
+        print(result);
+        return failed > 0 ? EXIT_FAILURE : EXIT_OK;
+    }
+
+    private int stats() throws IOException {
+        long start = System.currentTimeMillis();
+        long[] counts = new long[4];
+        Files.walkFileTree(grove, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String name = dir.getFileName() == null ? "" : dir.getFileName().toString();
+                if (!dir.equals(grove) && (name.equals(".arbor") || name.startsWith("."))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                if (!dir.equals(grove)) counts[2]++;
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String name = file.getFileName().toString();
+                if (attrs.isRegularFile() && !name.startsWith(".")) {
+                    counts[0]++;
+                    if (name.toLowerCase().endsWith(".md")) counts[1]++;
+                    counts[3] += attrs.size();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        JsonObject result = new JsonObject();
+        result.addProperty("grove", grove.toString());
+        result.addProperty("files", counts[0]);
+        result.addProperty("notes", counts[1]);
+        result.addProperty("folders", counts[2]);
+        result.addProperty("bytes", counts[3]);
+        result.addProperty("millis", System.currentTimeMillis() - start);
+        print(result);
+        return EXIT_OK;
+    }
+
+    private String relative(Path path) {
+        return path.startsWith(grove) ? grove.relativize(path).toString().replace('\\', '/') : path.toString();
+    }
+
+    private void print(JsonElement json) {
+        out.println(gson.toJson(json));
+    }
+}
@@ -0,0 +1,158 @@
+package com.arbor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures cold start: launches the app repeatedly in fresh JVMs with {@code -Darbor.benchmark}
+ * and reports the median and best time-to-first-window (the window is shown) and
+ * time-to-interactive (session restored and the grove indexed), both from JVM launch. Each run
+ * is repeated without CDS, with the JDK's default CDS archive and, when present, with the app's
+ * AppCDS archive, so the fast-start build can be compared against a plain start.
+ *
+ * <pre>
+ * java --module-path app -m com.arbor/com.arbor.StartupBenchmark [--runs N] [--grove DIR] [--archive FILE]
+ * </pre>
+ */
+public final class StartupBenchmark {
+
+    static final String RESULT_PREFIX = "arbor-startup";
+
+    private static final long RUN_TIMEOUT_SECONDS = 120;
+
+    private record Timing(long firstWindow, long interactive) {
+    }
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int runs = 5;
+        Path grove = null;
+        Path archive = Path.of(System.getProperty("java.home"), "lib", "arbor.jsa");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                case "--grove" -> grove = Path.of(args[++i]);
+                case "--archive" -> archive = Path.of(args[++i]);
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        if (runs < 1) {
+            System.err.println("--runs must be at least 1");
+            System.exit(2);
+        }
+
+        String modulePath = System.getProperty("jdk.module.path");
+        if (modulePath == null) {
+            System.err.println("Run the benchmark from the module path, e.g. from the fast-start image");
+            System.exit(2);
+        }
+        if (grove == null) {
+            grove = Files.createTempDirectory("arbor-benchmark");
+            StartupTraining.prepareGrove(grove);
+        }
+
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("no CDS", List.of("-Xshare:off"));
+        variants.put("default CDS", List.of());
+        if (Files.isRegularFile(archive)) {
+            variants.put("AppCDS", List.of("-XX:SharedArchiveFile=" + archive));
+        } else {
+            System.out.println("No AppCDS archive at " + archive + "; build with -Pfast-start to create one");
+        }
+
+        System.out.printf("Startup benchmark: %d runs per variant, grove %s%n", runs, grove);
+        System.out.printf("%-12s %22s %22s%n", "", "first window (ms)", "interactive (ms)");
+        for (var variant : variants.entrySet()) {
+            // One discarded run so every variant starts with a warm file cache
+            launch(variant.getValue(), modulePath, grove);
+            long[] firstWindow = new long[runs];
+            long[] interactive = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                Timing timing = launch(variant.getValue(), modulePath, grove);
+                firstWindow[run] = timing.firstWindow();
+                interactive[run] = timing.interactive();
+            }
+            System.out.printf("%-12s %22s %22s%n", variant.getKey(), summarize(firstWindow), summarize(interactive));
+        }
+    }
+
+    private static Timing launch(List<String> jvmOptions, String modulePath, Path grove)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-D" + App.GROVE_PROPERTY + "=" + grove);
+        command.add("-D" + StartupHarness.BENCHMARK_PROPERTY + "=true");
+        command.add("-Darbor.log.level=WARN");
+        command.add("--module-path");
+        command.add(modulePath);
+        command.add("-m");
+        command.add("com.arbor/com.arbor.StartupHarness");
+
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        AtomicReference<Timing> timing = new AtomicReference<>();
+        Thread reader = Thread.startVirtualThread(() -> {
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith(RESULT_PREFIX)) {
+                        timing.set(parse(line));
+                    }
+                }
+            } catch (IOException e) {
+                // The process went away; a missing result is reported below
+            }
+        });
+        if (!process.waitFor(RUN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+        int exitCode = process.waitFor();
+        reader.join();
+        if (timing.get() == null) {
+            throw new IOException("App exited without reporting startup times (exit code "
+                    + exitCode + "): " + String.join(" ", command));
+        }
+        return timing.get();
+    }
+
+    private static Timing parse(String line) {
+        long firstWindow = 0;
+        long interactive = 0;
+        for (String field : line.substring(RESULT_PREFIX.length()).trim().split(" ")) {
+            String[] pair = field.split("=", 2);
+            switch (pair[0]) {
+                case "first-window" -> firstWindow = Long.parseLong(pair[1]);
+                case "interactive" -> interactive = Long.parseLong(pair[1]);
+                default -> { }
+            }
+        }
+        return new Timing(firstWindow, interactive);
+    }
+
+    /** Median, with the best run in parentheses. */
+    private static String summarize(long[] millis) {
+        long[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] + " (best " + sorted[0] + ")";
+    }
+}
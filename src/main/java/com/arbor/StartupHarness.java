@@ -0,0 +1,58 @@
+package com.arbor;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.control.Tab;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Launches the app for the fast-start build's tooling rather than for a user: with
+ * {@code -Darbor.benchmark=true} it prints the startup timings for {@link StartupBenchmark}
+ * and exits once the app is interactive, and with {@code -Darbor.training=true} it runs
+ * {@link StartupTraining}. Keeping these here leaves {@link App} free of stdout and exit paths.
+ *
+ * <pre>
+ * java --module-path app -m com.arbor/com.arbor.StartupHarness
+ * </pre>
+ */
+public final class StartupHarness {
+
+    /** Prints the startup timings to stdout and exits once the app is interactive. */
+    static final String BENCHMARK_PROPERTY = "arbor.benchmark";
+
+    private StartupHarness() {
+    }
+
+    public static void main(String[] args) {
+        if (Boolean.getBoolean(BENCHMARK_PROPERTY)) {
+            App.setStartupListener(new StartupListener() {
+                @Override
+                public void onInteractive(long firstWindowMillis, long interactiveMillis, Path grove,
+                                          Consumer<Path> openFile, Supplier<Tab> selectedTab) {
+                    System.out.println(StartupBenchmark.RESULT_PREFIX + " first-window=" + firstWindowMillis
+                            + " interactive=" + interactiveMillis);
+                    Platform.exit();
+                    System.exit(0);
+                }
+            });
+        } else if (StartupTraining.isEnabled()) {
+            App.setStartupListener(new StartupListener() {
+                @Override
+                public void beforeGroveLoad(Path grove) throws IOException {
+                    StartupTraining.prepareGrove(grove);
+                }
+
+                @Override
+                public void onInteractive(long firstWindowMillis, long interactiveMillis, Path grove,
+                                          Consumer<Path> openFile, Supplier<Tab> selectedTab) {
+                    StartupTraining.run(grove, openFile, selectedTab);
+                }
+            });
+        }
+        Application.launch(App.class, args);
+    }
+}
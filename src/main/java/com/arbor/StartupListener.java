@@ -0,0 +1,27 @@
+package com.arbor;
+
+import javafx.scene.control.Tab;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Hooks into app startup for tooling that drives or measures it, installed by
+ * {@link StartupHarness} before launch. The app itself only reports progress through it.
+ */
+interface StartupListener {
+
+    /** Called on the FX thread before {@code grove} is loaded. */
+    default void beforeGroveLoad(Path grove) throws IOException {
+    }
+
+    /**
+     * Called on the FX thread once the window is up, the session restored and the grove
+     * indexed; times are from JVM launch.
+     */
+    default void onInteractive(long firstWindowMillis, long interactiveMillis, Path grove,
+                               Consumer<Path> openFile, Supplier<Tab> selectedTab) {
+    }
+}
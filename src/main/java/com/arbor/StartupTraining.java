@@ -0,0 +1,148 @@
+package com.arbor;
+
+import com.arbor.service.ExportService;
+import com.arbor.view.EditorTab;
+import javafx.application.Platform;
+import javafx.concurrent.Worker;
+import javafx.scene.control.Tab;
+import javafx.scene.web.WebView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Drives the app through a typical first session so the fast-start build can record the classes
+ * it loads into an AppCDS archive: the grove opens, a note and a source file are highlighted,
+ * the note's preview renders, and the app exits. Runs when {@link StartupHarness} is launched
+ * with {@code -Darbor.training=true} and {@code -Darbor.grove}; an empty grove is seeded with
+ * sample files first.
+ */
+final class StartupTraining {
+    private static final Logger log = LoggerFactory.getLogger(StartupTraining.class);
+
+    static final String PROPERTY = "arbor.training";
+
+    private static final String NOTE = """
+            # Training Note
+
+            A note with **bold**, *italic* and `inline code`, linking to [[Linked Note]]. #training #arbor
+
+            ## Checklist
+
+            - [x] Open the grove
+            - [ ] Render the preview
+
+            | Column | Value |
+            |--------|-------|
+            | alpha  | 1     |
+
+            ```java
+            System.out.println("highlighted");
+            ```
+
+            > A quote, and a [link](https://example.com).
+            """;
+
+    private static final String LINKED_NOTE = """
+            # Linked Note
+
+            Points back to [[Training Note]]. #training
+            """;
+
+    private static final String SOURCE = """
+            package example;
+
+            /** Sample source file so code highlighting is part of the training run. */
+            public class Example {
+                public static void main(String[] args) {
+                    for (int i = 0; i < 3; i++) {
+                        System.out.println("line " + i);
+                    }
+                }
+            }
+            """;
+
+    // Held while it renders; nothing else references the view
+    private static WebView preview;
+
+    private StartupTraining() {
+    }
+
+    static boolean isEnabled() {
+        return Boolean.getBoolean(PROPERTY);
+    }
+
+    /** Seeds {@code root} with the sample files unless it already has some. */
+    static void prepareGrove(Path root) throws IOException {
+        Files.createDirectories(root);
+        try (var entries = Files.list(root)) {
+            if (entries.anyMatch(p -> !p.getFileName().toString().startsWith("."))) return;
+        }
+        Files.writeString(root.resolve("Training Note.md"), NOTE);
+        Files.writeString(root.resolve("Linked Note.md"), LINKED_NOTE);
+        Files.createDirectories(root.resolve("src"));
+        Files.writeString(root.resolve("src").resolve("Example.java"), SOURCE);
+    }
+
+    /**
+     * Opens each sample file in turn, waiting for it to load and highlight and for Markdown
+     * previews to render, then exits the JVM so the archive is written. Call on the FX thread.
+     */
+    static void run(Path grove, Consumer<Path> openFile, Supplier<Tab> selectedTab) {
+        Deque<Path> files = new ArrayDeque<>(List.of(
+                grove.resolve("Training Note.md"),
+                grove.resolve("src").resolve("Example.java")));
+        openNext(files, openFile, selectedTab);
+    }
+
+    private static void openNext(Deque<Path> files, Consumer<Path> openFile, Supplier<Tab> selectedTab) {
+        Path file = files.poll();
+        if (file == null) {
+            log.info("Training run finished");
+            Platform.exit();
+            System.exit(0);
+            return;
+        }
+        Runnable next = () -> openNext(files, openFile, selectedTab);
+        if (!Files.exists(file)) {
+            next.run();
+            return;
+        }
+        openFile.accept(file);
+        if (!(selectedTab.get() instanceof EditorTab tab)) {
+            next.run();
+            return;
+        }
+        tab.whenLoaded(() -> {
+            if (tab.isMarkdown()) {
+                renderPreview(tab.getTextArea().getText(), next);
+            } else {
+                next.run();
+            }
+        });
+    }
+
+    /**
+     * Renders {@code markdown} the way the preview pane does, in a WebView of our own, and runs
+     * {@code onRendered} once WebKit has finished, so its classes are loaded too.
+     */
+    private static void renderPreview(String markdown, Runnable onRendered) {
+        WebView view = new WebView();
+        preview = view;
+        view.getEngine().getLoadWorker().stateProperty().addListener((obs, oldState, state) -> {
+            if (state == Worker.State.SUCCEEDED || state == Worker.State.FAILED) {
+                preview = null;
+                onRendered.run();
+            }
+        });
+        view.getEngine().loadContent(new ExportService().toStyledHtml(markdown, false), "text/html");
+    }
+}
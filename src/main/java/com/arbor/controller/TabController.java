@@ -6,18 +6,30 @@ import com.arbor.view.DraggableTabPane;
 import com.arbor.view.EditorTab;
 import com.arbor.view.SplitEditorPane;
 import com.arbor.view.WelcomeView;
+import javafx.application.Platform;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
 
 public class TabController {
+    private static final long HIBERNATION_SWEEP_MS = 60_000;
+
     private final SplitEditorPane splitEditorPane;
     private final FileOperationService fileOps;
     private final Tab welcomeTab;
+    private long largeFileThreshold = 0;
+    private long hibernateAfterMillis = 0;
+    private Timer hibernationTimer;
 
     public TabController(SplitEditorPane splitEditorPane, FileOperationService fileOps) {
         this.splitEditorPane = splitEditorPane;
@@ -52,16 +64,7 @@ public class TabController {
         // Remove welcome tab if present
         splitEditorPane.getPrimaryPane().getTabs().remove(welcomeTab);
 
-        EditorTab editorTab = new EditorTab(path, fileOps);
-        editorTab.setOnCloseRequest(event -> {
-            if (editorTab.isDirty()) {
-                boolean save = DialogHelper.showConfirmation("Unsaved Changes",
-                        "Save changes to \"" + path.getFileName() + "\" before closing?");
-                if (save) {
-                    editorTab.save();
-                }
-            }
-        });
+        EditorTab editorTab = createEditorTab(path, false);
 
         // Add to active (focused) pane
         DraggableTabPane activePane = splitEditorPane.getActivePane();
@@ -114,18 +117,105 @@ public class TabController {
         return true;
     }
 
+    /**
+     * Restores session tabs as deferred placeholders. Only the selected tab reads its file and
+     * builds an editor; the others materialize when first selected.
+     */
     public void restoreSession(List<Path> paths, int selectedIndex) {
+        List<Tab> restored = new ArrayList<>();
         for (Path path : paths) {
-            if (Files.exists(path)) {
-                openFile(path);
+            if (findTab(path) == null && Files.exists(path)) {
+                restored.add(createEditorTab(path, true));
             }
         }
+        if (restored.isEmpty()) {
+            return;
+        }
+
         DraggableTabPane primary = splitEditorPane.getPrimaryPane();
+        primary.getTabs().addAll(restored);
+        primary.getTabs().remove(welcomeTab);
         if (selectedIndex >= 0 && selectedIndex < primary.getTabs().size()) {
             primary.getSelectionModel().select(selectedIndex);
         }
     }
 
+    /** Files above this size (bytes) open in read-only large file mode; {@code <= 0} disables it. */
+    public void setLargeFileThreshold(long largeFileThreshold) {
+        this.largeFileThreshold = largeFileThreshold;
+    }
+
+    /**
+     * Clean background tabs idle for longer than this are hibernated, least recently used
+     * first; {@code <= 0} disables hibernation.
+     */
+    public void setHibernateAfterMinutes(int minutes) {
+        this.hibernateAfterMillis = minutes * 60_000L;
+        if (hibernationTimer != null) {
+            hibernationTimer.cancel();
+            hibernationTimer = null;
+        }
+        if (minutes > 0) {
+            long period = Math.min(hibernateAfterMillis, HIBERNATION_SWEEP_MS);
+            hibernationTimer = new Timer(true);
+            hibernationTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    Platform.runLater(() -> hibernateIdleTabs());
+                }
+            }, period, period);
+        }
+    }
+
+    /** Stops background work owned by this controller. */
+    public void dispose() {
+        if (hibernationTimer != null) {
+            hibernationTimer.cancel();
+            hibernationTimer = null;
+        }
+    }
+
+    private void hibernateIdleTabs() {
+        if (hibernateAfterMillis <= 0) return;
+        long cutoff = System.currentTimeMillis() - hibernateAfterMillis;
+
+        List<EditorTab> candidates = new ArrayList<>();
+        collectEditorTabs(splitEditorPane.getPrimaryPane(), candidates);
+        if (splitEditorPane.isSplit() && splitEditorPane.getSecondaryPane() != null) {
+            collectEditorTabs(splitEditorPane.getSecondaryPane(), candidates);
+        }
+        candidates.removeIf(tab -> !tab.isMaterialized() || tab.getLastActiveMillis() > cutoff);
+        candidates.sort(Comparator.comparingLong(EditorTab::getLastActiveMillis));
+
+        for (EditorTab tab : candidates) {
+            tab.hibernate();
+        }
+    }
+
+    /** Paths of open tabs with unsaved edits. */
+    public Set<Path> getDirtyPaths() {
+        List<EditorTab> dirtyTabs = new ArrayList<>();
+        collectDirtyTabs(splitEditorPane.getPrimaryPane(), dirtyTabs);
+        if (splitEditorPane.isSplit() && splitEditorPane.getSecondaryPane() != null) {
+            collectDirtyTabs(splitEditorPane.getSecondaryPane(), dirtyTabs);
+        }
+        Set<Path> paths = new HashSet<>();
+        for (EditorTab tab : dirtyTabs) {
+            paths.add(tab.getFilePath());
+        }
+        return paths;
+    }
+
+    /** Reloads open tabs showing any of {@code paths} after they were changed on disk. */
+    public void reloadTabs(Collection<Path> paths) {
+        for (Path path : paths) {
+            Tab tab = findTab(path);
+            if (tab instanceof EditorTab editorTab) {
+                editorTab.reloadFromDisk();
+            }
+        }
+    }
+
     public void splitRight() {
         Tab selected = getActiveSelectedTab();
         if (selected instanceof EditorTab) {
@@ -137,6 +227,20 @@ public class TabController {
         return splitEditorPane;
     }
 
+    private EditorTab createEditorTab(Path path, boolean deferred) {
+        EditorTab editorTab = new EditorTab(path, fileOps, largeFileThreshold, deferred);
+        editorTab.setOnCloseRequest(event -> {
+            if (editorTab.isDirty()) {
+                boolean save = DialogHelper.showConfirmation("Unsaved Changes",
+                        "Save changes to \"" + path.getFileName() + "\" before closing?");
+                if (save) {
+                    editorTab.save();
+                }
+            }
+        });
+        return editorTab;
+    }
+
     private Tab getActiveSelectedTab() {
         DraggableTabPane active = splitEditorPane.getActivePane();
         return active.getSelectionModel().getSelectedItem();
@@ -160,6 +264,14 @@ public class TabController {
         return null;
     }
 
+    private void collectEditorTabs(TabPane pane, List<EditorTab> tabs) {
+        for (Tab tab : pane.getTabs()) {
+            if (tab instanceof EditorTab editorTab) {
+                tabs.add(editorTab);
+            }
+        }
+    }
+
     private void collectDirtyTabs(TabPane pane, List<EditorTab> dirtyTabs) {
         for (Tab tab : pane.getTabs()) {
             if (tab instanceof EditorTab editorTab && editorTab.isDirty()) {
@@ -17,6 +17,9 @@ public class ArborConfig {
     private boolean focusModeEnabled = false;
     private boolean typewriterModeEnabled = false;
     private boolean showTagsInTree = true;
+    private boolean largeFileModeEnabled = true;
+    private int largeFileThresholdMb = 10;
+    private int hibernateTabsAfterMinutes = 10;
 
     public ArborConfig() {
     }
@@ -113,6 +116,30 @@ public class ArborConfig {
         this.showTagsInTree = showTagsInTree;
     }
 
+    public boolean isLargeFileModeEnabled() {
+        return largeFileModeEnabled;
+    }
+
+    public void setLargeFileModeEnabled(boolean largeFileModeEnabled) {
+        this.largeFileModeEnabled = largeFileModeEnabled;
+    }
+
+    public int getLargeFileThresholdMb() {
+        return largeFileThresholdMb;
+    }
+
+    public void setLargeFileThresholdMb(int largeFileThresholdMb) {
+        this.largeFileThresholdMb = largeFileThresholdMb;
+    }
+
+    public int getHibernateTabsAfterMinutes() {
+        return hibernateTabsAfterMinutes;
+    }
+
+    public void setHibernateTabsAfterMinutes(int hibernateTabsAfterMinutes) {
+        this.hibernateTabsAfterMinutes = hibernateTabsAfterMinutes;
+    }
+
     public void addRecentGrove(Path grovePath) {
         recentGroves.remove(grovePath);
         recentGroves.addFirst(grovePath);
@@ -0,0 +1,31 @@
+package com.arbor.model;
+
+import java.nio.file.Path;
+
+/**
+ * A file-system change inside the grove. {@code target} is the new path of a {@link Kind#RENAMED}
+ * entry and null otherwise; {@link Kind#OVERFLOW} means events were lost under {@code path}
+ * and the directory should be re-listed.
+ */
+public record FileChange(Kind kind, Path path, Path target, boolean directory) {
+
+    public enum Kind {
+        CREATED,
+        DELETED,
+        MODIFIED,
+        RENAMED,
+        OVERFLOW
+    }
+
+    public static FileChange created(Path path, boolean directory) {
+        return new FileChange(Kind.CREATED, path, null, directory);
+    }
+
+    public static FileChange deleted(Path path, boolean directory) {
+        return new FileChange(Kind.DELETED, path, null, directory);
+    }
+
+    public static FileChange renamed(Path from, Path to, boolean directory) {
+        return new FileChange(Kind.RENAMED, from, to, directory);
+    }
+}
@@ -0,0 +1,28 @@
+package com.arbor.model;
+
+import java.util.regex.Pattern;
+
+/** How a search query is interpreted. */
+public enum MatchMode {
+    LITERAL,
+    WHOLE_WORD,
+    REGEX;
+
+    private static final String WORD_CHAR = "[\\p{L}\\p{N}_]";
+
+    /**
+     * Compiles {@code query} for this mode. Regex patterns use MULTILINE so {@code ^} and
+     * {@code $} anchor at line boundaries, as users expect in an editor.
+     *
+     * @throws java.util.regex.PatternSyntaxException if a REGEX query is malformed
+     */
+    public Pattern compile(String query, boolean caseSensitive) {
+        int flags = caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        return switch (this) {
+            case LITERAL -> Pattern.compile(Pattern.quote(query), flags);
+            case WHOLE_WORD -> Pattern.compile(
+                    "(?<!" + WORD_CHAR + ")" + Pattern.quote(query) + "(?!" + WORD_CHAR + ")", flags);
+            case REGEX -> Pattern.compile(query, flags | Pattern.MULTILINE);
+        };
+    }
+}
@@ -1,32 +1,73 @@
 package com.arbor.service;
 
 import com.arbor.model.BacklinkEntry;
+import com.arbor.util.ArborEvents;
+import com.arbor.util.MetricsRegistry;
 
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
+/**
+ * Index of {@code [[wiki links]]} across the grove, held as a compact graph. Files are known
+ * by their {@link FileRegistry} id, link targets are interned to ids of their own, and each
+ * link is a few ints in CSR arrays: outgoing links grouped by source file, incoming ones
+ * grouped by normalized target. Writers publish an immutable {@link Snapshot} through a
+ * volatile field, so readers never lock and walking the backlinks of a file allocates nothing.
+ *
+ * <p>A full scan builds the graph. Re-indexing one file only touches a small {@link Overlay}
+ * that hides the file's old row and lists its new links; once the overlay grows past a
+ * fraction of the graph it is compacted into a new graph, which also drops targets no link
+ * uses any more.
+ */
 public class BacklinkService {
 
     public static final Pattern BACKLINK_PATTERN = Pattern.compile("\\[\\[([^\\]]+)]]");
 
+    private static final MetricsRegistry.Timer SCAN_TIMER = MetricsRegistry.global().timer("scan.backlinks");
+    private static final MetricsRegistry.Timer COMPACT_TIMER = MetricsRegistry.global().timer("scan.backlinks.compact");
+
+    // Compact once the overlay holds this many links, or an eighth of the graph if more
+    private static final int COMPACT_MIN_LINKS = 4096;
+
+    /** Receives one backlink from {@link #forEachBacklinkTo}. */
+    @FunctionalInterface
+    public interface BacklinkVisitor {
+        void visit(Path sourcePath, String linkTarget, int lineNumber);
+    }
+
+    private final FileRegistry files;
     private Path grovePath;
-    private final Map<Path, List<BacklinkEntry>> forwardIndex = new ConcurrentHashMap<>();
-    private final Map<String, List<BacklinkEntry>> reverseIndex = new ConcurrentHashMap<>();
+    // Replaced under this lock; read without it
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public BacklinkService() {
+        this(new FileRegistry());
+    }
+
+    public BacklinkService(FileRegistry files) {
+        this.files = files;
+    }
 
     public void setGrovePath(Path grovePath) {
         this.grovePath = grovePath;
+        files.setGrovePath(grovePath);
+        synchronized (this) {
+            snapshot = Snapshot.EMPTY;
+        }
     }
 
     public void fullScan() {
         if (grovePath == null) return;
-        forwardIndex.clear();
-        reverseIndex.clear();
+        long start = System.nanoTime();
+        ArborEvents.GroveScan event = new ArborEvents.GroveScan();
+        event.begin();
+        Interner interner = new Interner();
+        LinkBuffer links = new LinkBuffer(1024);
+        Matcher matcher = BACKLINK_PATTERN.matcher("");
 
         try {
             Files.walkFileTree(grovePath, new SimpleFileVisitor<>() {
@@ -44,78 +85,147 @@ public class BacklinkService {
                     if (!attrs.isRegularFile() || file.getFileName().toString().startsWith(".")) {
                         return FileVisitResult.CONTINUE;
                     }
-                    scanFile(file);
+                    try {
+                        String content = Files.readString(file);
+                        int fileId = files.idOf(file);
+                        scanContent(content, matcher,
+                                (target, line) -> links.add(fileId, interner.targetId(target), line));
+                    } catch (IOException ignored) {
+                    }
                     return FileVisitResult.CONTINUE;
                 }
             });
         } catch (IOException ignored) {
         }
+        Graph built = new Graph(interner, links, files.size());
+        synchronized (this) {
+            snapshot = new Snapshot(built, Overlay.EMPTY);
+        }
+        SCAN_TIMER.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.index = "backlinks";
+            event.grove = grovePath.toString();
+            event.entries = built.linkedFiles;
+            event.commit();
+        }
     }
 
+    /**
+     * Re-indexes one file after it was saved, created or deleted. Costs time in the size of the
+     * file and the overlay, not the grove, except when it triggers a compaction.
+     */
     public void rescanFile(Path file) {
-        // Remove old entries for this file
-        List<BacklinkEntry> oldEntries = forwardIndex.remove(file);
-        if (oldEntries != null) {
-            for (BacklinkEntry entry : oldEntries) {
-                String key = normalizeTarget(entry.linkTarget());
-                List<BacklinkEntry> reverseList = reverseIndex.get(key);
-                if (reverseList != null) {
-                    reverseList.removeIf(e -> e.sourcePath().equals(file));
-                    if (reverseList.isEmpty()) {
-                        reverseIndex.remove(key);
-                    }
-                }
+        ArborEvents.FileIndexUpdate event = new ArborEvents.FileIndexUpdate();
+        event.begin();
+        FileLinks parsed = new FileLinks();
+        try {
+            if (Files.isRegularFile(file)) {
+                scanContent(Files.readString(file), BACKLINK_PATTERN.matcher(""), parsed::add);
             }
+        } catch (IOException ignored) {
+        }
+
+        synchronized (this) {
+            Snapshot current = snapshot;
+            int fileId = files.idOf(file);
+            Overlay overlay = current.overlay.with(fileId, current.graph.rowLength(fileId), parsed);
+            if (overlay.size + overlay.replacedLinks > Math.max(COMPACT_MIN_LINKS, current.graph.linkCount / 8)) {
+                long start = System.nanoTime();
+                snapshot = new Snapshot(compact(current.graph, overlay), Overlay.EMPTY);
+                COMPACT_TIMER.recordSince(start);
+            } else {
+                snapshot = new Snapshot(current.graph, overlay);
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.index = "backlinks";
+            event.path = file.toString();
+            event.commit();
         }
-        // Re-scan
-        scanFile(file);
     }
 
-    private void scanFile(Path file) {
-        try {
-            String content = Files.readString(file);
-            List<BacklinkEntry> entries = new ArrayList<>();
-            String[] lines = content.split("\n", -1);
-
-            for (int i = 0; i < lines.length; i++) {
-                Matcher matcher = BACKLINK_PATTERN.matcher(lines[i]);
-                while (matcher.find()) {
-                    String target = matcher.group(1).trim();
-                    BacklinkEntry entry = new BacklinkEntry(file, target, i);
-                    entries.add(entry);
-                }
+    /** Folds the overlay into a new graph, re-interning targets so unused ones are dropped. */
+    private Graph compact(Graph graph, Overlay overlay) {
+        Interner interner = new Interner();
+        LinkBuffer links = new LinkBuffer(graph.linkCount - overlay.replacedLinks + overlay.size);
+        for (int f = 0; f < graph.fileCount; f++) {
+            if (overlay.isReplaced(f)) continue;
+            for (int l = graph.outStart[f]; l < graph.outStart[f + 1]; l++) {
+                links.add(f, interner.targetId(graph.targets[graph.linkTargets[l]]), graph.linkLines[l]);
             }
+        }
+        for (int i = 0; i < overlay.size; i++) {
+            links.add(overlay.sources[i], interner.targetId(overlay.targets[i]), overlay.lines[i]);
+        }
+        return new Graph(interner, links, files.size());
+    }
 
-            if (!entries.isEmpty()) {
-                forwardIndex.put(file, entries);
-                for (BacklinkEntry entry : entries) {
-                    String key = normalizeTarget(entry.linkTarget());
-                    reverseIndex.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>()))
-                            .add(entry);
-                }
+    @FunctionalInterface
+    private interface LinkSink {
+        void add(String target, int line);
+    }
+
+    /** Reports the links in {@code content}; like the editor, a link never spans lines. */
+    private static void scanContent(String content, Matcher matcher, LinkSink sink) {
+        matcher.reset(content);
+        int line = 0;
+        int lineStart = 0;
+        while (lineStart <= content.length()) {
+            int lineEnd = content.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = content.length();
+            matcher.region(lineStart, lineEnd);
+            while (matcher.find()) {
+                sink.add(matcher.group(1).trim(), line);
             }
-        } catch (IOException ignored) {
+            line++;
+            lineStart = lineEnd + 1;
         }
     }
 
     public List<BacklinkEntry> getBacklinksTo(Path file) {
-        String filename = file.getFileName().toString();
-        String nameNoExt = removeExtension(filename);
-
         List<BacklinkEntry> results = new ArrayList<>();
+        forEachBacklinkTo(file, (source, target, line) -> results.add(new BacklinkEntry(source, target, line)));
+        return results;
+    }
 
-        // Check both with and without extension
-        List<BacklinkEntry> exact = reverseIndex.get(normalizeTarget(filename));
-        if (exact != null) results.addAll(exact);
+    /**
+     * Calls {@code visitor} for every link whose target names {@code file}, with or without
+     * its extension and ignoring case. Walks the published graph without locking; beyond the
+     * file name, nothing is allocated.
+     */
+    public void forEachBacklinkTo(Path file, BacklinkVisitor visitor) {
+        Snapshot s = snapshot;
+        String filename = file.getFileName().toString();
+        int dot = extensionStart(filename);
+        int exact = s.graph.keyId(filename, 0, filename.length());
+        int noExt = s.graph.keyId(filename, 0, dot);
+        s.graph.visitIncoming(exact, s.overlay, files, visitor);
+        if (noExt != exact) {
+            s.graph.visitIncoming(noExt, s.overlay, files, visitor);
+        }
+        s.overlay.visitMatching(filename, dot, files, visitor);
+    }
 
-        List<BacklinkEntry> noExt = reverseIndex.get(normalizeTarget(nameNoExt));
-        if (noExt != null) {
-            for (BacklinkEntry e : noExt) {
-                if (!results.contains(e)) results.add(e);
-            }
+    /** Number of backlinks {@link #forEachBacklinkTo} would visit. */
+    public int countBacklinksTo(Path file) {
+        Snapshot s = snapshot;
+        String filename = file.getFileName().toString();
+        int dot = extensionStart(filename);
+        int exact = s.graph.keyId(filename, 0, filename.length());
+        int noExt = s.graph.keyId(filename, 0, dot);
+        int count = s.graph.incomingCount(exact, s.overlay);
+        if (noExt != exact) {
+            count += s.graph.incomingCount(noExt, s.overlay);
         }
+        return count + s.overlay.countMatching(filename, dot);
+    }
 
-        return results;
+    /** Total number of {@code [[links]]} across the grove. */
+    public int getLinkCount() {
+        Snapshot s = snapshot;
+        return s.graph.linkCount - s.overlay.replacedLinks + s.overlay.size;
     }
 
     public Path resolveLink(String linkText, Path grovePath) {
@@ -159,12 +269,347 @@ public class BacklinkService {
         }
     }
 
-    private String normalizeTarget(String target) {
-        return target.trim().toLowerCase();
+    /**
+     * Lookup key for a link target: trimmed and lower-cased char by char, the same folding
+     * {@link Graph#keyId} applies to file names, so a lookup never needs a lower-case copy.
+     */
+    private static String normalizeTarget(String target) {
+        String trimmed = target.trim();
+        char[] chars = null;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            char lower = Character.toLowerCase(c);
+            if (lower != c && chars == null) chars = trimmed.toCharArray();
+            if (chars != null) chars[i] = lower;
+        }
+        // Most targets are already lower case; share the string rather than copy it
+        return chars == null ? trimmed : new String(chars);
     }
 
-    private String removeExtension(String filename) {
+    private static int extensionStart(String filename) {
         int dot = filename.lastIndexOf('.');
-        return dot > 0 ? filename.substring(0, dot) : filename;
+        return dot > 0 ? dot : filename.length();
+    }
+
+    private String removeExtension(String filename) {
+        return filename.substring(0, extensionStart(filename));
+    }
+
+    /** Writer-side maps from target text and its normalized key to the ids used in the graph. */
+    private static final class Interner {
+        final Map<String, Integer> targetIds = new HashMap<>();
+        final List<String> targets = new ArrayList<>();
+        int[] targetKeys = new int[256];
+        final Map<String, Integer> keyIds = new HashMap<>();
+        final List<String> keys = new ArrayList<>();
+
+        int targetId(String target) {
+            Integer id = targetIds.get(target);
+            if (id != null) return id;
+            int targetId = targets.size();
+            String key = normalizeTarget(target);
+            Integer keyId = keyIds.get(key);
+            if (keyId == null) {
+                keyId = keys.size();
+                keys.add(key);
+                keyIds.put(key, keyId);
+            }
+            targets.add(target);
+            targetIds.put(target, targetId);
+            if (targetId == targetKeys.length) {
+                targetKeys = Arrays.copyOf(targetKeys, targetId * 2);
+            }
+            targetKeys[targetId] = keyId;
+            return targetId;
+        }
+    }
+
+    /** Growable parallel int arrays of (source file, target, line), one entry per link. */
+    private static final class LinkBuffer {
+        int[] sources;
+        int[] targets;
+        int[] lines;
+        int size;
+
+        LinkBuffer(int capacity) {
+            sources = new int[capacity];
+            targets = new int[capacity];
+            lines = new int[capacity];
+        }
+
+        void add(int source, int target, int line) {
+            if (size == sources.length) {
+                int capacity = Math.max(256, size * 2);
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                lines = Arrays.copyOf(lines, capacity);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            lines[size] = line;
+            size++;
+        }
+    }
+
+    /**
+     * Immutable link graph over file ids below {@code fileCount}. Links are sorted into
+     * source-file order on construction: the outgoing links of
+     * file {@code f} are {@code outStart[f]} up to {@code outStart[f + 1]}, so a link's source
+     * is found by binary search rather than stored, and each link costs three ints. The incoming links
+     * of key {@code k} are the link numbers in {@code inLinks} from {@code inStart[k]} up to
+     * {@code inStart[k + 1]}. Keys are found through an open-addressing table hashed on
+     * lower-cased chars, so a file name can be looked up in place.
+     */
+    private static final class Graph {
+        static final Graph EMPTY = new Graph(new Interner(), new LinkBuffer(0), 0);
+
+        final int fileCount;
+        final String[] targets;
+        final int[] targetKeys;
+        final String[] keys;
+        final int[] keySlots;
+        final int[] outStart;
+        final int[] linkTargets;
+        final int[] linkLines;
+        final int[] inStart;
+        final int[] inLinks;
+        final int linkCount;
+        final int linkedFiles;
+
+        Graph(Interner interner, LinkBuffer links, int fileCount) {
+            // A grove switch mid-scan can leave the registry smaller than the ids in hand
+            for (int l = 0; l < links.size; l++) {
+                fileCount = Math.max(fileCount, links.sources[l] + 1);
+            }
+            this.fileCount = fileCount;
+            targets = interner.targets.toArray(new String[0]);
+            targetKeys = Arrays.copyOf(interner.targetKeys, targets.length);
+            keys = interner.keys.toArray(new String[0]);
+            linkCount = links.size;
+
+            // Counting sort by source; a file keeps its links in the order they were added
+            outStart = new int[fileCount + 1];
+            for (int l = 0; l < linkCount; l++) {
+                outStart[links.sources[l] + 1]++;
+            }
+            int linked = 0;
+            for (int f = 0; f < fileCount; f++) {
+                if (outStart[f + 1] > 0) linked++;
+                outStart[f + 1] += outStart[f];
+            }
+            linkedFiles = linked;
+            linkTargets = new int[linkCount];
+            linkLines = new int[linkCount];
+            int[] nextOut = Arrays.copyOf(outStart, fileCount);
+            for (int l = 0; l < linkCount; l++) {
+                int slot = nextOut[links.sources[l]]++;
+                linkTargets[slot] = links.targets[l];
+                linkLines[slot] = links.lines[l];
+            }
+
+            // Counting sort of link numbers by key keeps each key's links in source order
+            inStart = new int[keys.length + 1];
+            for (int l = 0; l < linkCount; l++) {
+                inStart[targetKeys[linkTargets[l]] + 1]++;
+            }
+            for (int k = 0; k < keys.length; k++) {
+                inStart[k + 1] += inStart[k];
+            }
+            inLinks = new int[linkCount];
+            int[] next = Arrays.copyOf(inStart, keys.length);
+            for (int l = 0; l < linkCount; l++) {
+                inLinks[next[targetKeys[linkTargets[l]]]++] = l;
+            }
+
+            keySlots = new int[Math.max(16, Integer.highestOneBit(Math.max(1, keys.length) * 2) * 2)];
+            int mask = keySlots.length - 1;
+            for (int k = 0; k < keys.length; k++) {
+                int slot = hash(keys[k], 0, keys[k].length()) & mask;
+                while (keySlots[slot] != 0) slot = (slot + 1) & mask;
+                keySlots[slot] = k + 1;
+            }
+        }
+
+        /** Id of the key matching {@code text[from, to)} trimmed and case-folded, or -1. */
+        int keyId(CharSequence text, int from, int to) {
+            while (from < to && text.charAt(from) <= ' ') from++;
+            while (to > from && text.charAt(to - 1) <= ' ') to--;
+            int mask = keySlots.length - 1;
+            int slot = hash(text, from, to) & mask;
+            while (keySlots[slot] != 0) {
+                int k = keySlots[slot] - 1;
+                if (matches(keys[k], text, from, to)) return k;
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        int rowLength(int file) {
+            return file < fileCount ? outStart[file + 1] - outStart[file] : 0;
+        }
+
+        /** Incoming links of {@code key}, less those from files the overlay replaced. */
+        int incomingCount(int key, Overlay overlay) {
+            if (key < 0) return 0;
+            if (overlay.replacedLinks == 0) return inStart[key + 1] - inStart[key];
+            int count = 0;
+            for (int i = inStart[key]; i < inStart[key + 1]; i++) {
+                if (!overlay.isReplaced(sourceOf(inLinks[i]))) count++;
+            }
+            return count;
+        }
+
+        void visitIncoming(int key, Overlay overlay, FileRegistry files, BacklinkVisitor visitor) {
+            if (key < 0) return;
+            for (int i = inStart[key]; i < inStart[key + 1]; i++) {
+                int l = inLinks[i];
+                int source = sourceOf(l);
+                if (overlay.isReplaced(source)) continue;
+                // Null only if the grove was switched since this graph was published
+                Path path = files.path(source);
+                if (path != null) {
+                    visitor.visit(path, targets[linkTargets[l]], linkLines[l]);
+                }
+            }
+        }
+
+        /** The file whose row holds link {@code l}: the last {@code f} with {@code outStart[f] <= l}. */
+        int sourceOf(int l) {
+            int lo = 0;
+            int hi = fileCount - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (outStart[mid] <= l) lo = mid;
+                else hi = mid - 1;
+            }
+            return lo;
+        }
+
+        private static int hash(CharSequence text, int from, int to) {
+            int h = 0;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + Character.toLowerCase(text.charAt(i));
+            }
+            return h ^ (h >>> 16);
+        }
+
+        static boolean matches(String key, CharSequence text, int from, int to) {
+            if (key.length() != to - from) return false;
+            for (int i = 0; i < key.length(); i++) {
+                if (key.charAt(i) != Character.toLowerCase(text.charAt(from + i))) return false;
+            }
+            return true;
+        }
+    }
+
+    /** Links parsed from one file: target text and zero-based line, in file order. */
+    private static final class FileLinks {
+        String[] targets = new String[8];
+        int[] lines = new int[8];
+        int size;
+
+        void add(String target, int line) {
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, size * 2);
+                lines = Arrays.copyOf(lines, size * 2);
+            }
+            targets[size] = target;
+            lines[size] = line;
+            size++;
+        }
+    }
+
+    /**
+     * Files re-indexed since the graph was built. Their graph rows are hidden by the
+     * {@code replaced} bit set and their current links are listed here with target and key
+     * text, so a lookup matches them against the file name without any interned ids.
+     */
+    private static final class Overlay {
+        static final Overlay EMPTY = new Overlay(new long[0], 0, new int[0], new int[0], new String[0],
+                new String[0], 0);
+
+        final long[] replaced;
+        // Graph links hidden by replaced
+        final int replacedLinks;
+        final int[] sources;
+        final int[] lines;
+        final String[] targets;
+        final String[] keys;
+        final int size;
+
+        private Overlay(long[] replaced, int replacedLinks, int[] sources, int[] lines, String[] targets,
+                        String[] keys, int size) {
+            this.replaced = replaced;
+            this.replacedLinks = replacedLinks;
+            this.sources = sources;
+            this.lines = lines;
+            this.targets = targets;
+            this.keys = keys;
+            this.size = size;
+        }
+
+        boolean isReplaced(int file) {
+            int word = file >>> 6;
+            return word < replaced.length && (replaced[word] & (1L << file)) != 0;
+        }
+
+        /** A copy in which {@code file}'s links are {@code parsed}; {@code rowLength} is its graph row. */
+        Overlay with(int file, int rowLength, FileLinks parsed) {
+            long[] newReplaced = Arrays.copyOf(replaced, Math.max(replaced.length, (file >>> 6) + 1));
+            newReplaced[file >>> 6] |= 1L << file;
+            int newReplacedLinks = isReplaced(file) ? replacedLinks : replacedLinks + rowLength;
+
+            int capacity = size + parsed.size;
+            int[] newSources = new int[capacity];
+            int[] newLines = new int[capacity];
+            String[] newTargets = new String[capacity];
+            String[] newKeys = new String[capacity];
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (sources[i] == file) continue;
+                newSources[n] = sources[i];
+                newLines[n] = lines[i];
+                newTargets[n] = targets[i];
+                newKeys[n] = keys[i];
+                n++;
+            }
+            for (int i = 0; i < parsed.size; i++) {
+                newSources[n] = file;
+                newLines[n] = parsed.lines[i];
+                newTargets[n] = parsed.targets[i];
+                newKeys[n] = normalizeTarget(parsed.targets[i]);
+                n++;
+            }
+            return new Overlay(newReplaced, newReplacedLinks, newSources, newLines, newTargets, newKeys, n);
+        }
+
+        /** Whether link {@code i} names {@code filename}, with or without the extension at {@code dot}. */
+        private boolean names(int i, String filename, int dot) {
+            return Graph.matches(keys[i], filename, 0, filename.length())
+                    || (dot < filename.length() && Graph.matches(keys[i], filename, 0, dot));
+        }
+
+        int countMatching(String filename, int dot) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (names(i, filename, dot)) count++;
+            }
+            return count;
+        }
+
+        void visitMatching(String filename, int dot, FileRegistry files, BacklinkVisitor visitor) {
+            for (int i = 0; i < size; i++) {
+                if (!names(i, filename, dot)) continue;
+                Path path = files.path(sources[i]);
+                if (path != null) {
+                    visitor.visit(path, targets[i], lines[i]);
+                }
+            }
+        }
+    }
+
+    /** A graph and the overlay on top of it, published together. */
+    private record Snapshot(Graph graph, Overlay overlay) {
+        static final Snapshot EMPTY = new Snapshot(Graph.EMPTY, Overlay.EMPTY);
     }
 }
@@ -1,66 +1,158 @@
 package com.arbor.service;
 
 import com.arbor.model.CommandEntry;
+import com.arbor.util.FuzzyMatcher;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Commands shown in the palette. Each command's search text is case-folded and masked once at
+ * registration, so a keystroke only runs the fuzzy scorer over commands that can match.
+ */
 public class CommandRegistry {
-    private final List<CommandEntry> commands = new ArrayList<>();
+    // Boost for the most recently run command, shrinking by RECENCY_DECAY per newer run
+    private static final int RECENCY_BOOST = 40;
+    private static final int RECENCY_DECAY = 4;
+    // A match within the name beats one that needs the category
+    private static final int NAME_BONUS = 16;
+
+    public record Match(CommandEntry command, int[] namePositions) {
+    }
+
+    private record Scored(Match match, int score) {
+    }
+
+    /** A command with its precomputed {@code "category name"} search text. */
+    private static final class Indexed {
+        final CommandEntry command;
+        final String key;
+        final char[] text;
+        final char[] lower;
+        final int nameOffset;
+        final long mask;
+        final long nameMask;
+
+        Indexed(CommandEntry command) {
+            this.command = command;
+            this.key = command.category() + "/" + command.name();
+            this.text = (command.category() + " " + command.name()).toCharArray();
+            this.lower = FuzzyMatcher.toLowerCase(text);
+            this.nameOffset = command.category().length() + 1;
+            this.nameMask = FuzzyMatcher.charMask(text, nameOffset, text.length);
+            this.mask = nameMask | FuzzyMatcher.charMask(text, 0, nameOffset);
+        }
+    }
+
+    private final List<Indexed> commands = new ArrayList<>();
+    // Keyed by category/name so usage survives re-registration on grove switch
+    private final Map<String, Long> lastUsed = new HashMap<>();
+    private long useCounter;
+    private List<CommandEntry> sortedCache;
 
     public void register(CommandEntry command) {
-        commands.add(command);
+        commands.add(new Indexed(command));
+        sortedCache = null;
     }
 
     public void registerAll(List<CommandEntry> entries) {
-        commands.addAll(entries);
+        for (CommandEntry entry : entries) {
+            commands.add(new Indexed(entry));
+        }
+        sortedCache = null;
     }
 
     public void clear() {
         commands.clear();
+        sortedCache = null;
     }
 
     public List<CommandEntry> getAll() {
-        return commands.stream()
-                .sorted(Comparator.comparing(CommandEntry::category)
-                        .thenComparing(CommandEntry::name))
-                .toList();
+        if (sortedCache == null) {
+            sortedCache = commands.stream()
+                    .map(indexed -> indexed.command)
+                    .sorted(Comparator.comparing(CommandEntry::category)
+                            .thenComparing(CommandEntry::name))
+                    .toList();
+        }
+        return sortedCache;
+    }
+
+    /** Records that a command was run, so it ranks higher in later searches. */
+    public void recordUse(CommandEntry command) {
+        lastUsed.put(command.category() + "/" + command.name(), ++useCounter);
     }
 
     public List<CommandEntry> search(String query) {
-        if (query == null || query.isBlank()) {
-            return getAll();
+        return match(query).stream().map(Match::command).toList();
+    }
+
+    /**
+     * Fuzzy-matches {@code query} against each command's category and name, best first, with
+     * the matched character offsets within the name for highlighting. A blank query lists
+     * recently used commands first, then the rest in category order.
+     */
+    public List<Match> match(String query) {
+        char[][] q = FuzzyMatcher.prepareQuery(query == null ? "" : query);
+        if (q.length == 0) {
+            return recentFirst();
+        }
+        long queryMask = FuzzyMatcher.charMask(q);
+
+        List<Scored> scored = new ArrayList<>();
+        int[] positions = new int[FuzzyMatcher.length(q)];
+        for (Indexed indexed : commands) {
+            if ((indexed.mask & queryMask) != queryMask) continue;
+            int[] namePositions;
+            int score = (indexed.nameMask & queryMask) != queryMask ? FuzzyMatcher.NO_MATCH
+                    : FuzzyMatcher.score(q, indexed.lower, indexed.text, indexed.nameOffset,
+                            indexed.text.length, positions);
+            if (score != FuzzyMatcher.NO_MATCH) {
+                score += NAME_BONUS;
+                namePositions = shift(positions, 0, indexed.nameOffset);
+            } else {
+                score = FuzzyMatcher.score(q, indexed.lower, indexed.text, 0, indexed.text.length, positions);
+                if (score == FuzzyMatcher.NO_MATCH) continue;
+                // Only the part of the match that falls within the name is highlighted
+                int first = 0;
+                while (first < positions.length && positions[first] < indexed.nameOffset) first++;
+                namePositions = shift(positions, first, indexed.nameOffset);
+            }
+            scored.add(new Scored(new Match(indexed.command, namePositions), score + recencyBoost(indexed.key)));
+        }
+
+        scored.sort(Comparator.comparingInt(Scored::score).reversed()
+                .thenComparingInt(s -> s.match().command().name().length())
+                .thenComparing(s -> s.match().command().category())
+                .thenComparing(s -> s.match().command().name()));
+        return scored.stream().map(Scored::match).toList();
+    }
+
+    private List<Match> recentFirst() {
+        List<CommandEntry> all = getAll();
+        if (lastUsed.isEmpty()) {
+            return all.stream().map(command -> new Match(command, new int[0])).toList();
         }
+        List<CommandEntry> ordered = new ArrayList<>(all);
+        ordered.sort(Comparator.comparingLong(
+                (CommandEntry command) -> -lastUsed.getOrDefault(command.category() + "/" + command.name(), 0L)));
+        return ordered.stream().map(command -> new Match(command, new int[0])).toList();
+    }
 
-        String[] tokens = query.toLowerCase().strip().split("\\s+");
-
-        List<CommandEntry> matched = commands.stream()
-                .filter(cmd -> {
-                    String text = (cmd.category() + " " + cmd.name()).toLowerCase();
-                    for (String token : tokens) {
-                        if (!text.contains(token)) {
-                            return false;
-                        }
-                    }
-                    return true;
-                })
-                .toList();
-
-        String lowerQuery = query.toLowerCase().strip();
-
-        return matched.stream()
-                .sorted(Comparator.comparingInt((CommandEntry cmd) -> {
-                    String name = cmd.name().toLowerCase();
-                    if (name.startsWith(lowerQuery)) {
-                        return 0; // exact prefix match
-                    } else if (name.contains(lowerQuery)) {
-                        return 1; // contains full query
-                    } else {
-                        return 2; // token match
-                    }
-                }).thenComparing(CommandEntry::category)
-                  .thenComparing(CommandEntry::name))
-                .toList();
+    private int recencyBoost(String key) {
+        Long used = lastUsed.get(key);
+        if (used == null) return 0;
+        return (int) Math.max(0, RECENCY_BOOST - (useCounter - used) * RECENCY_DECAY);
+    }
+
+    private static int[] shift(int[] positions, int from, int offset) {
+        int[] shifted = new int[positions.length - from];
+        for (int i = 0; i < shifted.length; i++) {
+            shifted[i] = positions[from + i] - offset;
+        }
+        return shifted;
     }
 }
@@ -16,6 +16,8 @@ public class ConfigService {
     private static final Path CONFIG_FILE = CONFIG_DIR.resolve("config.json");
 
     private ArborConfig config;
+    private long savesRequested;
+    private long savesWritten;
 
     public ConfigService() {
         load();
@@ -41,12 +43,31 @@ public class ConfigService {
     }
 
     public void save() {
+        write(GsonFactory.gson().toJson(config), nextSave());
+    }
+
+    /**
+     * Serializes the config on the calling thread, so the snapshot is consistent, and writes it
+     * on a virtual thread. A write that lands after a newer save is dropped.
+     */
+    public void saveInBackground() {
+        String json = GsonFactory.gson().toJson(config);
+        long sequence = nextSave();
+        Thread.startVirtualThread(() -> write(json, sequence));
+    }
+
+    private synchronized long nextSave() {
+        return ++savesRequested;
+    }
+
+    private synchronized void write(String json, long sequence) {
+        if (sequence < savesWritten) return;
         try {
             if (!Files.exists(CONFIG_DIR)) {
                 Files.createDirectories(CONFIG_DIR);
             }
-            String json = GsonFactory.gson().toJson(config);
             Files.writeString(CONFIG_FILE, json);
+            savesWritten = sequence;
             log.debug("Saved app config to {}", CONFIG_FILE);
         } catch (IOException e) {
             log.error("Failed to save config", e);
@@ -0,0 +1,546 @@
+package com.arbor.service;
+
+import com.arbor.model.MatchMode;
+import com.arbor.util.ArborEvents;
+import com.arbor.util.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trigram index over grove file contents, used to narrow content searches to the files that
+ * could possibly match before any of them is read. Trigrams are case-folded, so the candidate
+ * set is a superset of the real matches for both case-sensitive and insensitive queries.
+ */
+public class ContentIndexService {
+    private static final Logger log = LoggerFactory.getLogger(ContentIndexService.class);
+    private static final MetricsRegistry.Timer SCAN_TIMER = MetricsRegistry.global().timer("scan.content");
+
+    // Bigger files are not indexed and are always treated as candidates
+    private static final int MAX_INDEXED_CHARS = 4 * 1024 * 1024;
+    private static final long[] UNINDEXED = new long[0];
+
+    private final FileRegistry files;
+    private Path grovePath;
+
+    // Guarded by this; bits and lengths are indexed by FileRegistry id
+    private Map<Long, BitSet> postings = new HashMap<>();
+    private BitSet indexed = new BitSet();
+    private BitSet unindexed = new BitSet();
+    private int[] lengths = new int[0];
+    private long totalLength;
+    private int documentCount;
+    private boolean ready;
+
+    /** Distinct trigrams (or {@link #UNINDEXED}) and word count of one file. */
+    private record FileEntry(long[] trigrams, int length) {
+    }
+
+    public ContentIndexService() {
+        this(new FileRegistry());
+    }
+
+    public ContentIndexService(FileRegistry files) {
+        this.files = files;
+    }
+
+    public void setGrovePath(Path grovePath) {
+        this.grovePath = grovePath;
+        files.setGrovePath(grovePath);
+        synchronized (this) {
+            // Ids from the previous grove mean nothing now
+            postings = new HashMap<>();
+            indexed = new BitSet();
+            unindexed = new BitSet();
+            lengths = new int[0];
+            totalLength = 0;
+            documentCount = 0;
+            ready = false;
+        }
+    }
+
+    public void fullScan() {
+        if (grovePath == null) return;
+        long start = System.nanoTime();
+        ArborEvents.GroveScan event = new ArborEvents.GroveScan();
+        event.begin();
+        Map<Long, BitSet> newPostings = new HashMap<>();
+        BitSet newIndexed = new BitSet();
+        BitSet newUnindexed = new BitSet();
+        int[][] newLengths = {new int[256]};
+        long[] newTotalLength = {0};
+
+        try {
+            Files.walkFileTree(grovePath, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    String name = dir.getFileName().toString();
+                    if (name.equals(".arbor") || name.startsWith(".")) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!attrs.isRegularFile() || file.getFileName().toString().startsWith(".")) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    FileEntry entry = readEntry(file);
+                    if (entry == null) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    int id = files.idOf(file);
+                    newIndexed.set(id);
+                    if (id >= newLengths[0].length) {
+                        newLengths[0] = Arrays.copyOf(newLengths[0], Math.max(id + 1, newLengths[0].length * 2));
+                    }
+                    newLengths[0][id] = entry.length();
+                    newTotalLength[0] += entry.length();
+                    if (entry.trigrams() == UNINDEXED) {
+                        newUnindexed.set(id);
+                    } else {
+                        for (long key : entry.trigrams()) {
+                            newPostings.computeIfAbsent(key, k -> new BitSet()).set(id);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.error("Failed to build content index", e);
+            return;
+        }
+
+        synchronized (this) {
+            postings = newPostings;
+            indexed = newIndexed;
+            unindexed = newUnindexed;
+            lengths = newLengths[0];
+            totalLength = newTotalLength[0];
+            documentCount = newIndexed.cardinality();
+            ready = true;
+        }
+        SCAN_TIMER.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.index = "content";
+            event.grove = String.valueOf(grovePath);
+            event.entries = newIndexed.cardinality();
+            event.commit();
+        }
+        log.debug("Indexed {} files ({} trigrams) in {} ms", newIndexed.cardinality(), newPostings.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /** Re-indexes one file after it was saved, created or deleted. */
+    public void rescanFile(Path file) {
+        FileEntry entry = Files.isRegularFile(file) ? readEntry(file) : null;
+
+        synchronized (this) {
+            int id = entry != null ? files.idOf(file) : files.find(file);
+            boolean existing = id >= 0 && indexed.get(id);
+            if (existing) {
+                Iterator<BitSet> it = postings.values().iterator();
+                while (it.hasNext()) {
+                    BitSet posting = it.next();
+                    posting.clear(id);
+                    if (posting.isEmpty()) it.remove();
+                }
+                unindexed.clear(id);
+                totalLength -= lengths[id];
+                lengths[id] = 0;
+            }
+            if (entry == null) {
+                if (existing) {
+                    indexed.clear(id);
+                    documentCount--;
+                }
+                return;
+            }
+            if (!existing) {
+                indexed.set(id);
+                documentCount++;
+                if (id >= lengths.length) {
+                    lengths = Arrays.copyOf(lengths, Math.max(256, Math.max(id + 1, lengths.length * 2)));
+                }
+            }
+            lengths[id] = entry.length();
+            totalLength += entry.length();
+            if (entry.trigrams() == UNINDEXED) {
+                unindexed.set(id);
+            } else {
+                for (long key : entry.trigrams()) {
+                    postings.computeIfAbsent(key, k -> new BitSet()).set(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Files that may contain a match for {@code query}, or {@code null} when the index cannot
+     * narrow the search (not built yet, query too short, or a regex with no required literal).
+     */
+    public Set<Path> candidates(String query, MatchMode mode) {
+        List<List<String>> branches = mode == MatchMode.REGEX
+                ? requiredLiterals(query)
+                : List.of(List.of(query));
+        if (branches == null) return null;
+
+        synchronized (this) {
+            if (!ready) return null;
+            BitSet result = new BitSet();
+            for (List<String> branch : branches) {
+                BitSet branchFiles = filesContainingAll(branch);
+                if (branchFiles == null) return null;
+                result.or(branchFiles);
+            }
+            result.or(unindexed);
+
+            Set<Path> paths = new HashSet<>();
+            for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+                Path path = files.path(id);
+                if (path != null) paths.add(path);
+            }
+            return paths;
+        }
+    }
+
+    // Caller holds the lock. Returns null if the literals yield no trigram to filter on.
+    private BitSet filesContainingAll(List<String> literals) {
+        BitSet files = null;
+        for (String literal : literals) {
+            for (long key : trigrams(literal)) {
+                BitSet posting = postings.get(key);
+                if (posting == null) return new BitSet();
+                if (files == null) {
+                    files = (BitSet) posting.clone();
+                } else {
+                    files.and(posting);
+                }
+                if (files.isEmpty()) return files;
+            }
+        }
+        return files;
+    }
+
+    /** Number of indexed files, or 0 while the index is being built. */
+    public synchronized int getDocumentCount() {
+        return ready ? documentCount : 0;
+    }
+
+    /** Mean file length in words, for BM25 length normalization. */
+    public synchronized double getAverageLength() {
+        return documentCount == 0 ? 0 : (double) totalLength / documentCount;
+    }
+
+    /** Word count of a file as last indexed, or -1 if it is not in the index. */
+    public synchronized int getLength(Path file) {
+        int id = files.find(file);
+        return id < 0 || !indexed.get(id) ? -1 : lengths[id];
+    }
+
+    /** Trigrams and length of the file, or null if unreadable. */
+    private static FileEntry readEntry(Path file) {
+        try {
+            long size = Files.size(file);
+            // Rough words-per-byte estimate for files too big to index
+            if (size > MAX_INDEXED_CHARS * 4L) return new FileEntry(UNINDEXED, (int) Math.min(Integer.MAX_VALUE, size / 6));
+            String content = Files.readString(file);
+            if (content.length() > MAX_INDEXED_CHARS) return new FileEntry(UNINDEXED, content.length() / 6);
+            return new FileEntry(trigrams(content), countWords(content));
+        } catch (IOException e) {
+            // Binary or unreadable; content search can't read it either
+            return null;
+        }
+    }
+
+    static int countWords(CharSequence text) {
+        int words = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            boolean letter = Character.isLetterOrDigit(text.charAt(i));
+            if (letter && !inWord) words++;
+            inWord = letter;
+        }
+        return words;
+    }
+
+    static long[] trigrams(String text) {
+        if (text.length() < 3) return new long[0];
+        long[] keys = new long[text.length() - 2];
+        long a = Character.toLowerCase(text.charAt(0));
+        long b = Character.toLowerCase(text.charAt(1));
+        for (int i = 2; i < text.length(); i++) {
+            long c = Character.toLowerCase(text.charAt(i));
+            keys[i - 2] = (a << 32) | (b << 16) | c;
+            a = b;
+            b = c;
+        }
+        Arrays.sort(keys);
+        int unique = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[unique++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, unique);
+    }
+
+    /**
+     * Conservatively extracts literal strings every match of {@code regex} must contain, as
+     * alternatives (outer list, any may match) of required substrings (inner list, all must
+     * appear). Only top-level literal runs are used; groups, classes and quantified atoms just
+     * end the current run. Returns {@code null} for syntax this does not understand, so the
+     * caller falls back to scanning every file.
+     */
+    static List<List<String>> requiredLiterals(String regex) {
+        List<List<String>> branches = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        // Whether the last atom parsed is the final char of run, so a quantifier applies to it
+        boolean lastInRun = false;
+        int n = regex.length();
+        int i = 0;
+
+        while (i < n) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= n) return null;
+                char e = regex.charAt(i + 1);
+                if (e == 'Q') {
+                    int end = regex.indexOf("\\E", i + 2);
+                    String quoted = end < 0 ? regex.substring(i + 2) : regex.substring(i + 2, end);
+                    run.append(quoted);
+                    lastInRun = !quoted.isEmpty();
+                    i = end < 0 ? n : end + 2;
+                    continue;
+                }
+                char literal = escapedLiteral(e);
+                if (literal != 0) {
+                    run.append(literal);
+                    lastInRun = true;
+                    i += 2;
+                    continue;
+                }
+                int next = skipEscape(regex, i);
+                if (next < 0) return null;
+                flush(run, current);
+                lastInRun = false;
+                i = next;
+                continue;
+            }
+            switch (c) {
+                case '[' -> {
+                    int next = skipClass(regex, i);
+                    if (next < 0) return null;
+                    flush(run, current);
+                    lastInRun = false;
+                    i = next;
+                }
+                case '(' -> {
+                    if (hasCommentsFlag(regex, i)) return null;
+                    int next = skipGroup(regex, i);
+                    if (next < 0) return null;
+                    flush(run, current);
+                    lastInRun = false;
+                    i = next;
+                }
+                case ')' -> {
+                    return null;
+                }
+                case '|' -> {
+                    flush(run, current);
+                    branches.add(current);
+                    current = new ArrayList<>();
+                    lastInRun = false;
+                    i++;
+                }
+                case '.', '^', '$' -> {
+                    flush(run, current);
+                    lastInRun = false;
+                    i++;
+                }
+                case '*', '?', '+', '{' -> {
+                    boolean optional = c != '+';
+                    int next = i + 1;
+                    if (c == '{') {
+                        int close = regex.indexOf('}', i);
+                        if (close < 0) return null;
+                        int digits = i + 1;
+                        while (digits < close && Character.isDigit(regex.charAt(digits))) digits++;
+                        if (digits == i + 1) return null;
+                        optional = Integer.parseInt(regex.substring(i + 1, digits)) == 0;
+                        next = close + 1;
+                    }
+                    if (optional && lastInRun) {
+                        run.setLength(run.length() - 1);
+                    }
+                    flush(run, current);
+                    lastInRun = false;
+                    // Lazy and possessive suffixes
+                    if (next < n && (regex.charAt(next) == '?' || regex.charAt(next) == '+')) next++;
+                    i = next;
+                }
+                default -> {
+                    run.append(c);
+                    lastInRun = true;
+                    i++;
+                }
+            }
+        }
+        flush(run, current);
+        branches.add(current);
+        return branches;
+    }
+
+    private static void flush(StringBuilder run, List<String> literals) {
+        if (run.length() >= 3) {
+            literals.add(run.toString());
+        }
+        run.setLength(0);
+    }
+
+    /** The char an escape stands for, or 0 if it is not a plain single-char literal. */
+    private static char escapedLiteral(char e) {
+        return switch (e) {
+            case 't' -> '\t';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 'f' -> '\f';
+            case 'a' -> '\u0007';
+            case 'e' -> '\u001B';
+            default -> Character.isLetterOrDigit(e) ? 0 : e;
+        };
+    }
+
+    /** Index just past a non-literal escape starting at {@code i}, or -1 if not understood. */
+    private static int skipEscape(String regex, int i) {
+        int n = regex.length();
+        char e = regex.charAt(i + 1);
+        if ("dDsSwWbBAzZGhHvVRX".indexOf(e) >= 0) {
+            if (e == 'b' && i + 2 < n && regex.charAt(i + 2) == '{') return -1;
+            return i + 2;
+        }
+        switch (e) {
+            case 'p', 'P', 'x', 'N' -> {
+                if (i + 2 < n && regex.charAt(i + 2) == '{') {
+                    int close = regex.indexOf('}', i);
+                    return close < 0 ? -1 : close + 1;
+                }
+                return e == 'x' ? i + 4 : e == 'N' ? -1 : i + 3;
+            }
+            case 'u' -> {
+                return i + 6;
+            }
+            case 'c' -> {
+                return i + 3;
+            }
+            case 'k' -> {
+                int close = regex.indexOf('>', i);
+                return close < 0 ? -1 : close + 1;
+            }
+            case '0' -> {
+                int j = i + 2;
+                while (j < n && j < i + 5 && regex.charAt(j) >= '0' && regex.charAt(j) <= '7') j++;
+                return j;
+            }
+            default -> {
+                if (e >= '1' && e <= '9') {
+                    int j = i + 2;
+                    while (j < n && Character.isDigit(regex.charAt(j))) j++;
+                    return j;
+                }
+                return -1;
+            }
+        }
+    }
+
+    private static int skipClass(String regex, int i) {
+        int n = regex.length();
+        int j = i + 1;
+        if (j < n && regex.charAt(j) == '^') j++;
+        // A leading ']' has special meaning in some dialects; don't guess
+        if (j < n && regex.charAt(j) == ']') return -1;
+        int depth = 1;
+        while (j < n) {
+            char c = regex.charAt(j);
+            if (c == '\\') {
+                if (j + 1 < n && regex.charAt(j + 1) == 'Q') return -1;
+                j += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+                if (depth == 0) return j + 1;
+            }
+            j++;
+        }
+        return -1;
+    }
+
+    private static int skipGroup(String regex, int i) {
+        int n = regex.length();
+        int depth = 0;
+        int j = i;
+        while (j < n) {
+            char c = regex.charAt(j);
+            if (c == '\\') {
+                if (j + 1 < n && regex.charAt(j + 1) == 'Q') {
+                    int end = regex.indexOf("\\E", j + 2);
+                    if (end < 0) return -1;
+                    j = end + 2;
+                } else {
+                    j += 2;
+                }
+                continue;
+            }
+            if (c == '[') {
+                j = skipClass(regex, j);
+                if (j < 0) return -1;
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) return j + 1;
+            }
+            j++;
+        }
+        return -1;
+    }
+
+    /** Whether the group at {@code i} sets the COMMENTS flag, which changes how later text parses. */
+    private static boolean hasCommentsFlag(String regex, int i) {
+        if (!regex.startsWith("(?", i)) return false;
+        int j = i + 2;
+        while (j < regex.length() && (Character.isLetter(regex.charAt(j)) || regex.charAt(j) == '-')) {
+            if (regex.charAt(j) == 'x') return true;
+            j++;
+        }
+        return false;
+    }
+}
@@ -1,8 +1,6 @@
 package com.arbor.service;
 
-import javafx.print.PrinterJob;
-import javafx.scene.web.WebView;
-import javafx.stage.Stage;
+import com.arbor.util.ArborEvents;
 import org.commonmark.parser.Parser;
 import org.commonmark.renderer.html.HtmlRenderer;
 import org.slf4j.Logger;
@@ -13,6 +11,8 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ExportService {
     private static final Logger log = LoggerFactory.getLogger(ExportService.class);
@@ -20,8 +20,11 @@ public class ExportService {
     private static final Parser MD_PARSER = Parser.builder().build();
     private static final HtmlRenderer MD_RENDERER = HtmlRenderer.builder().build();
 
+    // Stylesheet text by resource name; read from the classpath once
+    private final Map<String, String> cssCache = new ConcurrentHashMap<>();
+
     public String toStyledHtml(String markdownContent, boolean darkMode) {
-        String html = MD_RENDERER.render(MD_PARSER.parse(markdownContent));
+        String html = renderMarkdown(markdownContent);
         String css = loadCss(darkMode);
 
         return """
@@ -40,27 +43,64 @@ public class ExportService {
                 """.formatted(css, html);
     }
 
+    /** Renders markdown to an HTML fragment. Safe to call from several threads at once. */
+    public String renderMarkdown(String markdownContent) {
+        ArborEvents.MarkdownRender event = new ArborEvents.MarkdownRender();
+        event.begin();
+        String html = MD_RENDERER.render(MD_PARSER.parse(markdownContent));
+        event.end();
+        if (event.shouldCommit()) {
+            event.target = "export";
+            event.markdownLength = markdownContent.length();
+            event.htmlLength = html.length();
+            event.commit();
+        }
+        return html;
+    }
+
+    /** A standalone page that links to a shared stylesheet instead of inlining it. */
+    public String toLinkedHtml(String title, String bodyHtml, String cssHref) {
+        return """
+                <!DOCTYPE html>
+                <html>
+                <head>
+                    <meta charset="UTF-8">
+                    <title>%s</title>
+                    <link rel="stylesheet" href="%s">
+                </head>
+                <body>
+                %s
+                </body>
+                </html>
+                """.formatted(escapeHtml(title), escapeHtml(cssHref), bodyHtml);
+    }
+
+    public static String escapeHtml(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> sb.append("&amp;");
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '"' -> sb.append("&quot;");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
     public void exportHtml(String html, Path outputPath) throws IOException {
         Files.writeString(outputPath, html);
         log.debug("Exported HTML to: {}", outputPath);
     }
 
-    public void exportPdf(String html, Stage owner) {
-        WebView webView = new WebView();
-        webView.getEngine().loadContent(html, "text/html");
-        webView.getEngine().getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
-            if (newState == javafx.concurrent.Worker.State.SUCCEEDED) {
-                PrinterJob job = PrinterJob.createPrinterJob();
-                if (job != null && job.showPrintDialog(owner)) {
-                    webView.getEngine().print(job);
-                    job.endJob();
-                }
-            }
-        });
+    public String loadCss(boolean darkMode) {
+        String cssFile = darkMode ? "/css/markdown-preview-dark.css" : "/css/markdown-preview.css";
+        return cssCache.computeIfAbsent(cssFile, this::readCss);
     }
 
-    private String loadCss(boolean darkMode) {
-        String cssFile = darkMode ? "/css/markdown-preview-dark.css" : "/css/markdown-preview.css";
+    private String readCss(String cssFile) {
         try (InputStream is = getClass().getResourceAsStream(cssFile)) {
             if (is != null) {
                 return new String(is.readAllBytes(), StandardCharsets.UTF_8);
@@ -3,7 +3,9 @@ package com.arbor.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -15,11 +17,74 @@ public class FileOperationService {
         return Files.readString(path);
     }
 
+    /**
+     * Reads a UTF-8 text file in chunks of at most {@code chunkSize} characters, handing each
+     * chunk and the fraction read so far to {@code onChunk}. Surrogate pairs are never split
+     * across chunks. Reading stops early if the consumer returns {@code false}.
+     */
+    public void readFileChunked(Path path, int chunkSize, ChunkConsumer onChunk) throws IOException {
+        long size = Math.max(1, Files.size(path));
+        long charsRead = 0;
+        char[] buffer = new char[chunkSize + 1];
+        int carry = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            int n;
+            while ((n = reader.read(buffer, carry, chunkSize - carry)) > 0 || carry > 0) {
+                int length = carry + Math.max(n, 0);
+                carry = 0;
+                if (n > 0 && Character.isHighSurrogate(buffer[length - 1])) {
+                    carry = 1;
+                    length--;
+                }
+                charsRead += length;
+                double progress = Math.min(1.0, (double) charsRead / size);
+                if (length > 0 && !onChunk.accept(new String(buffer, 0, length), progress)) {
+                    return;
+                }
+                if (carry > 0) {
+                    buffer[0] = buffer[length];
+                } else if (n <= 0) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        /** @return {@code false} to stop reading */
+        boolean accept(String chunk, double progress);
+    }
+
     public void writeFile(Path path, String content) throws IOException {
         Files.writeString(path, content);
         log.debug("Wrote file: {}", path);
     }
 
+    /**
+     * Writes through a hidden sibling temp file and an atomic rename, so a crash or a
+     * concurrent reader never sees a half-written file.
+     */
+    public void writeFileAtomic(Path path, String content) throws IOException {
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "." + path.getFileName() + ".", ".tmp");
+        try {
+            Files.writeString(temp, content);
+            if (Files.exists(path)) {
+                try {
+                    // Temp files are created owner-only; keep the note's original permissions
+                    Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(path));
+                } catch (UnsupportedOperationException ignored) {
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        log.debug("Wrote file atomically: {}", path);
+    }
+
     public Path createFileWithContent(Path parent, String fileName, String content) throws IOException {
         Path newFile = parent.resolve(fileName);
         Files.writeString(newFile, content);
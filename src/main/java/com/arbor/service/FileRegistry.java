@@ -0,0 +1,124 @@
+package com.arbor.service;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grove-scoped int ids for files, shared by the indexes so they can store and compare ints
+ * instead of {@link Path}s. A file gets its id the first time any index sees it and keeps it
+ * when it is deleted and recreated; a rename moves the id to the new path, so the renamed
+ * file's index entries follow it until it is rescanned. Each id's path and grove-relative
+ * path are held once, and every index hands out the same instances.
+ *
+ * <p>Lookups never lock: ids are found in a concurrent map and paths read from arrays that
+ * are only appended to, or replaced whole on a rename.
+ */
+public class FileRegistry {
+
+    private Path grovePath;
+    private final Map<Path, Integer> ids = new ConcurrentHashMap<>();
+    // Slots below size are never written again except by replacing the whole array
+    private volatile Path[] paths = new Path[0];
+    private volatile String[] relativePaths = new String[0];
+    private volatile int size;
+
+    /** Switches to another grove, dropping every id; a no-op for the current grove. */
+    public synchronized void setGrovePath(Path grovePath) {
+        if (grovePath != null && grovePath.equals(this.grovePath)) return;
+        this.grovePath = grovePath;
+        size = 0;
+        ids.clear();
+        paths = new Path[0];
+        relativePaths = new String[0];
+    }
+
+    /** The id of {@code file}, assigning the next one if it has none. */
+    public int idOf(Path file) {
+        Integer id = ids.get(file);
+        return id != null ? id : register(file);
+    }
+
+    private synchronized int register(Path file) {
+        Integer existing = ids.get(file);
+        if (existing != null) return existing;
+        int id = size;
+        Path[] p = paths;
+        String[] r = relativePaths;
+        if (id == p.length) {
+            p = Arrays.copyOf(p, Math.max(256, id * 2));
+            r = Arrays.copyOf(r, p.length);
+        }
+        p[id] = file;
+        r[id] = relativize(file);
+        paths = p;
+        relativePaths = r;
+        size = id + 1;
+        ids.put(file, id);
+        return id;
+    }
+
+    /** The id of {@code file}, or -1 if no index has seen it. */
+    public int find(Path file) {
+        Integer id = ids.get(file);
+        return id != null ? id : -1;
+    }
+
+    /** The current path of {@code id}, or null for an id this registry never issued. */
+    public Path path(int id) {
+        // Read size first: paths is published before it, so the array is at least that long
+        // unless a grove switch emptied both in between
+        int n = size;
+        Path[] p = paths;
+        return id >= 0 && id < n && id < p.length ? p[id] : null;
+    }
+
+    /** The path of {@code id} relative to the grove, with the platform's separators. */
+    public String relativePath(int id) {
+        int n = size;
+        String[] r = relativePaths;
+        return id >= 0 && id < n && id < r.length ? r[id] : null;
+    }
+
+    /** Number of ids issued; every id is below this. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Moves the ids of {@code from}, and of every file under it if it is a directory, to the
+     * matching paths under {@code to}. Returns whether any id moved; nothing changes if one
+     * of those paths already has an id, since merging two files' index entries needs a rescan.
+     */
+    public synchronized boolean rename(Path from, Path to) {
+        Path[] p = paths.clone();
+        String[] r = relativePaths.clone();
+        int moved = 0;
+        for (int id = 0; id < size; id++) {
+            if (p[id].startsWith(from)) {
+                Path target = to.resolve(from.relativize(p[id]));
+                if (ids.containsKey(target)) return false;
+                p[id] = target;
+                r[id] = relativize(target);
+                moved++;
+            }
+        }
+        if (moved == 0) return false;
+        Path[] old = paths;
+        paths = p;
+        relativePaths = r;
+        for (int id = 0; id < size; id++) {
+            if (p[id] != old[id]) {
+                ids.remove(old[id]);
+                ids.put(p[id], id);
+            }
+        }
+        return true;
+    }
+
+    private String relativize(Path file) {
+        Path root = grovePath;
+        return root != null && file.startsWith(root) ? root.relativize(file).toString() : file.toString();
+    }
+}
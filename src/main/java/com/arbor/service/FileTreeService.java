@@ -1,67 +1,268 @@
 package com.arbor.service;
 
+import com.arbor.model.FileChange;
+import javafx.application.Platform;
 import javafx.scene.control.TreeItem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Builds the grove file tree lazily. A directory is listed only when first expanded, on a
+ * background thread, and its children are attached to the tree in batches so expanding a huge
+ * folder never blocks the FX thread. Later file-system changes are applied to the affected
+ * items only, so the tree is never rebuilt and keeps its expansion state.
+ */
 public class FileTreeService {
     private static final Logger log = LoggerFactory.getLogger(FileTreeService.class);
     private static final String ARBOR_DIR = ".arbor";
+    // Children attached per FX pulse when a listing arrives
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    private static final Comparator<PathItem> CHILD_ORDER = Comparator
+            .comparing((PathItem item) -> !item.isDirectory())
+            .thenComparing(item -> item.sortKey);
+
+    /** Tree node for a file or directory; directories know whether they have been listed. */
+    public static class PathItem extends TreeItem<Path> {
+        private final boolean directory;
+        private final String sortKey;
+        private boolean loaded;
+        private boolean listing;
+        private long loadGeneration;
+
+        PathItem(Path path, boolean directory) {
+            super(path);
+            this.directory = directory;
+            this.sortKey = sortKey(path);
+            if (directory) {
+                // Shows the expand arrow now and the "loading" row while the listing runs
+                getChildren().add(new LoadingItem());
+            }
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+    }
+
+    private static String sortKey(Path path) {
+        return path.getFileName() == null ? "" : path.getFileName().toString().toLowerCase();
+    }
+
+    /** Placeholder child shown until a directory's listing arrives. */
+    public static final class LoadingItem extends TreeItem<Path> {
+    }
 
     public TreeItem<Path> buildTree(Path rootPath) {
-        TreeItem<Path> root = new TreeItem<>(rootPath);
+        PathItem root = new PathItem(rootPath, true);
+        // Expansion events bubble up to the root, so one handler serves the whole tree
+        root.addEventHandler(TreeItem.<Path>branchExpandedEvent(), event -> {
+            if (event.getTreeItem() instanceof PathItem item && item.directory && !item.loaded) {
+                loadChildren(item);
+            }
+        });
         root.setExpanded(true);
-        populateChildren(root);
         return root;
     }
 
+    /** Re-lists a directory in the background, keeping its expanded subdirectories open. */
     public void populateChildren(TreeItem<Path> parent) {
-        parent.getChildren().clear();
-        Path dir = parent.getValue();
-        if (!Files.isDirectory(dir)) {
-            return;
+        if (parent instanceof PathItem item && item.directory) {
+            loadChildren(item);
         }
+    }
 
-        List<TreeItem<Path>> dirs = new ArrayList<>();
-        List<TreeItem<Path>> files = new ArrayList<>();
+    private void loadChildren(PathItem parent) {
+        long generation = ++parent.loadGeneration;
+        parent.loaded = true;
+        parent.listing = true;
+        Set<Path> expanded = new HashSet<>();
+        for (TreeItem<Path> child : parent.getChildren()) {
+            if (child.isExpanded() && child.getValue() != null) {
+                expanded.add(child.getValue());
+            }
+        }
+        Path dir = parent.getValue();
 
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
-            for (Path entry : stream) {
-                String name = entry.getFileName().toString();
-                if (name.equals(ARBOR_DIR) || name.startsWith(".")) {
-                    continue;
+        Thread.startVirtualThread(() -> {
+            List<PathItem> children = listChildren(dir);
+            children.sort(CHILD_ORDER);
+            Platform.runLater(() -> insertBatch(parent, generation, children, 0, expanded));
+        });
+    }
+
+    private void insertBatch(PathItem parent, long generation, List<PathItem> children, int from,
+                             Set<Path> expanded) {
+        // A newer listing of the same directory supersedes this one
+        if (generation != parent.loadGeneration) return;
+        int to = Math.min(from + INSERT_BATCH_SIZE, children.size());
+        List<PathItem> batch = children.subList(from, to);
+        if (from == 0) {
+            parent.getChildren().setAll(batch);
+        } else {
+            parent.getChildren().addAll(batch);
+        }
+        for (PathItem child : batch) {
+            if (expanded.contains(child.getValue())) {
+                child.setExpanded(true);
+            }
+        }
+        if (to < children.size()) {
+            Platform.runLater(() -> insertBatch(parent, generation, children, to, expanded));
+        } else {
+            parent.listing = false;
+        }
+    }
+
+    /**
+     * Applies file-system changes to the tree as minimal inserts and removals. Directories that
+     * were never listed are left alone; ones still being listed are listed again, since the
+     * listing in flight may predate the change. Must run on the FX thread.
+     */
+    public void applyChanges(TreeItem<Path> root, List<FileChange> changes) {
+        if (!(root instanceof PathItem rootItem)) return;
+        Set<PathItem> relist = new LinkedHashSet<>();
+        for (FileChange change : changes) {
+            switch (change.kind()) {
+                case CREATED -> insert(rootItem, change.path(), change.directory(), relist);
+                case DELETED -> remove(rootItem, change.path(), change.directory(), relist);
+                case RENAMED -> {
+                    PathItem removed = remove(rootItem, change.path(), change.directory(), relist);
+                    PathItem added = insert(rootItem, change.target(), change.directory(), relist);
+                    if (added != null && removed != null && removed.isExpanded()) {
+                        added.setExpanded(true);
+                    }
+                }
+                case OVERFLOW -> {
+                    PathItem dir = find(rootItem, change.path());
+                    if (dir != null && dir.loaded) relist.add(dir);
                 }
-                TreeItem<Path> item = new TreeItem<>(entry);
-                if (Files.isDirectory(entry)) {
-                    // Add a dummy child so the expand arrow appears
-                    item.getChildren().add(new TreeItem<>());
-                    item.expandedProperty().addListener((obs, wasExpanded, isExpanded) -> {
-                        if (isExpanded && item.getChildren().size() == 1
-                                && item.getChildren().getFirst().getValue() == null) {
-                            populateChildren(item);
-                        }
-                    });
-                    dirs.add(item);
-                } else {
-                    files.add(item);
+                case MODIFIED -> {
+                    // Contents only; the tree shows nothing that depends on them
                 }
             }
-        } catch (IOException e) {
-            log.error("Failed to list directory: {}", dir, e);
         }
+        relist.forEach(this::loadChildren);
+    }
+
+    private PathItem insert(PathItem root, Path path, boolean directory, Set<PathItem> relist) {
+        PathItem parent = listedParent(root, path, relist);
+        if (parent == null || findChild(parent, path, directory) >= 0) return null;
+        PathItem item = new PathItem(path, directory);
+        parent.getChildren().add(insertionPoint(parent, item), item);
+        return item;
+    }
+
+    private PathItem remove(PathItem root, Path path, boolean directory, Set<PathItem> relist) {
+        PathItem parent = listedParent(root, path, relist);
+        if (parent == null) return null;
+        // The watcher may not know a deleted path was a directory; try both
+        int index = findChild(parent, path, directory);
+        if (index < 0) index = findChild(parent, path, !directory);
+        return index < 0 ? null : (PathItem) parent.getChildren().remove(index);
+    }
+
+    /** The parent item of {@code path} if its children are in the tree and settled, else null. */
+    private PathItem listedParent(PathItem root, Path path, Set<PathItem> relist) {
+        Path parentPath = path.getParent();
+        PathItem parent = parentPath == null ? null : find(root, parentPath);
+        if (parent == null || !parent.loaded) return null;
+        if (parent.listing) {
+            relist.add(parent);
+            return null;
+        }
+        return parent;
+    }
 
-        dirs.sort(Comparator.comparing(i -> i.getValue().getFileName().toString().toLowerCase()));
-        files.sort(Comparator.comparing(i -> i.getValue().getFileName().toString().toLowerCase()));
+    /** Walks down from the root through listed directories to {@code path}. */
+    private PathItem find(PathItem root, Path path) {
+        Path rootPath = root.getValue();
+        if (!path.startsWith(rootPath)) return null;
+        PathItem current = root;
+        for (Path name : rootPath.relativize(path)) {
+            if (name.toString().isEmpty()) continue;
+            if (!current.loaded || current.listing) return null;
+            int index = findChild(current, current.getValue().resolve(name), true);
+            if (index < 0) return null;
+            current = (PathItem) current.getChildren().get(index);
+        }
+        return current;
+    }
 
-        parent.getChildren().addAll(dirs);
-        parent.getChildren().addAll(files);
+    /** Index of the child for {@code path}, found by binary search on the sort order, or -1. */
+    private static int findChild(PathItem parent, Path path, boolean directory) {
+        String key = sortKey(path);
+        List<TreeItem<Path>> children = parent.getChildren();
+        int i = lowerBound(children, directory, key);
+        // Names that differ only in case share a sort key
+        for (; i < children.size(); i++) {
+            if (!(children.get(i) instanceof PathItem child)) break;
+            if (child.directory != directory || !child.sortKey.equals(key)) break;
+            if (child.getValue().equals(path)) return i;
+        }
+        return -1;
+    }
+
+    private static int insertionPoint(PathItem parent, PathItem item) {
+        return lowerBound(parent.getChildren(), item.directory, item.sortKey);
+    }
+
+    private static int lowerBound(List<TreeItem<Path>> children, boolean directory, String sortKey) {
+        int lo = 0;
+        int hi = children.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (!(children.get(mid) instanceof PathItem child)) return 0;
+            int cmp = child.directory != directory ? (child.directory ? -1 : 1) : child.sortKey.compareTo(sortKey);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Lists one directory level, reading each entry's attributes once. Links are followed so a
+     * symlinked folder lists as a folder; at depth 1 nothing is entered, so cycles can't loop.
+     */
+    private List<PathItem> listChildren(Path dir) {
+        List<PathItem> children = new ArrayList<>();
+        try {
+            Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path entry, BasicFileAttributes attrs) {
+                    String name = entry.getFileName().toString();
+                    if (!name.equals(ARBOR_DIR) && !name.startsWith(".")) {
+                        children.add(new PathItem(entry, attrs.isDirectory()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path entry, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.error("Failed to list directory: {}", dir, e);
+        }
+        return children;
     }
 }
@@ -0,0 +1,309 @@
+package com.arbor.service;
+
+import com.arbor.model.MatchMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class FindService {
+
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+
+    /**
+     * Immutable result of a find over one document version. For literal queries every
+     * occurrence (including overlapping ones) is kept so a longer query can be narrowed from
+     * it; the non-overlapping subset is what gets shown, counted and replaced.
+     */
+    public static final class MatchSet {
+        public static final MatchSet EMPTY = new MatchSet("", MatchMode.LITERAL, false, -1,
+                new int[0], 0, new int[0], new int[0], 0, null);
+
+        private final String query;
+        private final MatchMode mode;
+        private final boolean caseSensitive;
+        private final long version;
+        private final int[] occurrences;
+        private final int occurrenceCount;
+        private final int[] starts;
+        private final int[] ends;
+        private final int count;
+        private final String[] replacements;
+
+        private MatchSet(String query, MatchMode mode, boolean caseSensitive, long version,
+                         int[] occurrences, int occurrenceCount, int[] starts, int[] ends, int count,
+                         String[] replacements) {
+            this.query = query;
+            this.mode = mode;
+            this.caseSensitive = caseSensitive;
+            this.version = version;
+            this.occurrences = occurrences;
+            this.occurrenceCount = occurrenceCount;
+            this.starts = starts;
+            this.ends = ends;
+            this.count = count;
+            this.replacements = replacements;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        public int start(int index) {
+            return starts[index];
+        }
+
+        public int end(int index) {
+            return ends[index];
+        }
+
+        /**
+         * The expanded replacement text for a match, when the set was searched with a regex
+         * replacement ({@code $1} etc. resolved); otherwise {@code null}.
+         */
+        public String replacement(int index) {
+            return replacements == null ? null : replacements[index];
+        }
+
+        /** Index of the first match starting at or after {@code offset}, or {@link #size()} if none. */
+        public int indexAtOrAfter(int offset) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < offset) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * Finds all matches of {@code query} in {@code text}. For literal queries, when
+     * {@code previous} was computed for the same document version and its query is a prefix of
+     * this one, only its occurrence positions are re-checked instead of rescanning the document.
+     *
+     * @return the matches, or {@code null} if {@code cancelled} reported true mid-search
+     * @throws java.util.regex.PatternSyntaxException if a REGEX query is malformed
+     */
+    public MatchSet search(String text, String query, MatchMode mode, boolean caseSensitive, long version,
+                           MatchSet previous, BooleanSupplier cancelled) {
+        if (query == null || query.isEmpty()) {
+            return MatchSet.EMPTY;
+        }
+        if (mode != MatchMode.LITERAL) {
+            return search(List.of(text).iterator(), query, mode, caseSensitive, version, null, cancelled);
+        }
+
+        Matcher matcher = caseSensitive ? null : mode.compile(query, false).matcher(text);
+        IntList found;
+        if (canNarrow(previous, query, caseSensitive, version)) {
+            found = new IntList(previous.occurrenceCount);
+            for (int i = 0; i < previous.occurrenceCount; i++) {
+                if (i % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) return null;
+                int pos = previous.occurrences[i];
+                if (matchesAt(text, query, pos, matcher)) {
+                    found.add(pos);
+                }
+            }
+        } else {
+            found = new IntList(16);
+            if (!scan(text, 0, query, matcher, found, cancelled)) return null;
+        }
+        return toMatchSet(query, caseSensitive, version, found);
+    }
+
+    /**
+     * Finds all matches of {@code query} one paragraph at a time, so the whole document is
+     * never held as a single string. Offsets are absolute, counting one separator char between
+     * paragraphs; matches never span a line break. When {@code replacement} is given for a
+     * REGEX query, each match's expanded replacement is recorded as well.
+     *
+     * @return the matches, or {@code null} if {@code cancelled} reported true mid-search
+     * @throws java.util.regex.PatternSyntaxException if a REGEX query is malformed
+     */
+    public MatchSet search(Iterator<String> paragraphs, String query, MatchMode mode, boolean caseSensitive,
+                           long version, String replacement, BooleanSupplier cancelled) {
+        if (query == null || query.isEmpty() || (mode != MatchMode.REGEX && query.indexOf('\n') >= 0)) {
+            return MatchSet.EMPTY;
+        }
+
+        if (mode == MatchMode.LITERAL) {
+            Pattern pattern = caseSensitive ? null : mode.compile(query, false);
+            IntList found = new IntList(16);
+            int offset = 0;
+            while (paragraphs.hasNext()) {
+                String paragraph = paragraphs.next();
+                Matcher matcher = pattern == null ? null : pattern.matcher(paragraph);
+                if (!scan(paragraph, offset, query, matcher, found, cancelled)) return null;
+                offset += paragraph.length() + 1;
+            }
+            return toMatchSet(query, caseSensitive, version, found);
+        }
+
+        Pattern pattern = mode.compile(query, caseSensitive);
+        boolean expand = replacement != null && mode == MatchMode.REGEX;
+        IntList starts = new IntList(16);
+        IntList ends = new IntList(16);
+        List<String> replacements = expand ? new ArrayList<>() : null;
+        StringBuilder expanded = new StringBuilder();
+        int offset = 0;
+        int checks = 0;
+        while (paragraphs.hasNext()) {
+            String paragraph = paragraphs.next();
+            Matcher matcher = pattern.matcher(paragraph);
+            int appendPos = 0;
+            while (matcher.find()) {
+                if (checks++ % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) return null;
+                // Empty matches (e.g. "a*" between chars) have nothing to show or replace
+                if (matcher.end() == matcher.start()) continue;
+                starts.add(offset + matcher.start());
+                ends.add(offset + matcher.end());
+                if (expand) {
+                    // appendReplacement writes the gap since the last match, then the expansion
+                    int gap = matcher.start() - appendPos;
+                    expanded.setLength(0);
+                    matcher.appendReplacement(expanded, replacement);
+                    replacements.add(expanded.substring(gap));
+                    appendPos = matcher.end();
+                }
+            }
+            offset += paragraph.length() + 1;
+        }
+        return new MatchSet(query, mode, caseSensitive, version, starts.values, starts.size,
+                starts.values, ends.values, starts.size,
+                expand ? replacements.toArray(new String[0]) : null);
+    }
+
+    /**
+     * Checks a REGEX replacement the way {@link Matcher#appendReplacement} will read it, so a
+     * bad group reference is reported before any text is touched rather than thrown per match.
+     *
+     * @return a message describing the problem, or {@code null} if the replacement is usable
+     */
+    public static String replacementError(Pattern pattern, String replacement) {
+        int groupCount = pattern.matcher("").groupCount();
+        int i = 0;
+        while (i < replacement.length()) {
+            char c = replacement.charAt(i++);
+            if (c == '\\') {
+                if (i == replacement.length()) return "Trailing \\ in replacement";
+                i++;
+            } else if (c == '$') {
+                if (i == replacement.length()) return "Missing group reference after $";
+                char next = replacement.charAt(i);
+                if (next == '{') {
+                    int close = replacement.indexOf('}', i);
+                    if (close < 0) return "Unclosed group name";
+                    String name = replacement.substring(i + 1, close);
+                    if (!pattern.namedGroups().containsKey(name)) return "No group named " + name;
+                    i = close + 1;
+                } else if (next >= '0' && next <= '9') {
+                    // Like Matcher, take more digits only while they still name an existing group
+                    int group = next - '0';
+                    if (group > groupCount) return "No group " + group;
+                    i++;
+                    while (i < replacement.length() && Character.isDigit(replacement.charAt(i))) {
+                        int longer = group * 10 + (replacement.charAt(i) - '0');
+                        if (longer > groupCount) break;
+                        group = longer;
+                        i++;
+                    }
+                } else {
+                    return "Illegal group reference $" + next;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean scan(String text, int baseOffset, String query, Matcher matcher,
+                                IntList found, BooleanSupplier cancelled) {
+        int from = 0;
+        int checks = 0;
+        while (true) {
+            if (checks++ % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) return false;
+            int pos;
+            if (matcher == null) {
+                pos = text.indexOf(query, from);
+            } else {
+                pos = matcher.find(from) ? matcher.start() : -1;
+            }
+            if (pos < 0) return true;
+            found.add(baseOffset + pos);
+            from = pos + 1;
+        }
+    }
+
+    private static MatchSet toMatchSet(String query, boolean caseSensitive, long version, IntList found) {
+        // Greedy non-overlapping subset, same as a left-to-right Matcher.find() loop
+        int[] starts = new int[found.size];
+        int[] ends = new int[found.size];
+        int count = 0;
+        int lastEnd = 0;
+        for (int i = 0; i < found.size; i++) {
+            int pos = found.values[i];
+            if (pos >= lastEnd) {
+                starts[count] = pos;
+                ends[count] = pos + query.length();
+                lastEnd = ends[count];
+                count++;
+            }
+        }
+        return new MatchSet(query, MatchMode.LITERAL, caseSensitive, version, found.values, found.size,
+                starts, ends, count, null);
+    }
+
+    private static boolean canNarrow(MatchSet previous, String query, boolean caseSensitive, long version) {
+        return previous != null
+                && previous.mode == MatchMode.LITERAL
+                && previous.version == version
+                && previous.caseSensitive == caseSensitive
+                && !previous.query.isEmpty()
+                && query.startsWith(previous.query);
+    }
+
+    private static boolean matchesAt(String text, String query, int pos, Matcher matcher) {
+        if (pos + query.length() > text.length()) return false;
+        if (matcher == null) {
+            return text.startsWith(query, pos);
+        }
+        matcher.region(pos, text.length());
+        return matcher.lookingAt();
+    }
+
+    private static final class IntList {
+        int[] values;
+        int size;
+
+        IntList(int capacity) {
+            values = new int[Math.max(capacity, 1)];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.arbor.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Starts and stops an in-process JDK Flight Recorder recording from the command palette, so a
+ * slow session can be captured without restarting with {@code -XX:StartFlightRecording}. Uses
+ * the JDK's "profile" settings; Arbor's own events in {@link com.arbor.util.ArborEvents} are
+ * enabled with no threshold.
+ */
+public class FlightRecorderService {
+    private static final Logger log = LoggerFactory.getLogger(FlightRecorderService.class);
+
+    /** Older data is dropped so a forgotten recording can't fill the disk. */
+    private static final Duration MAX_AGE = Duration.ofMinutes(30);
+
+    private Recording recording;
+
+    public synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    public synchronized void start() throws IOException, ParseException {
+        if (recording != null) return;
+        Recording r = new Recording(Configuration.getConfiguration("profile"));
+        r.setName("Arbor");
+        r.setToDisk(true);
+        r.setMaxAge(MAX_AGE);
+        r.start();
+        recording = r;
+        log.info("Flight recording started");
+    }
+
+    /** Stops the recording and writes it to {@code destination}. */
+    public synchronized void stop(Path destination) throws IOException {
+        if (recording == null) return;
+        Recording r = recording;
+        recording = null;
+        try {
+            r.stop();
+            r.dump(destination);
+            log.info("Flight recording written to {}", destination);
+        } finally {
+            r.close();
+        }
+    }
+
+    /** Discards a running recording, e.g. on exit. */
+    public synchronized void close() {
+        if (recording == null) return;
+        recording.close();
+        recording = null;
+    }
+}
@@ -0,0 +1,227 @@
+package com.arbor.service;
+
+import com.arbor.model.MatchMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Literal find and replace across every note ({@code .md} file) in a grove. Planning reads
+ * files in parallel and produces a per-file preview; applying re-reads each planned file,
+ * refuses to touch it if its SHA-256 differs from the one taken for the preview, and writes
+ * the result atomically.
+ */
+public class GroveReplaceService {
+    private static final Logger log = LoggerFactory.getLogger(GroveReplaceService.class);
+
+    private static final int MAX_PREVIEW_LINES = 5;
+    // Caps open file handles; virtual threads themselves are cheap
+    private static final int MAX_CONCURRENT_FILES = 64;
+
+    public record LineChange(int lineNumber, String before, String after) {
+    }
+
+    public record FilePlan(Path path, int matchCount, List<LineChange> preview, String contentDigest) {
+    }
+
+    public record ReplaceResult(List<Path> changed, List<Path> skipped, List<Path> failed) {
+    }
+
+    private final FileOperationService fileOps;
+    private final ContentIndexService contentIndex;
+
+    public GroveReplaceService(FileOperationService fileOps, ContentIndexService contentIndex) {
+        this.fileOps = fileOps;
+        this.contentIndex = contentIndex;
+    }
+
+    /**
+     * Finds every file under {@code root} containing {@code query} and previews the first few
+     * changed lines of each. Returns an empty list if {@code cancelled} reports true.
+     */
+    public List<FilePlan> plan(Path root, String query, String replacement, boolean caseSensitive,
+                               BooleanSupplier cancelled) {
+        if (query == null || query.isEmpty()) return List.of();
+        Pattern pattern = compile(query, caseSensitive);
+        String quotedReplacement = Matcher.quoteReplacement(replacement);
+
+        // The trigram index narrows candidates; fall back to walking the grove until it is built
+        Set<Path> candidates = contentIndex.candidates(query, MatchMode.LITERAL);
+        Collection<Path> files = candidates != null ? candidates : listFiles(root);
+
+        List<FilePlan> plans = forEachParallel(files, file -> {
+            if (cancelled.getAsBoolean() || !isNote(file)) return null;
+            try {
+                String content = fileOps.readFile(file);
+                // Cheap literal prefilter before running the matcher
+                if (caseSensitive && !content.contains(query)) return null;
+                return planFile(file, content, pattern, quotedReplacement);
+            } catch (IOException e) {
+                // Binary or unreadable file
+                return null;
+            }
+        });
+        if (cancelled.getAsBoolean()) return List.of();
+        plans.sort(Comparator.comparing(FilePlan::path));
+        return plans;
+    }
+
+    /**
+     * Applies the replacement to each planned file in parallel. Files whose content no longer
+     * matches the plan are skipped rather than overwritten.
+     */
+    public ReplaceResult apply(Collection<FilePlan> plans, String query, String replacement, boolean caseSensitive) {
+        Pattern pattern = compile(query, caseSensitive);
+        String quotedReplacement = Matcher.quoteReplacement(replacement);
+        ConcurrentLinkedQueue<Path> changed = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Path> skipped = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Path> failed = new ConcurrentLinkedQueue<>();
+
+        forEachParallel(plans, plan -> {
+            if (!isNote(plan.path())) {
+                skipped.add(plan.path());
+                return null;
+            }
+            try {
+                String content = fileOps.readFile(plan.path());
+                if (!digest(content).equals(plan.contentDigest())) {
+                    skipped.add(plan.path());
+                    return null;
+                }
+                fileOps.writeFileAtomic(plan.path(), pattern.matcher(content).replaceAll(quotedReplacement));
+                changed.add(plan.path());
+            } catch (IOException e) {
+                log.error("Failed to replace in {}", plan.path(), e);
+                failed.add(plan.path());
+            }
+            return null;
+        });
+
+        log.info("Grove replace: {} changed, {} skipped, {} failed", changed.size(), skipped.size(), failed.size());
+        return new ReplaceResult(List.copyOf(changed), List.copyOf(skipped), List.copyOf(failed));
+    }
+
+    private FilePlan planFile(Path file, String content, Pattern pattern, String quotedReplacement) {
+        Matcher matcher = pattern.matcher(content);
+        List<LineChange> preview = new ArrayList<>();
+        int count = 0;
+        int line = 0;
+        int lineCountedTo = 0;
+        int lastPreviewLineStart = -1;
+
+        while (matcher.find()) {
+            count++;
+            if (preview.size() >= MAX_PREVIEW_LINES) continue;
+
+            int lineStart = content.lastIndexOf('\n', matcher.start() - 1) + 1;
+            if (lineStart == lastPreviewLineStart) continue;
+            int lineEnd = content.indexOf('\n', matcher.end());
+            if (lineEnd < 0) lineEnd = content.length();
+
+            for (int i = lineCountedTo; i < lineStart; i++) {
+                if (content.charAt(i) == '\n') line++;
+            }
+            lineCountedTo = lineStart;
+
+            String before = content.substring(lineStart, lineEnd);
+            String after = pattern.matcher(before).replaceAll(quotedReplacement);
+            preview.add(new LineChange(line, before, after));
+            lastPreviewLineStart = lineStart;
+        }
+        return count == 0 ? null : new FilePlan(file, count, List.copyOf(preview), digest(content));
+    }
+
+    /** Only notes are rewritten; the index also covers source files and other text. */
+    private static boolean isNote(Path file) {
+        String name = file.getFileName().toString();
+        return !name.startsWith(".") && name.toLowerCase().endsWith(".md");
+    }
+
+    private static String digest(String content) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Pattern compile(String query, boolean caseSensitive) {
+        int flags = caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        return Pattern.compile(Pattern.quote(query), flags);
+    }
+
+    private static <T, R> List<R> forEachParallel(Collection<T> items, Function<T, R> task) {
+        Semaphore permits = new Semaphore(MAX_CONCURRENT_FILES);
+        ConcurrentLinkedQueue<R> results = new ConcurrentLinkedQueue<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (T item : items) {
+                executor.submit(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        R result = task.apply(item);
+                        if (result != null) results.add(result);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        return new ArrayList<>(results);
+    }
+
+    private static List<Path> listFiles(Path root) {
+        List<Path> files = new ArrayList<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    String name = dir.getFileName().toString();
+                    if (name.equals(".arbor") || name.startsWith(".")) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && isNote(file)) {
+                        files.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.error("Failed to list grove files", e);
+        }
+        return files;
+    }
+}
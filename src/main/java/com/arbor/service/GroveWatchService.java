@@ -0,0 +1,244 @@
+package com.arbor.service;
+
+import com.arbor.model.FileChange;
+import com.arbor.model.FileChange.Kind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches every directory in the grove and reports changes in coalesced batches, so the file
+ * tree and the indexes can apply small diffs instead of rescanning. A delete and a create in
+ * the same directory within one batch are reported as a rename. A new or renamed directory's
+ * files are also reported as creates, since none of them has an event of its own. The listener
+ * runs on the watcher thread.
+ */
+public class GroveWatchService {
+    private static final Logger log = LoggerFactory.getLogger(GroveWatchService.class);
+
+    // Wait this long for more events before delivering a batch, up to MAX_BATCH_MILLIS
+    private static final long COALESCE_MILLIS = 100;
+    private static final long MAX_BATCH_MILLIS = 500;
+
+    private WatchService watcher;
+
+    /** Starts watching {@code root} on a background thread, replacing any previous watch. */
+    public synchronized void start(Path root, Consumer<List<FileChange>> listener) {
+        stop();
+        WatchService service;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            log.warn("File watching unavailable; external changes will not appear", e);
+            return;
+        }
+        watcher = service;
+        Thread.startVirtualThread(() -> new Session(service).run(root, listener));
+    }
+
+    public synchronized void stop() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                log.debug("Failed to close watch service", e);
+            }
+            watcher = null;
+        }
+    }
+
+    /** Keeps the latest fact per path, except that a modify never hides a create or delete. */
+    private static void merge(Map<Path, FileChange> pending, FileChange change) {
+        FileChange previous = pending.get(change.path());
+        if (change.kind() == Kind.MODIFIED && previous != null) return;
+        pending.put(change.path(), change);
+    }
+
+    private static List<FileChange> pairRenames(Map<Path, FileChange> pending, Set<Path> synthetic) {
+        Map<Path, List<FileChange>> deletedByParent = new HashMap<>();
+        Map<Path, List<FileChange>> createdByParent = new HashMap<>();
+        for (FileChange change : pending.values()) {
+            if (synthetic.contains(change.path())) continue;
+            if (change.kind() == Kind.DELETED) {
+                deletedByParent.computeIfAbsent(change.path().getParent(), k -> new ArrayList<>()).add(change);
+            } else if (change.kind() == Kind.CREATED) {
+                createdByParent.computeIfAbsent(change.path().getParent(), k -> new ArrayList<>()).add(change);
+            }
+        }
+
+        Map<Path, FileChange> renames = new HashMap<>();
+        Set<Path> consumed = new HashSet<>();
+        for (var entry : deletedByParent.entrySet()) {
+            List<FileChange> created = createdByParent.get(entry.getKey());
+            if (entry.getValue().size() != 1 || created == null || created.size() != 1) continue;
+            FileChange from = entry.getValue().getFirst();
+            FileChange to = created.getFirst();
+            if (from.directory() != to.directory()) continue;
+            renames.put(from.path(), FileChange.renamed(from.path(), to.path(), to.directory()));
+            consumed.add(to.path());
+        }
+
+        List<FileChange> changes = new ArrayList<>(pending.size());
+        for (FileChange change : pending.values()) {
+            if (consumed.contains(change.path())) continue;
+            changes.add(renames.getOrDefault(change.path(), change));
+        }
+        return changes;
+    }
+
+    /** One watch of one grove; all state is confined to its watcher thread. */
+    private static final class Session {
+        private final WatchService service;
+        private final Map<WatchKey, Path> keys = new HashMap<>();
+        private final Set<Path> directories = new HashSet<>();
+        private boolean limitReached;
+
+        Session(WatchService service) {
+            this.service = service;
+        }
+
+        void run(Path root, Consumer<List<FileChange>> listener) {
+            long start = System.currentTimeMillis();
+            registerTree(root, null);
+            log.info("Watching {} directories ({}ms)", keys.size(), System.currentTimeMillis() - start);
+
+            try {
+                while (true) {
+                    WatchKey key = service.take();
+                    Map<Path, FileChange> pending = new LinkedHashMap<>();
+                    Set<Path> synthetic = new HashSet<>();
+                    long batchStart = System.currentTimeMillis();
+                    while (key != null) {
+                        processKey(key, pending, synthetic);
+                        if (System.currentTimeMillis() - batchStart > MAX_BATCH_MILLIS) break;
+                        key = service.poll(COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                    if (!pending.isEmpty()) {
+                        listener.accept(pairRenames(pending, synthetic));
+                    }
+                }
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                // Stopped
+            } catch (RuntimeException e) {
+                log.error("File watcher failed", e);
+            }
+        }
+
+        private void processKey(WatchKey key, Map<Path, FileChange> pending, Set<Path> synthetic) {
+            Path dir = keys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (dir == null) continue;
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    pending.put(dir, new FileChange(Kind.OVERFLOW, dir, null, true));
+                    continue;
+                }
+                Path child = dir.resolve((Path) event.context());
+                if (child.getFileName().toString().startsWith(".")) continue;
+
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    boolean directory;
+                    try {
+                        directory = Files.readAttributes(child, BasicFileAttributes.class).isDirectory();
+                    } catch (IOException e) {
+                        // Gone again before we looked
+                        continue;
+                    }
+                    if (directory) {
+                        // Files may land inside before the new directory is registered; report them too
+                        registerTree(child, file -> {
+                            if (pending.putIfAbsent(file, FileChange.created(file, false)) == null) {
+                                synthetic.add(file);
+                            }
+                        });
+                    }
+                    merge(pending, FileChange.created(child, directory));
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    boolean directory = directories.contains(child);
+                    if (directory) unregisterTree(child);
+                    merge(pending, FileChange.deleted(child, directory));
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY && !directories.contains(child)) {
+                    merge(pending, new FileChange(Kind.MODIFIED, child, null, false));
+                }
+            }
+            if (!key.reset()) {
+                Path gone = keys.remove(key);
+                if (gone != null) directories.remove(gone);
+            }
+        }
+
+        private void registerTree(Path root, Consumer<Path> onFile) {
+            try {
+                Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        String name = dir.getFileName() == null ? "" : dir.getFileName().toString();
+                        if (!dir.equals(root) && (name.equals(".arbor") || name.startsWith("."))) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        register(dir);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (onFile != null && attrs.isRegularFile() && !file.getFileName().toString().startsWith(".")) {
+                            onFile.accept(file);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                log.warn("Failed to watch {}", root, e);
+            }
+        }
+
+        private void register(Path dir) {
+            if (limitReached) return;
+            try {
+                WatchKey key = dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                keys.put(key, dir);
+                directories.add(dir);
+            } catch (IOException e) {
+                // Usually the OS limit on watches; the rest of the grove goes unwatched
+                limitReached = true;
+                log.warn("Stopped registering file watches at {} directories", keys.size(), e);
+            }
+        }
+
+        private void unregisterTree(Path root) {
+            keys.entrySet().removeIf(entry -> {
+                if (!entry.getValue().startsWith(root)) return false;
+                entry.getKey().cancel();
+                return true;
+            });
+            directories.removeIf(dir -> dir.startsWith(root));
+        }
+    }
+}
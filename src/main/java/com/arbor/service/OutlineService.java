@@ -1,12 +1,17 @@
 package com.arbor.service;
 
 import com.arbor.model.OutlineItem;
+import com.arbor.util.ArborEvents;
 import org.commonmark.node.*;
 import org.commonmark.parser.IncludeSourceSpans;
 import org.commonmark.parser.Parser;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -41,14 +46,144 @@ public class OutlineService {
     private static final Pattern PY_DEF = Pattern.compile(
             "^\\s+def\\s+(\\w+)|^def\\s+(\\w+)", Pattern.MULTILINE);
 
+    private static final int MAX_CACHED_BLOCKS = 50_000;
+
+    /**
+     * Outline items per block, keyed by block content and relative to the block's first line.
+     * Shared by all documents so unchanged blocks are never re-parsed.
+     */
+    private final Map<BlockKey, List<OutlineItem>> blockCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<BlockKey, List<OutlineItem>> eldest) {
+                    return size() > MAX_CACHED_BLOCKS;
+                }
+            });
+
+    private record BlockKey(String mode, int length, long hash) {
+    }
+
+    /**
+     * Builds the outline incrementally: the text is split into blocks at blank lines (never
+     * inside a fenced code block), and only blocks whose content has not been seen before
+     * are parsed. Safe to call from a background thread.
+     */
     public List<OutlineItem> buildOutline(String text, String language, boolean isMarkdown) {
-        if (isMarkdown) {
-            return buildMarkdownOutline(text);
+        String mode = isMarkdown ? "md" : language;
+        if (mode == null || !(isMarkdown || language.equals("java") || language.equals("js")
+                || language.equals("python"))) {
+            return List.of();
+        }
+
+        ArborEvents.OutlineBuild event = new ArborEvents.OutlineBuild();
+        event.begin();
+        int[] lineStarts = lineStarts(text);
+        int lineCount = lineStarts.length;
+        List<OutlineItem> items = new ArrayList<>();
+
+        String fence = null;
+        int blockStartLine = -1;
+        for (int line = 0; line <= lineCount; line++) {
+            boolean atEnd = line == lineCount;
+            boolean blank = !atEnd && isBlank(text, lineStarts[line], lineEnd(text, lineStarts, line));
+            if (isMarkdown && !atEnd) {
+                fence = updateFence(fence, text, lineStarts[line], lineEnd(text, lineStarts, line));
+            }
+
+            if (atEnd || (blank && fence == null)) {
+                if (blockStartLine >= 0) {
+                    addBlock(items, text, lineStarts, blockStartLine, line, mode);
+                    blockStartLine = -1;
+                }
+            } else if (blockStartLine < 0) {
+                blockStartLine = line;
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.language = mode;
+            event.length = text.length();
+            event.items = items.size();
+            event.commit();
+        }
+        return items;
+    }
+
+    private void addBlock(List<OutlineItem> items, String text, int[] lineStarts,
+                          int firstLine, int endLine, String mode) {
+        int start = lineStarts[firstLine];
+        int end = endLine < lineStarts.length ? lineStarts[endLine] : text.length();
+        BlockKey key = new BlockKey(mode, end - start, hash(text, start, end));
+
+        List<OutlineItem> blockItems = blockCache.get(key);
+        if (blockItems == null) {
+            String block = text.substring(start, end);
+            blockItems = mode.equals("md") ? buildMarkdownOutline(block) : buildCodeOutline(block, mode);
+            blockCache.put(key, blockItems.isEmpty() ? List.of() : blockItems);
         }
-        if (language != null) {
-            return buildCodeOutline(text, language);
+        for (OutlineItem item : blockItems) {
+            items.add(new OutlineItem(item.label(), item.level(), item.lineNumber() + firstLine));
         }
-        return List.of();
+    }
+
+    /** Prefix line-offset table: start offset of every line. */
+    static int[] lineStarts(String text) {
+        int count = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') count++;
+        }
+        int[] starts = new int[count];
+        int line = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') starts[line++] = i + 1;
+        }
+        return starts;
+    }
+
+    /** Line containing {@code offset}, by binary search over the line-offset table. */
+    static int lineAt(int[] lineStarts, int offset) {
+        int idx = Arrays.binarySearch(lineStarts, offset);
+        return idx >= 0 ? idx : -idx - 2;
+    }
+
+    private static int lineEnd(String text, int[] lineStarts, int line) {
+        return line + 1 < lineStarts.length ? lineStarts[line + 1] - 1 : text.length();
+    }
+
+    private static boolean isBlank(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    /** Tracks fenced code blocks: returns the open fence after this line, or null. */
+    private static String updateFence(String openFence, String text, int start, int end) {
+        int i = start;
+        while (i < end && i - start < 3 && text.charAt(i) == ' ') i++;
+        if (i >= end) return openFence;
+        char c = text.charAt(i);
+        if (c != '`' && c != '~') return openFence;
+        int run = i;
+        while (run < end && text.charAt(run) == c) run++;
+        if (run - i < 3) return openFence;
+        String marker = text.substring(i, run);
+        if (openFence == null) {
+            return marker;
+        }
+        // A closing fence uses the same character, is at least as long, and has no info string
+        boolean closes = marker.charAt(0) == openFence.charAt(0) && marker.length() >= openFence.length()
+                && isBlank(text, run, end);
+        return closes ? null : openFence;
+    }
+
+    private static long hash(String text, int start, int end) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
     }
 
     private List<OutlineItem> buildMarkdownOutline(String text) {
@@ -88,21 +223,21 @@ public class OutlineService {
 
     private List<OutlineItem> buildCodeOutline(String text, String language) {
         List<OutlineItem> items = new ArrayList<>();
-        String[] lines = text.split("\n");
+        int[] lineStarts = lineStarts(text);
 
         switch (language) {
             case "java" -> {
-                addMatches(items, text, lines, JAVA_CLASS, 1, 1);
-                addMatches(items, text, lines, JAVA_METHOD, 1, 2);
+                addMatches(items, text, lineStarts, JAVA_CLASS, 1, 1);
+                addMatches(items, text, lineStarts, JAVA_METHOD, 1, 2);
             }
             case "js" -> {
-                addMatches(items, text, lines, JS_CLASS, 1, 1);
-                addMatches(items, text, lines, JS_FUNCTION, 1, 2);
-                addMatches(items, text, lines, JS_ARROW, 1, 2);
+                addMatches(items, text, lineStarts, JS_CLASS, 1, 1);
+                addMatches(items, text, lineStarts, JS_FUNCTION, 1, 2);
+                addMatches(items, text, lineStarts, JS_ARROW, 1, 2);
             }
             case "python" -> {
-                addMatches(items, text, lines, PY_CLASS, 1, 1);
-                addPythonDefs(items, text, lines);
+                addMatches(items, text, lineStarts, PY_CLASS, 1, 1);
+                addPythonDefs(items, text, lineStarts);
             }
         }
 
@@ -110,32 +245,24 @@ public class OutlineService {
         return items;
     }
 
-    private void addMatches(List<OutlineItem> items, String text, String[] lines,
+    private void addMatches(List<OutlineItem> items, String text, int[] lineStarts,
                             Pattern pattern, int group, int level) {
         Matcher matcher = pattern.matcher(text);
         while (matcher.find()) {
             String name = matcher.group(group);
-            int lineNum = lineNumberAt(text, matcher.start());
+            int lineNum = lineAt(lineStarts, matcher.start());
             items.add(new OutlineItem(name, level, lineNum));
         }
     }
 
-    private void addPythonDefs(List<OutlineItem> items, String text, String[] lines) {
+    private void addPythonDefs(List<OutlineItem> items, String text, int[] lineStarts) {
         Matcher matcher = PY_DEF.matcher(text);
         while (matcher.find()) {
             // Group 1 = indented def (method), Group 2 = top-level def (function)
             String name = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
             int level = matcher.group(1) != null ? 2 : 1;
-            int lineNum = lineNumberAt(text, matcher.start());
+            int lineNum = lineAt(lineStarts, matcher.start());
             items.add(new OutlineItem(name, level, lineNum));
         }
     }
-
-    private int lineNumberAt(String text, int charIndex) {
-        int line = 0;
-        for (int i = 0; i < charIndex && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') line++;
-        }
-        return line;
-    }
 }
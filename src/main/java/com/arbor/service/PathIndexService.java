@@ -0,0 +1,356 @@
+package com.arbor.service;
+
+import com.arbor.util.ArborEvents;
+import com.arbor.util.FuzzyMatcher;
+import com.arbor.util.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index of every file path in the grove for quick open. Relative paths are packed
+ * into one char array with parallel offset and character-mask arrays, so a query is a single
+ * allocation-free pass that rejects most paths on the mask before any fuzzy scoring.
+ */
+public class PathIndexService {
+    private static final Logger log = LoggerFactory.getLogger(PathIndexService.class);
+    private static final MetricsRegistry.Timer SCAN_TIMER = MetricsRegistry.global().timer("scan.paths");
+    private static final MetricsRegistry.Timer SEARCH_TIMER = MetricsRegistry.global().timer("search.quickopen");
+
+    // A match inside the file name beats the same match spread over directories
+    private static final int FILENAME_BONUS = 24;
+    // Boost for the most recently opened file, shrinking by RECENCY_DECAY per newer open
+    private static final int RECENCY_BOOST = 32;
+    private static final int RECENCY_DECAY = 2;
+    // Compact once this many removed slots have piled up
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    public record Match(Path path, String relativePath, int score, int[] positions) {
+    }
+
+    private Path grovePath;
+
+    // Guarded by this
+    private Table table = new Table(0, 0);
+    private final Map<Path, Long> openedAt = new HashMap<>();
+    private long openCounter;
+
+    public void setGrovePath(Path grovePath) {
+        this.grovePath = grovePath;
+        synchronized (this) {
+            table = new Table(0, 0);
+            openedAt.clear();
+        }
+    }
+
+    public void fullScan() {
+        Path root = grovePath;
+        if (root == null) return;
+        long start = System.nanoTime();
+        ArborEvents.GroveScan event = new ArborEvents.GroveScan();
+        event.begin();
+        Table scanned = new Table(1024, 1024 * 48);
+
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    String name = dir.getFileName().toString();
+                    if (name.equals(".arbor") || name.startsWith(".")) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && !file.getFileName().toString().startsWith(".")) {
+                        scanned.append(file, root.relativize(file).toString());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.error("Path index scan failed", e);
+        }
+
+        synchronized (this) {
+            // A grove switch mid-scan makes this result stale
+            if (root != grovePath) return;
+            table = scanned;
+        }
+        SCAN_TIMER.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.index = "paths";
+            event.grove = root.toString();
+            event.entries = scanned.size;
+            event.commit();
+        }
+        log.info("Path index built in {}ms: {} files", (System.nanoTime() - start) / 1_000_000, scanned.size);
+    }
+
+    /** Adds a newly created file; no-op if it is already indexed or outside the grove. */
+    public synchronized void add(Path file) {
+        if (grovePath == null || !file.startsWith(grovePath) || table.ids.containsKey(file)) return;
+        table.append(file, grovePath.relativize(file).toString());
+    }
+
+    /** Removes a file, or every file under a directory; returns the paths that were indexed. */
+    public synchronized List<Path> remove(Path path) {
+        List<Path> removed = new ArrayList<>();
+        Integer id = table.ids.remove(path);
+        if (id != null) {
+            table.clear(id);
+            removed.add(path);
+        } else {
+            for (var it = table.ids.entrySet().iterator(); it.hasNext(); ) {
+                var entry = it.next();
+                if (entry.getKey().startsWith(path)) {
+                    table.clear(entry.getValue());
+                    removed.add(entry.getKey());
+                    it.remove();
+                }
+            }
+        }
+        if (table.removed > COMPACT_THRESHOLD && table.removed > table.size / 2) {
+            table = table.compact();
+        }
+        return removed;
+    }
+
+    /** Records that a file was opened, so it ranks higher in later queries. */
+    public synchronized void markOpened(Path file) {
+        openedAt.put(file, ++openCounter);
+    }
+
+    /**
+     * Returns the best {@code limit} matches for a fuzzy {@code query}, best first. An empty
+     * query returns the most recently opened files.
+     */
+    public synchronized List<Match> search(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            return rank(query, limit);
+        } finally {
+            SEARCH_TIMER.recordSince(start);
+        }
+    }
+
+    private List<Match> rank(String query, int limit) {
+        char[][] q = FuzzyMatcher.prepareQuery(query == null ? "" : query);
+        if (q.length == 0) {
+            return recentFiles(limit);
+        }
+        long queryMask = FuzzyMatcher.charMask(q);
+        Table t = table;
+
+        // Bounded min-heap of the best candidates so far, on primitive arrays
+        int[] heapIds = new int[limit];
+        int[] heapScores = new int[limit];
+        int heapSize = 0;
+
+        for (int id = 0; id < t.size; id++) {
+            if ((t.masks[id] & queryMask) != queryMask || t.starts[id] < 0) continue;
+            int score = scoreEntry(t, id, q, queryMask, null);
+            if (score == FuzzyMatcher.NO_MATCH) continue;
+            if (heapSize < limit) {
+                heapIds[heapSize] = id;
+                heapScores[heapSize] = score;
+                siftUp(t, heapIds, heapScores, heapSize++);
+            } else if (limit > 0 && better(t, id, score, heapIds[0], heapScores[0])) {
+                heapIds[0] = id;
+                heapScores[0] = score;
+                siftDown(t, heapIds, heapScores, heapSize);
+            }
+        }
+
+        Match[] results = new Match[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            int id = heapIds[0];
+            int score = heapScores[0];
+            heapIds[0] = heapIds[i];
+            heapScores[0] = heapScores[i];
+            siftDown(t, heapIds, heapScores, i);
+            results[i] = toMatch(t, id, score, q, queryMask);
+        }
+        return Arrays.asList(results);
+    }
+
+    private List<Match> recentFiles(int limit) {
+        return openedAt.entrySet().stream()
+                .filter(e -> table.ids.containsKey(e.getKey()))
+                .sorted(Map.Entry.<Path, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(e -> {
+                    int id = table.ids.get(e.getKey());
+                    return new Match(e.getKey(), table.relative(id), 0, new int[0]);
+                })
+                .toList();
+    }
+
+    private int scoreEntry(Table t, int id, char[][] q, long queryMask, int[] positions) {
+        int score = (t.nameMasks[id] & queryMask) != queryMask ? FuzzyMatcher.NO_MATCH
+                : FuzzyMatcher.score(q, t.lower, t.chars, t.nameStarts[id], t.ends[id], positions);
+        if (score != FuzzyMatcher.NO_MATCH) {
+            score += FILENAME_BONUS;
+        } else {
+            score = FuzzyMatcher.score(q, t.lower, t.chars, t.starts[id], t.ends[id], positions);
+            if (score == FuzzyMatcher.NO_MATCH) return score;
+        }
+        if (!openedAt.isEmpty()) {
+            Long opened = openedAt.get(t.paths[id]);
+            if (opened != null) {
+                score += Math.max(0, RECENCY_BOOST - (int) Math.min(Integer.MAX_VALUE,
+                        (openCounter - opened) * RECENCY_DECAY));
+            }
+        }
+        return score;
+    }
+
+    private Match toMatch(Table t, int id, int score, char[][] q, long queryMask) {
+        int[] positions = new int[FuzzyMatcher.length(q)];
+        scoreEntry(t, id, q, queryMask, positions);
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] -= t.starts[id];
+        }
+        return new Match(t.paths[id], t.relative(id), score, positions);
+    }
+
+    /** Higher score wins; ties go to the shorter path. */
+    private static boolean better(Table t, int a, int scoreA, int b, int scoreB) {
+        if (scoreA != scoreB) return scoreA > scoreB;
+        return t.ends[a] - t.starts[a] < t.ends[b] - t.starts[b];
+    }
+
+    private static void siftUp(Table t, int[] ids, int[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(t, ids[parent], scores[parent], ids[i], scores[i])) break;
+            swap(ids, scores, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(Table t, int[] ids, int[] scores, int size) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) return;
+            int worst = left;
+            int right = left + 1;
+            if (right < size && better(t, ids[left], scores[left], ids[right], scores[right])) {
+                worst = right;
+            }
+            if (!better(t, ids[i], scores[i], ids[worst], scores[worst])) return;
+            swap(ids, scores, i, worst);
+            i = worst;
+        }
+    }
+
+    private static void swap(int[] ids, int[] scores, int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        int score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    /**
+     * Packed path storage. Entry {@code i} spans {@code chars[starts[i], ends[i])}, with its
+     * file name starting at {@code nameStarts[i]}; removed entries have {@code starts[i] == -1}.
+     * {@code lower} mirrors {@code chars} case-folded.
+     */
+    private static final class Table {
+        char[] chars;
+        char[] lower;
+        int charCount;
+        int[] starts;
+        int[] ends;
+        int[] nameStarts;
+        long[] masks;
+        long[] nameMasks;
+        Path[] paths;
+        int size;
+        int removed;
+        final Map<Path, Integer> ids = new HashMap<>();
+
+        Table(int capacity, int charCapacity) {
+            chars = new char[charCapacity];
+            lower = new char[charCapacity];
+            starts = new int[capacity];
+            ends = new int[capacity];
+            nameStarts = new int[capacity];
+            masks = new long[capacity];
+            nameMasks = new long[capacity];
+            paths = new Path[capacity];
+        }
+
+        void append(Path file, String relative) {
+            if (size == starts.length) {
+                int capacity = Math.max(256, size * 2);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                nameStarts = Arrays.copyOf(nameStarts, capacity);
+                masks = Arrays.copyOf(masks, capacity);
+                nameMasks = Arrays.copyOf(nameMasks, capacity);
+                paths = Arrays.copyOf(paths, capacity);
+            }
+            if (charCount + relative.length() > chars.length) {
+                int capacity = Math.max(chars.length * 2, charCount + relative.length());
+                chars = Arrays.copyOf(chars, capacity);
+                lower = Arrays.copyOf(lower, capacity);
+            }
+            relative.getChars(0, relative.length(), chars, charCount);
+            for (int i = charCount; i < charCount + relative.length(); i++) {
+                lower[i] = FuzzyMatcher.toLower(chars[i]);
+            }
+            int nameOffset = Math.max(relative.lastIndexOf('/'), relative.lastIndexOf('\\')) + 1;
+            starts[size] = charCount;
+            ends[size] = charCount + relative.length();
+            nameStarts[size] = charCount + nameOffset;
+            nameMasks[size] = FuzzyMatcher.charMask(chars, charCount + nameOffset, charCount + relative.length());
+            masks[size] = nameMasks[size] | FuzzyMatcher.charMask(chars, charCount, charCount + nameOffset);
+            paths[size] = file;
+            ids.put(file, size);
+            charCount += relative.length();
+            size++;
+        }
+
+        void clear(int id) {
+            starts[id] = -1;
+            masks[id] = 0;
+            paths[id] = null;
+            removed++;
+        }
+
+        String relative(int id) {
+            return new String(chars, starts[id], ends[id] - starts[id]);
+        }
+
+        Table compact() {
+            Table compacted = new Table(size - removed, charCount);
+            for (int id = 0; id < size; id++) {
+                if (starts[id] >= 0) compacted.append(paths[id], relative(id));
+            }
+            return compacted;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.arbor.service;
+
+import com.arbor.util.PdfWriter;
+import com.arbor.util.PdfWriter.Font;
+import org.commonmark.node.*;
+import org.commonmark.parser.Parser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders markdown straight to PDF from the CommonMark tree, with no WebView or print dialog,
+ * so it works headless and many notes can be exported at once. Pages are streamed to the
+ * output file as they fill. Layout is deliberately simple: headings, paragraphs, lists,
+ * quotes, code blocks and rules, with inline bold, italic, code and link styling. Images are
+ * reduced to their alt text and text outside Latin-1 prints as '?' (see {@link PdfWriter}),
+ * so the app's single-note export prints the themed preview HTML instead; this is for grove
+ * batches and the command line.
+ */
+public class PdfExportService {
+    private static final Logger log = LoggerFactory.getLogger(PdfExportService.class);
+
+    private static final Parser MD_PARSER = Parser.builder().build();
+
+    private static final float MARGIN = 56;
+    private static final float BODY_SIZE = 11;
+    private static final float CODE_SIZE = 9;
+    private static final float LINE_SPACING = 1.4f;
+    private static final float LIST_INDENT = 18;
+    private static final float[] HEADING_SIZES = {20, 16, 14, 12, 11, 11};
+
+    private static final int TEXT_COLOR = 0x1F2A26;
+    private static final int HEADING_COLOR = 0x2F5D50;
+    private static final int LINK_COLOR = 0x2A6F97;
+    private static final int MUTED_COLOR = 0x5C6B66;
+    private static final int RULE_COLOR = 0xD4DDD2;
+
+    public record BatchResult(int exported, int failed, long millis) {
+    }
+
+    public void exportPdf(String markdownContent, Path outputPath) throws IOException {
+        Node document = MD_PARSER.parse(markdownContent);
+        try (PdfWriter writer = new PdfWriter(Files.newOutputStream(outputPath))) {
+            new Layout(writer).render(document);
+        } catch (IOException | RuntimeException e) {
+            // A truncated PDF would look like a finished export
+            Files.deleteIfExists(outputPath);
+            throw e;
+        }
+        log.debug("Exported PDF to: {}", outputPath);
+    }
+
+    /** Exports every note under {@code root}; see {@link #exportAll}. */
+    public BatchResult exportFolder(Path root, Path outputDir) throws IOException {
+        return exportAll(root, SiteExportService.listNotes(root, outputDir.toAbsolutePath().normalize()), outputDir);
+    }
+
+    /**
+     * Exports each note under {@code root} to a PDF at the same relative path under
+     * {@code outputDir}, one note per core at a time.
+     */
+    public BatchResult exportAll(Path root, Collection<Path> notes, Path outputDir) {
+        long start = System.currentTimeMillis();
+        AtomicInteger exported = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        int threads = Math.max(1, Math.min(notes.size(), Runtime.getRuntime().availableProcessors()));
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (Path note : notes) {
+                executor.submit(() -> {
+                    Path target = outputDir.resolve(pdfName(root.relativize(note)));
+                    try {
+                        Files.createDirectories(target.getParent());
+                        exportPdf(Files.readString(note), target);
+                        exported.incrementAndGet();
+                    } catch (IOException | RuntimeException e) {
+                        log.warn("Failed to export {} as PDF", note, e);
+                        failed.incrementAndGet();
+                    }
+                });
+            }
+        }
+        long millis = System.currentTimeMillis() - start;
+        log.info("PDF export: {} exported, {} failed ({}ms)", exported.get(), failed.get(), millis);
+        return new BatchResult(exported.get(), failed.get(), millis);
+    }
+
+    private static String pdfName(Path relative) {
+        String name = relative.toString();
+        int dot = name.lastIndexOf('.');
+        int separator = Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\'));
+        return (dot > separator ? name.substring(0, dot) : name) + ".pdf";
+    }
+
+    /** A styled stretch of inline text. */
+    private record Run(String text, Font font, int color) {
+    }
+
+    /** Flows blocks down the page, starting a new page whenever the next line does not fit. */
+    private static final class Layout {
+        private final PdfWriter writer;
+        private float y;
+        private float indent;
+        private int color = TEXT_COLOR;
+        private String pendingMarker;
+        private boolean pageOpen;
+
+        Layout(PdfWriter writer) {
+            this.writer = writer;
+        }
+
+        void render(Node document) throws IOException {
+            renderChildren(document);
+            if (pageOpen) endPage();
+        }
+
+        private void renderChildren(Node parent) throws IOException {
+            for (Node child = parent.getFirstChild(); child != null; child = child.getNext()) {
+                renderBlock(child);
+            }
+        }
+
+        private void renderBlock(Node node) throws IOException {
+            if (node instanceof Heading heading) {
+                float size = HEADING_SIZES[Math.min(heading.getLevel(), HEADING_SIZES.length) - 1];
+                space(size * 0.8f);
+                int saved = color;
+                color = HEADING_COLOR;
+                flow(inlines(heading, Font.BOLD), size);
+                color = saved;
+                if (heading.getLevel() <= 2) rule();
+                space(size * 0.3f);
+            } else if (node instanceof Paragraph paragraph) {
+                flow(inlines(paragraph, Font.REGULAR), BODY_SIZE);
+                // Items of a tight list sit directly under each other
+                if (!(paragraph.getParent() instanceof ListItem item && isTight(item))) {
+                    space(BODY_SIZE * 0.6f);
+                }
+            } else if (node instanceof BulletList || node instanceof OrderedList) {
+                int number = node instanceof OrderedList ordered && ordered.getMarkerStartNumber() != null
+                        ? ordered.getMarkerStartNumber() : 1;
+                indent += LIST_INDENT;
+                for (Node item = node.getFirstChild(); item != null; item = item.getNext()) {
+                    pendingMarker = node instanceof OrderedList ? (number++) + "." : "•";
+                    renderChildren(item);
+                    pendingMarker = null;
+                }
+                indent -= LIST_INDENT;
+                if (!(node.getParent() instanceof ListItem)) space(BODY_SIZE * 0.6f);
+            } else if (node instanceof BlockQuote) {
+                int saved = color;
+                indent += LIST_INDENT;
+                color = MUTED_COLOR;
+                renderChildren(node);
+                color = saved;
+                indent -= LIST_INDENT;
+            } else if (node instanceof FencedCodeBlock code) {
+                codeBlock(code.getLiteral());
+            } else if (node instanceof IndentedCodeBlock code) {
+                codeBlock(code.getLiteral());
+            } else if (node instanceof HtmlBlock html) {
+                codeBlock(html.getLiteral());
+            } else if (node instanceof ThematicBreak) {
+                space(BODY_SIZE * 0.5f);
+                rule();
+                space(BODY_SIZE * 0.5f);
+            } else if (!(node instanceof LinkReferenceDefinition)) {
+                renderChildren(node);
+            }
+        }
+
+        private static boolean isTight(ListItem item) {
+            return item.getParent() instanceof ListBlock list && list.isTight();
+        }
+
+        private List<Run> inlines(Node block, Font font) {
+            List<Run> runs = new ArrayList<>();
+            collect(block, font, color, runs);
+            return runs;
+        }
+
+        private static void collect(Node parent, Font font, int color, List<Run> runs) {
+            for (Node node = parent.getFirstChild(); node != null; node = node.getNext()) {
+                if (node instanceof Text text) {
+                    runs.add(new Run(text.getLiteral(), font, color));
+                } else if (node instanceof Code code) {
+                    runs.add(new Run(code.getLiteral(), Font.MONO, color));
+                } else if (node instanceof StrongEmphasis) {
+                    collect(node, Font.BOLD, color, runs);
+                } else if (node instanceof Emphasis) {
+                    // The standard fonts have no bold italic; bold wins
+                    collect(node, font == Font.BOLD ? Font.BOLD : Font.ITALIC, color, runs);
+                } else if (node instanceof Link) {
+                    collect(node, font, LINK_COLOR, runs);
+                } else if (node instanceof Image) {
+                    collect(node, Font.ITALIC, color, runs);
+                } else if (node instanceof SoftLineBreak) {
+                    runs.add(new Run(" ", font, color));
+                } else if (node instanceof HardLineBreak) {
+                    runs.add(new Run("\n", font, color));
+                } else if (node instanceof HtmlInline html) {
+                    runs.add(new Run(html.getLiteral(), font, color));
+                } else {
+                    collect(node, font, color, runs);
+                }
+            }
+        }
+
+        /** Word-wraps runs into lines at {@code size}; words keep their styling across runs. */
+        private void flow(List<Run> runs, float size) throws IOException {
+            float maxWidth = PdfWriter.PAGE_WIDTH - 2 * MARGIN - indent;
+            List<Run> line = new ArrayList<>();
+            List<Run> word = new ArrayList<>();
+            float lineWidth = 0;
+            float wordWidth = 0;
+
+            for (Run run : runs) {
+                String text = run.text();
+                int i = 0;
+                while (i < text.length()) {
+                    char c = text.charAt(i);
+                    if (c == ' ' || c == '\n') {
+                        if (lineWidth + wordWidth > maxWidth && !line.isEmpty()) {
+                            emitLine(trimTrailingSpace(line), size);
+                            line.clear();
+                            lineWidth = 0;
+                        }
+                        line.addAll(word);
+                        lineWidth += wordWidth;
+                        word.clear();
+                        wordWidth = 0;
+                        if (c == '\n') {
+                            emitLine(trimTrailingSpace(line), size);
+                            line.clear();
+                            lineWidth = 0;
+                        } else if (!line.isEmpty()) {
+                            line.add(new Run(" ", run.font(), run.color()));
+                            lineWidth += PdfWriter.width(run.font(), size, " ");
+                        }
+                        i++;
+                        continue;
+                    }
+                    int end = i;
+                    while (end < text.length() && text.charAt(end) != ' ' && text.charAt(end) != '\n') end++;
+                    String piece = text.substring(i, end);
+                    float pieceWidth = PdfWriter.width(run.font(), size, piece);
+                    // A word longer than the whole line is broken wherever it runs out of room
+                    while (wordWidth + pieceWidth > maxWidth && !piece.isEmpty()) {
+                        int fit = fitChars(piece, run.font(), size, maxWidth - wordWidth);
+                        if (!line.isEmpty()) {
+                            emitLine(trimTrailingSpace(line), size);
+                            line.clear();
+                            lineWidth = 0;
+                        }
+                        word.add(new Run(piece.substring(0, fit), run.font(), run.color()));
+                        emitLine(word, size);
+                        word.clear();
+                        wordWidth = 0;
+                        piece = piece.substring(fit);
+                        pieceWidth = PdfWriter.width(run.font(), size, piece);
+                    }
+                    if (!piece.isEmpty()) {
+                        word.add(new Run(piece, run.font(), run.color()));
+                        wordWidth += pieceWidth;
+                    }
+                    i = end;
+                }
+            }
+            if (lineWidth + wordWidth > maxWidth && !line.isEmpty()) {
+                emitLine(trimTrailingSpace(line), size);
+                line.clear();
+            }
+            line.addAll(word);
+            if (!line.isEmpty()) emitLine(trimTrailingSpace(line), size);
+        }
+
+        private static int fitChars(String text, Font font, float size, float width) {
+            int fit = 0;
+            float used = 0;
+            while (fit < text.length()) {
+                used += PdfWriter.width(font, size, text.substring(fit, fit + 1));
+                if (used > width) break;
+                fit++;
+            }
+            return Math.max(1, fit);
+        }
+
+        private static List<Run> trimTrailingSpace(List<Run> line) {
+            int end = line.size();
+            while (end > 0 && line.get(end - 1).text().equals(" ")) end--;
+            return line.subList(0, end);
+        }
+
+        private void emitLine(List<Run> runs, float size) throws IOException {
+            float leading = size * LINE_SPACING;
+            ensureRoom(leading);
+            y -= leading;
+            float x = MARGIN + indent;
+            if (pendingMarker != null) {
+                float markerWidth = PdfWriter.width(Font.REGULAR, size, pendingMarker);
+                writer.text(x - markerWidth - 6, y, Font.REGULAR, size, color, pendingMarker);
+                pendingMarker = null;
+            }
+            // Words arrive as separate runs; draw each same-styled stretch with one operator
+            int i = 0;
+            while (i < runs.size()) {
+                Run first = runs.get(i);
+                StringBuilder text = new StringBuilder(first.text());
+                int j = i + 1;
+                while (j < runs.size() && runs.get(j).font() == first.font() && runs.get(j).color() == first.color()) {
+                    text.append(runs.get(j++).text());
+                }
+                writer.text(x, y, first.font(), size, first.color(), text.toString());
+                x += PdfWriter.width(first.font(), size, text);
+                i = j;
+            }
+        }
+
+        private void codeBlock(String literal) throws IOException {
+            String text = literal.endsWith("\n") ? literal.substring(0, literal.length() - 1) : literal;
+            float maxWidth = PdfWriter.PAGE_WIDTH - 2 * MARGIN - indent - LIST_INDENT;
+            int perLine = Math.max(1, (int) (maxWidth / PdfWriter.width(Font.MONO, CODE_SIZE, " ")));
+            float saved = indent;
+            indent += LIST_INDENT / 2;
+            for (String line : text.split("\n", -1)) {
+                line = line.replace("\t", "    ");
+                // Code keeps its line breaks; overlong lines are cut at the margin
+                do {
+                    String part = line.substring(0, Math.min(perLine, line.length()));
+                    emitLine(List.of(new Run(part, Font.MONO, color)), CODE_SIZE);
+                    line = line.substring(part.length());
+                } while (!line.isEmpty());
+            }
+            indent = saved;
+            space(BODY_SIZE * 0.6f);
+        }
+
+        private void rule() throws IOException {
+            ensureRoom(4);
+            y -= 4;
+            writer.line(MARGIN + indent, y, PdfWriter.PAGE_WIDTH - MARGIN, y, 0.75f, RULE_COLOR);
+        }
+
+        private void space(float points) {
+            // Space at the top of a page is dropped
+            if (pageOpen && y < PdfWriter.PAGE_HEIGHT - MARGIN) {
+                y -= points;
+            }
+        }
+
+        private void ensureRoom(float height) throws IOException {
+            if (pageOpen && y - height >= MARGIN) return;
+            if (pageOpen) endPage();
+            writer.beginPage();
+            pageOpen = true;
+            y = PdfWriter.PAGE_HEIGHT - MARGIN;
+        }
+
+        private void endPage() throws IOException {
+            String number = Integer.toString(writer.getPageCount() + 1);
+            float width = PdfWriter.width(Font.REGULAR, 9, number);
+            writer.text((PdfWriter.PAGE_WIDTH - width) / 2, MARGIN / 2, Font.REGULAR, 9, MUTED_COLOR, number);
+            writer.endPage();
+            pageOpen = false;
+        }
+    }
+}
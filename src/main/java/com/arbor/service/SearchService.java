@@ -1,5 +1,8 @@
 package com.arbor.service;
 
+import com.arbor.model.MatchMode;
+import com.arbor.util.ArborEvents;
+import com.arbor.util.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,12 +13,40 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class SearchService {
     private static final Logger log = LoggerFactory.getLogger(SearchService.class);
+    private static final MetricsRegistry.Timer CONTENT_TIMER = MetricsRegistry.global().timer("search.content");
+    private static final MetricsRegistry.Timer NAME_TIMER = MetricsRegistry.global().timer("search.name");
+    private static final MetricsRegistry.Histogram CONTENT_RESULTS = MetricsRegistry.global().histogram("search.content.results");
+
+    private static final int MAX_SNIPPETS = 3;
+    private static final int SNIPPET_CONTEXT = 60;
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+    private static final double FILENAME_BOOST = 1.5;
+
+    private final ContentIndexService contentIndex;
+
+    public SearchService() {
+        this(null);
+    }
+
+    public SearchService(ContentIndexService contentIndex) {
+        this.contentIndex = contentIndex;
+    }
 
     public List<Path> searchByName(Path root, String query) {
+        long start = System.nanoTime();
+        ArborEvents.Search event = new ArborEvents.Search();
+        event.begin();
         List<Path> results = new ArrayList<>();
         String lowerQuery = query.toLowerCase();
 
@@ -49,13 +80,181 @@ public class SearchService {
         } catch (IOException e) {
             log.error("Search failed", e);
         }
+        NAME_TIMER.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = "name";
+            event.query = query;
+            event.results = results.size();
+            event.commit();
+        }
         return results;
     }
 
     public List<SearchResult> searchByContent(Path root, String query) {
-        List<SearchResult> results = new ArrayList<>();
+        return searchByContent(root, query, MatchMode.LITERAL, false);
+    }
+
+    /**
+     * Finds files whose content matches {@code query}, ranked by BM25 over the whole query as
+     * one term. Each result carries its hit count and the first few matching lines with match
+     * offsets, so callers can render it without reading the file again. The content index
+     * narrows the files that are read and supplies document lengths when it can; otherwise
+     * every file under {@code root} is scanned.
+     *
+     * @throws java.util.regex.PatternSyntaxException if a REGEX query is malformed
+     */
+    public List<SearchResult> searchByContent(Path root, String query, MatchMode mode, boolean caseSensitive) {
+        return searchByContent(root, query, mode, caseSensitive, () -> false);
+    }
+
+    /**
+     * Like {@link #searchByContent(Path, String, MatchMode, boolean)}, but checks
+     * {@code cancelled} between files and returns an empty list as soon as it reports true, so
+     * a search superseded by newer input stops reading files.
+     */
+    public List<SearchResult> searchByContent(Path root, String query, MatchMode mode, boolean caseSensitive,
+                                              BooleanSupplier cancelled) {
+        long start = System.nanoTime();
+        ArborEvents.Search event = new ArborEvents.Search();
+        event.begin();
+        Pattern pattern = mode.compile(query, caseSensitive);
+        Set<Path> candidates = contentIndex != null ? contentIndex.candidates(query, mode) : null;
+        List<Path> files = candidates != null ? new ArrayList<>(candidates) : listFiles(root);
+
+        List<FileHits> matched = new ArrayList<>();
+        long scannedLength = 0;
+        for (Path file : files) {
+            if (cancelled.getAsBoolean()) {
+                log.debug("Content search for '{}' superseded", query);
+                return List.of();
+            }
+            try {
+                String content = Files.readString(file);
+                int length = contentIndex != null ? contentIndex.getLength(file) : -1;
+                if (length < 0) length = ContentIndexService.countWords(content);
+                scannedLength += length;
+                FileHits hits = collectHits(file, content, pattern, length);
+                if (hits != null) matched.add(hits);
+            } catch (IOException e) {
+                // Skip binary/unreadable files
+            }
+        }
+
+        // Corpus statistics come from the index when it is built, else from the files just read
+        int documentCount = contentIndex != null ? contentIndex.getDocumentCount() : 0;
+        double averageLength;
+        if (documentCount > 0) {
+            averageLength = contentIndex.getAverageLength();
+        } else {
+            documentCount = files.size();
+            averageLength = files.isEmpty() ? 0 : (double) scannedLength / files.size();
+        }
+        // BM25's idf in the log(1 + ...) form, which stays positive for terms in most files; the
+        // index can briefly count fewer files than matched (new ones not indexed yet), and a
+        // negative N - df would turn the idf negative and invert the ranking
+        int df = matched.size();
+        int n = Math.max(documentCount, df);
+        double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
         String lowerQuery = query.toLowerCase();
 
+        List<SearchResult> results = new ArrayList<>(matched.size());
+        for (FileHits hits : matched) {
+            double norm = averageLength > 0 ? hits.length / averageLength : 1;
+            double score = idf * hits.count * (BM25_K1 + 1)
+                    / (hits.count + BM25_K1 * (1 - BM25_B + BM25_B * norm));
+            String name = hits.file.getFileName().toString();
+            if (mode != MatchMode.REGEX && name.toLowerCase().contains(lowerQuery)) {
+                score *= FILENAME_BOOST;
+            }
+            results.add(new SearchResult(hits.file, name, score, hits.count, hits.snippets));
+        }
+        results.sort(Comparator.comparingDouble(SearchResult::score).reversed()
+                .thenComparing(SearchResult::path));
+        log.debug("Content search read {} files ({}), {} matched", files.size(),
+                candidates != null ? "index prefiltered" : "full walk", results.size());
+        CONTENT_TIMER.recordSince(start);
+        CONTENT_RESULTS.record(results.size());
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = "content";
+            event.query = query;
+            event.filesRead = files.size();
+            event.results = results.size();
+            event.commit();
+        }
+        return results;
+    }
+
+    private record FileHits(Path file, int count, int length, List<Snippet> snippets) {
+    }
+
+    private static FileHits collectHits(Path file, String content, Pattern pattern, int length) {
+        Matcher matcher = pattern.matcher(content);
+        List<Snippet> snippets = new ArrayList<>();
+        int count = 0;
+        int line = 0;
+        int lineCountedTo = 0;
+        int lineStart = -1;
+        int lineEnd = -1;
+        List<Integer> offsets = new ArrayList<>();
+
+        while (matcher.find()) {
+            if (matcher.end() == matcher.start()) continue;
+            count++;
+            if (snippets.size() >= MAX_SNIPPETS) continue;
+
+            int start = matcher.start();
+            if (start >= lineEnd) {
+                if (!offsets.isEmpty()) {
+                    snippets.add(snippet(content, line, lineStart, lineEnd, offsets));
+                    offsets.clear();
+                    if (snippets.size() >= MAX_SNIPPETS) continue;
+                }
+                lineStart = content.lastIndexOf('\n', start - 1) + 1;
+                lineEnd = content.indexOf('\n', start);
+                if (lineEnd < 0) lineEnd = content.length();
+                for (int i = lineCountedTo; i < lineStart; i++) {
+                    if (content.charAt(i) == '\n') line++;
+                }
+                lineCountedTo = lineStart;
+            }
+            // Regex matches may run past the line; highlight only the part on it
+            offsets.add(start - lineStart);
+            offsets.add(Math.min(matcher.end(), lineEnd) - lineStart);
+        }
+        if (!offsets.isEmpty() && snippets.size() < MAX_SNIPPETS) {
+            snippets.add(snippet(content, line, lineStart, lineEnd, offsets));
+        }
+        return count == 0 ? null : new FileHits(file, count, length, List.copyOf(snippets));
+    }
+
+    /** Trims a long line to a window around its first match, shifting highlights to suit. */
+    private static Snippet snippet(String content, int line, int lineStart, int lineEnd, List<Integer> offsets) {
+        int from = 0;
+        int to = lineEnd - lineStart;
+        if (to > SNIPPET_CONTEXT * 2) {
+            from = Math.max(0, offsets.get(0) - SNIPPET_CONTEXT);
+            to = Math.min(to, from + SNIPPET_CONTEXT * 2);
+        }
+        String prefix = from > 0 ? "\u2026" : "";
+        String text = prefix + content.substring(lineStart + from, lineStart + to)
+                + (to < lineEnd - lineStart ? "\u2026" : "");
+
+        int[] highlights = new int[offsets.size()];
+        int n = 0;
+        for (int i = 0; i < offsets.size(); i += 2) {
+            int start = Math.max(offsets.get(i), from);
+            int end = Math.min(offsets.get(i + 1), to);
+            if (start >= end) continue;
+            highlights[n++] = start - from + prefix.length();
+            highlights[n++] = end - from + prefix.length();
+        }
+        return new Snippet(line, text, Arrays.copyOf(highlights, n));
+    }
+
+    private List<Path> listFiles(Path root) {
+        List<Path> files = new ArrayList<>();
         try {
             Files.walkFileTree(root, new SimpleFileVisitor<>() {
                 @Override
@@ -69,14 +268,7 @@ public class SearchService {
 
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                    try {
-                        String content = Files.readString(file);
-                        if (content.toLowerCase().contains(lowerQuery)) {
-                            results.add(new SearchResult(file, file.getFileName().toString()));
-                        }
-                    } catch (IOException e) {
-                        // Skip binary/unreadable files
-                    }
+                    files.add(file);
                     return FileVisitResult.CONTINUE;
                 }
 
@@ -88,9 +280,23 @@ public class SearchService {
         } catch (IOException e) {
             log.error("Content search failed", e);
         }
-        return results;
+        return files;
+    }
+
+    /**
+     * A search hit. Content results carry a relevance score, the number of matches in the file
+     * and up to {@value #MAX_SNIPPETS} matching lines; name and tag results leave them empty.
+     */
+    public record SearchResult(Path path, String displayName, double score, int hitCount, List<Snippet> snippets) {
+        public SearchResult(Path path, String displayName) {
+            this(path, displayName, 0, 0, List.of());
+        }
     }
 
-    public record SearchResult(Path path, String displayName) {
+    /**
+     * One matching line, possibly trimmed with ellipses. {@code highlights} holds start/end
+     * pairs of match offsets into {@code text}; {@code lineNumber} is zero-based.
+     */
+    public record Snippet(int lineNumber, String text, int[] highlights) {
     }
 }
@@ -0,0 +1,443 @@
+package com.arbor.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+
+/**
+ * Publishes a folder of notes as a static HTML site. Notes render in parallel, {@code [[links]]}
+ * become relative hrefs, and each tag gets an index page. A manifest of content hashes in the
+ * output folder lets a re-export skip every page whose source has not changed.
+ */
+public class SiteExportService {
+    private static final Logger log = LoggerFactory.getLogger(SiteExportService.class);
+
+    private static final String MANIFEST = ".arbor-site";
+    private static final String STYLESHEET = "style.css";
+    // Underscored so a grove folder named "tags" keeps its own pages
+    private static final String TAGS_DIR = "_tags";
+    // Bump when page output changes, so the next export re-renders everything
+    private static final String RENDER_VERSION = "1";
+
+    /** Counts from one export; unchanged pages were not rewritten. */
+    public record SiteExportResult(int rendered, int unchanged, int failed, int tagPages, long millis) {
+    }
+
+    /** A note to publish, with its link-resolved markdown and the hash of that text. */
+    private record Note(Path source, String outputPath, String title, String markdown, Set<String> tags,
+                        String hash) {
+    }
+
+    private final ExportService exportService;
+
+    public SiteExportService(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /** Renders every note under {@code sourceRoot} into {@code outputDir}. Blocks until done. */
+    public SiteExportResult exportSite(Path sourceRoot, Path outputDir, boolean darkMode) throws IOException {
+        long start = System.currentTimeMillis();
+        Path output = outputDir.toAbsolutePath().normalize();
+        List<Path> sources = listNotes(sourceRoot, output);
+        Files.createDirectories(output);
+        Map<String, String> linkTargets = linkTargets(sourceRoot, sources);
+        Properties previous = readManifest(output);
+        Map<String, String> hashes = new ConcurrentHashMap<>();
+
+        // Read and link-resolve in parallel first; tag pages need every note's tags
+        List<Note> notes = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger failed = new AtomicInteger();
+        forEachParallel(sources, source -> {
+            try {
+                notes.add(prepare(sourceRoot, source, linkTargets));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to read {} for export", source, e);
+                keepPrevious(replaceExtension(slashes(sourceRoot.relativize(source))), previous, hashes);
+                failed.incrementAndGet();
+            }
+        });
+
+        AtomicInteger rendered = new AtomicInteger();
+        AtomicInteger unchanged = new AtomicInteger();
+        forEachParallel(notes, note -> {
+            hashes.put(note.outputPath(), note.hash());
+            Path target = output.resolve(note.outputPath());
+            if (note.hash().equals(previous.getProperty(note.outputPath())) && Files.exists(target)) {
+                unchanged.incrementAndGet();
+                return;
+            }
+            try {
+                String body = exportService.renderMarkdown(note.markdown()) + tagFooter(note);
+                writePage(target, exportService.toLinkedHtml(note.title(), body, cssHref(note.outputPath())));
+                rendered.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to export {}", note.source(), e);
+                keepPrevious(note.outputPath(), previous, hashes);
+                failed.incrementAndGet();
+            }
+        });
+
+        if (!writeGenerated(output, STYLESHEET, exportService.loadCss(darkMode), previous, hashes)) {
+            failed.incrementAndGet();
+        }
+        int tagPages = writeTagPages(output, notes, previous, hashes, failed);
+        if (!sources.isEmpty() && !Files.exists(sourceRoot.resolve("index.md"))
+                && !writeGenerated(output, "index.html", indexPage(notes), previous, hashes)) {
+            failed.incrementAndGet();
+        }
+        removeStale(output, previous, hashes);
+        writeManifest(output, hashes);
+
+        long millis = System.currentTimeMillis() - start;
+        log.info("Site export of {} notes: {} rendered, {} unchanged, {} failed, {} tag pages ({}ms)",
+                sources.size(), rendered.get(), unchanged.get(), failed.get(), tagPages, millis);
+        return new SiteExportResult(rendered.get(), unchanged.get(), failed.get(), tagPages, millis);
+    }
+
+    private Note prepare(Path sourceRoot, Path source, Map<String, String> linkTargets) throws IOException {
+        String content = Files.readString(source);
+        String relative = slashes(sourceRoot.relativize(source));
+        String outputPath = replaceExtension(relative);
+        String markdown = rewriteLinks(content, outputPath, linkTargets);
+
+        Set<String> tags = new TreeSet<>();
+        Matcher matcher = TagService.TAG_PATTERN.matcher(content);
+        while (matcher.find()) {
+            tags.add(matcher.group(1).toLowerCase());
+        }
+        return new Note(source, outputPath, removeExtension(source.getFileName().toString()), markdown, tags,
+                hash(markdown));
+    }
+
+    /**
+     * Turns {@code [[target]]} into a markdown link relative to the page, matched the way the
+     * backlink panel matches: by file name, then by name without extension. Unresolved links
+     * and anything inside fenced code are left as written.
+     */
+    static String rewriteLinks(String content, String outputPath, Map<String, String> linkTargets) {
+        StringBuilder sb = new StringBuilder(content.length() + 64);
+        boolean fenced = false;
+        int lineStart = 0;
+        while (lineStart <= content.length()) {
+            int lineEnd = content.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = content.length();
+            String line = content.substring(lineStart, lineEnd);
+            String trimmed = line.stripLeading();
+            if (trimmed.startsWith("```") || trimmed.startsWith("~~~")) {
+                fenced = !fenced;
+                sb.append(line);
+            } else if (fenced || line.indexOf("[[") < 0) {
+                sb.append(line);
+            } else {
+                Matcher matcher = BacklinkService.BACKLINK_PATTERN.matcher(line);
+                while (matcher.find()) {
+                    String text = matcher.group(1).trim();
+                    String target = linkTargets.get(text.toLowerCase());
+                    String replacement = target == null ? matcher.group()
+                            : "[" + text.replace("[", "\\[") + "](<" + relativeHref(outputPath, target) + ">)";
+                    matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+                }
+                matcher.appendTail(sb);
+            }
+            if (lineEnd < content.length()) sb.append('\n');
+            lineStart = lineEnd + 1;
+        }
+        return sb.toString();
+    }
+
+    /** Maps lower-cased link text to output paths; exact file names win over bare names. */
+    private static Map<String, String> linkTargets(Path sourceRoot, List<Path> sources) {
+        Map<String, String> byName = new HashMap<>();
+        Map<String, String> byBareName = new HashMap<>();
+        for (Path source : sources) {
+            String fileName = source.getFileName().toString().toLowerCase();
+            String outputPath = replaceExtension(slashes(sourceRoot.relativize(source)));
+            byName.putIfAbsent(fileName, outputPath);
+            byBareName.putIfAbsent(removeExtension(fileName), outputPath);
+        }
+        byBareName.putAll(byName);
+        return byBareName;
+    }
+
+    private static String tagFooter(Note note) {
+        if (note.tags().isEmpty()) return "";
+        StringBuilder sb = new StringBuilder("<hr>\n<p class=\"tags\">");
+        for (String tag : note.tags()) {
+            sb.append("<a href=\"").append(relativeHref(note.outputPath(), TAGS_DIR + "/" + tag + ".html"))
+                    .append("\">#").append(tag).append("</a> ");
+        }
+        return sb.append("</p>\n").toString();
+    }
+
+    private int writeTagPages(Path output, List<Note> notes, Properties previous, Map<String, String> hashes,
+                              AtomicInteger failed) {
+        Map<String, List<Note>> byTag = new TreeMap<>();
+        for (Note note : notes) {
+            for (String tag : note.tags()) {
+                byTag.computeIfAbsent(tag, k -> new ArrayList<>()).add(note);
+            }
+        }
+        if (byTag.isEmpty()) return 0;
+        Set<String> notePaths = new HashSet<>();
+        for (Note note : notes) {
+            notePaths.add(note.outputPath());
+        }
+
+        String indexPath = TAGS_DIR + "/index.html";
+        StringBuilder index = new StringBuilder("<h1>Tags</h1>\n<ul>\n");
+        for (var entry : byTag.entrySet()) {
+            String tag = entry.getKey();
+            List<Note> tagged = entry.getValue();
+            tagged.sort((a, b) -> a.outputPath().compareTo(b.outputPath()));
+            String pagePath = TAGS_DIR + "/" + tag + ".html";
+            index.append("<li><a href=\"").append(relativeHref(indexPath, pagePath)).append("\">#")
+                    .append(tag).append("</a> (").append(tagged.size()).append(")</li>\n");
+
+            String body = "<h1>#" + tag + "</h1>\n" + noteList(pagePath, tagged);
+            if (clashes(pagePath, notePaths)) {
+                failed.incrementAndGet();
+            } else if (!writeGenerated(output, pagePath, exportService.toLinkedHtml("#" + tag, body, cssHref(pagePath)),
+                    previous, hashes)) {
+                failed.incrementAndGet();
+            }
+        }
+        index.append("</ul>\n");
+        if (clashes(indexPath, notePaths)) {
+            failed.incrementAndGet();
+        } else if (!writeGenerated(output, indexPath,
+                exportService.toLinkedHtml("Tags", index.toString(), cssHref(indexPath)), previous, hashes)) {
+            failed.incrementAndGet();
+        }
+        return byTag.size() + 1;
+    }
+
+    /** Whether a generated page would overwrite a note's page; the note wins and this is logged. */
+    private static boolean clashes(String path, Set<String> notePaths) {
+        if (!notePaths.contains(path)) return false;
+        log.warn("Skipped tag page {}: a note in the grove exports to the same path", path);
+        return true;
+    }
+
+    private String indexPage(List<Note> notes) {
+        List<Note> sorted = new ArrayList<>(notes);
+        sorted.sort((a, b) -> a.outputPath().compareTo(b.outputPath()));
+        return exportService.toLinkedHtml("Index", "<h1>Index</h1>\n" + noteList("index.html", sorted),
+                STYLESHEET);
+    }
+
+    private static String noteList(String fromPath, List<Note> notes) {
+        StringBuilder sb = new StringBuilder("<ul>\n");
+        for (Note note : notes) {
+            sb.append("<li><a href=\"").append(relativeHref(fromPath, note.outputPath())).append("\">")
+                    .append(ExportService.escapeHtml(note.outputPath().replaceFirst("\\.html$", "")))
+                    .append("</a></li>\n");
+        }
+        return sb.append("</ul>\n").toString();
+    }
+
+    /**
+     * Writes a generated page unless its text is the same as last export's. A page that fails
+     * to write is logged and keeps its previous entry, so the rest of the export and the
+     * manifest still complete.
+     *
+     * @return whether the page is up to date
+     */
+    private static boolean writeGenerated(Path output, String path, String content, Properties previous,
+                                          Map<String, String> hashes) {
+        String hash = hash(content);
+        Path target = output.resolve(path);
+        try {
+            if (!hash.equals(previous.getProperty(path)) || !Files.exists(target)) {
+                writePage(target, content);
+            }
+            hashes.put(path, hash);
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to write {}", target, e);
+            keepPrevious(path, previous, hashes);
+            return false;
+        }
+    }
+
+    /**
+     * Carries a page's entry over from the last export when it could not be rebuilt, so the
+     * old page is kept rather than removed as stale; the changed hash re-renders it next time.
+     */
+    private static void keepPrevious(String path, Properties previous, Map<String, String> hashes) {
+        String hash = previous.getProperty(path);
+        if (hash != null) {
+            hashes.put(path, hash);
+        } else {
+            hashes.remove(path);
+        }
+    }
+
+    private static void writePage(Path target, String content) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.writeString(target, content);
+    }
+
+    /** Deletes pages written by the last export whose notes no longer exist. */
+    private static void removeStale(Path output, Properties previous, Map<String, String> hashes) {
+        for (String path : previous.stringPropertyNames()) {
+            if (hashes.containsKey(path)) continue;
+            try {
+                Files.deleteIfExists(output.resolve(path));
+            } catch (IOException e) {
+                log.debug("Failed to remove stale page {}", path, e);
+            }
+        }
+    }
+
+    private static Properties readManifest(Path output) {
+        Properties manifest = new Properties();
+        Path file = output.resolve(MANIFEST);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                manifest.load(reader);
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable export manifest {}", file, e);
+                manifest.clear();
+            }
+        }
+        return manifest;
+    }
+
+    private static void writeManifest(Path output, Map<String, String> hashes) throws IOException {
+        Properties manifest = new Properties();
+        manifest.putAll(hashes);
+        try (Writer writer = Files.newBufferedWriter(output.resolve(MANIFEST), StandardCharsets.UTF_8)) {
+            manifest.store(writer, "Arbor site export");
+        }
+    }
+
+    /**
+     * Markdown notes under {@code root} in path order, leaving out hidden folders and
+     * {@code output}. Fails if {@code output} is the grove or a folder containing it, since an
+     * export writes and prunes pages throughout its output folder.
+     */
+    static List<Path> listNotes(Path root, Path output) throws IOException {
+        if (root.toAbsolutePath().normalize().startsWith(output)) {
+            throw new IOException("Export folder " + output + " can't be the grove or a folder containing it");
+        }
+        List<Path> notes = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String name = dir.getFileName() == null ? "" : dir.getFileName().toString();
+                if (!dir.equals(root) && (name.equals(".arbor") || name.startsWith("."))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                // Never publish a previous export back into itself
+                if (dir.toAbsolutePath().normalize().equals(output)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String name = file.getFileName().toString();
+                if (attrs.isRegularFile() && !name.startsWith(".") && name.toLowerCase().endsWith(".md")) {
+                    notes.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        // Sorted so that duplicate note names always resolve to the same one
+        Collections.sort(notes);
+        return notes;
+    }
+
+    /** Rendering is CPU-bound, so it runs on one platform thread per core. */
+    private static <T> void forEachParallel(List<T> items, Consumer<T> task) {
+        int threads = Math.max(1, Math.min(items.size(), Runtime.getRuntime().availableProcessors()));
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (T item : items) {
+                executor.submit(() -> task.accept(item));
+            }
+        }
+    }
+
+    /** Percent-encoded href from the page at {@code fromPath} to {@code toPath}, both site-relative. */
+    static String relativeHref(String fromPath, String toPath) {
+        int fromDir = fromPath.lastIndexOf('/');
+        String relative = Path.of(fromDir < 0 ? "" : fromPath.substring(0, fromDir)).relativize(Path.of(toPath))
+                .toString().replace('\\', '/');
+        // A colon in the first segment would otherwise read as a URL scheme
+        int colon = relative.indexOf(':');
+        int slash = relative.indexOf('/');
+        if (colon >= 0 && (slash < 0 || colon < slash)) {
+            relative = "./" + relative;
+        }
+        try {
+            return new URI(null, null, relative, null).toASCIIString();
+        } catch (URISyntaxException e) {
+            return relative;
+        }
+    }
+
+    private static String cssHref(String pagePath) {
+        return relativeHref(pagePath, STYLESHEET);
+    }
+
+    private static String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(RENDER_VERSION.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String slashes(Path relative) {
+        return relative.toString().replace('\\', '/');
+    }
+
+    private static String replaceExtension(String path) {
+        int dot = path.lastIndexOf('.');
+        int slash = path.lastIndexOf('/');
+        return (dot > slash ? path.substring(0, dot) : path) + ".html";
+    }
+
+    private static String removeExtension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+}
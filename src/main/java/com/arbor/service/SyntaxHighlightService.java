@@ -1,5 +1,6 @@
 package com.arbor.service;
 
+import com.arbor.util.ArborEvents;
 import org.fxmisc.richtext.model.StyleSpans;
 import org.fxmisc.richtext.model.StyleSpansBuilder;
 
@@ -117,6 +118,8 @@ public class SyntaxHighlightService {
             return builder.create();
         }
 
+        ArborEvents.HighlightPass event = new ArborEvents.HighlightPass();
+        event.begin();
         Pattern pattern = LANGUAGE_PATTERNS.get(language);
         Matcher matcher = pattern.matcher(text);
         StyleSpansBuilder<Collection<String>> builder = new StyleSpansBuilder<>();
@@ -132,7 +135,14 @@ public class SyntaxHighlightService {
         }
 
         builder.add(Collections.emptySet(), text.length() - lastEnd);
-        return builder.create();
+        StyleSpans<Collection<String>> spans = builder.create();
+        event.end();
+        if (event.shouldCommit()) {
+            event.language = language;
+            event.length = text.length();
+            event.commit();
+        }
+        return spans;
     }
 
     public static StyleSpans<Collection<String>> overlayBacklinks(StyleSpans<Collection<String>> base, String text) {
@@ -1,5 +1,7 @@
 package com.arbor.service;
 
+import com.arbor.util.ArborEvents;
+import com.arbor.util.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -7,26 +9,55 @@ import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
+/**
+ * Index of {@code #tags} across the grove. Files are held by {@link FileRegistry} id: each tag
+ * maps to a bit set of the files that use it, and each file id to its tags, so per-file
+ * lookups and rescans need not visit every tag and a renamed file keeps its tags.
+ */
 public class TagService {
     private static final Logger log = LoggerFactory.getLogger(TagService.class);
+    private static final MetricsRegistry.Timer SCAN_TIMER = MetricsRegistry.global().timer("scan.tags");
 
     public static final Pattern TAG_PATTERN = Pattern.compile("(?<=\\s|^)#([a-zA-Z][a-zA-Z0-9_-]*)");
 
+    private final FileRegistry files;
     private Path grovePath;
-    private final Map<String, Set<Path>> tagIndex = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private Map<String, BitSet> tagIndex = new HashMap<>();
+    // Reverse of tagIndex by file id; null for files without tags
+    private List<Set<String>> fileTags = new ArrayList<>();
+    private int taggedFiles;
+
+    public TagService() {
+        this(new FileRegistry());
+    }
+
+    public TagService(FileRegistry files) {
+        this.files = files;
+    }
 
     public void setGrovePath(Path grovePath) {
         this.grovePath = grovePath;
+        files.setGrovePath(grovePath);
+        synchronized (this) {
+            tagIndex = new HashMap<>();
+            fileTags = new ArrayList<>();
+            taggedFiles = 0;
+        }
     }
 
     public void fullScan() {
         if (grovePath == null) return;
-        tagIndex.clear();
+        long start = System.nanoTime();
+        ArborEvents.GroveScan event = new ArborEvents.GroveScan();
+        event.begin();
+        Map<String, BitSet> newTagIndex = new HashMap<>();
+        List<Set<String>> newFileTags = new ArrayList<>();
+        int[] newTaggedFiles = {0};
 
         try {
             Files.walkFileTree(grovePath, new SimpleFileVisitor<>() {
@@ -44,43 +75,110 @@ public class TagService {
                     if (!attrs.isRegularFile() || file.getFileName().toString().startsWith(".")) {
                         return FileVisitResult.CONTINUE;
                     }
-                    scanFile(file);
+                    Set<String> tags = scanFile(file);
+                    if (!tags.isEmpty()) {
+                        add(files.idOf(file), tags, newTagIndex, newFileTags);
+                        newTaggedFiles[0]++;
+                    }
                     return FileVisitResult.CONTINUE;
                 }
             });
         } catch (IOException e) {
             log.error("Failed to scan for tags", e);
         }
+        synchronized (this) {
+            tagIndex = newTagIndex;
+            fileTags = newFileTags;
+            taggedFiles = newTaggedFiles[0];
+        }
+        SCAN_TIMER.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.index = "tags";
+            event.grove = grovePath.toString();
+            event.entries = newTaggedFiles[0];
+            event.commit();
+        }
     }
 
-    public void rescanFile(Path file) {
-        // Remove old entries for this file
-        tagIndex.values().forEach(paths -> paths.remove(file));
-        tagIndex.entrySet().removeIf(entry -> entry.getValue().isEmpty());
+    /** Re-indexes one file; returns whether its set of tags changed. */
+    public boolean rescanFile(Path file) {
+        ArborEvents.FileIndexUpdate event = new ArborEvents.FileIndexUpdate();
+        event.begin();
+        Set<String> tags = Files.isRegularFile(file) ? scanFile(file) : Set.of();
+        boolean changed;
+        synchronized (this) {
+            int id = tags.isEmpty() ? files.find(file) : files.idOf(file);
+            Set<String> oldTags = id >= 0 && id < fileTags.size() ? fileTags.get(id) : null;
+            if (oldTags == null) oldTags = Set.of();
+            changed = !tags.equals(oldTags);
+            if (changed) {
+                // Remove old entries for this file
+                for (String tag : oldTags) {
+                    BitSet ids = tagIndex.get(tag);
+                    ids.clear(id);
+                    if (ids.isEmpty()) tagIndex.remove(tag);
+                }
+                if (!oldTags.isEmpty()) {
+                    fileTags.set(id, null);
+                    taggedFiles--;
+                }
+                if (!tags.isEmpty()) {
+                    add(id, tags, tagIndex, fileTags);
+                    taggedFiles++;
+                }
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.index = "tags";
+            event.path = file.toString();
+            event.commit();
+        }
+        return changed;
+    }
 
-        // Re-scan
-        scanFile(file);
+    private static void add(int id, Set<String> tags, Map<String, BitSet> tagIndex, List<Set<String>> fileTags) {
+        for (String tag : tags) {
+            tagIndex.computeIfAbsent(tag, k -> new BitSet()).set(id);
+        }
+        while (fileTags.size() <= id) {
+            fileTags.add(null);
+        }
+        fileTags.set(id, tags);
     }
 
-    private void scanFile(Path file) {
+    private Set<String> scanFile(Path file) {
+        Set<String> tags = new HashSet<>();
         try {
             String content = Files.readString(file);
             Matcher matcher = TAG_PATTERN.matcher(content);
             while (matcher.find()) {
-                String tag = matcher.group(1).toLowerCase();
-                tagIndex.computeIfAbsent(tag, k -> ConcurrentHashMap.newKeySet()).add(file);
+                tags.add(matcher.group(1).toLowerCase());
             }
         } catch (IOException e) {
             log.debug("Failed to scan file for tags: {}", file, e);
         }
+        return Set.copyOf(tags);
+    }
+
+    public synchronized Set<Path> getFilesForTag(String tag) {
+        BitSet ids = tagIndex.get(tag.toLowerCase());
+        return ids != null ? paths(ids) : Set.of();
     }
 
-    public Set<Path> getFilesForTag(String tag) {
-        Set<Path> files = tagIndex.get(tag.toLowerCase());
-        return files != null ? Set.copyOf(files) : Set.of();
+    /** The file's tags in alphabetical order. */
+    public List<String> getTagsForFile(Path file) {
+        int id = files.find(file);
+        if (id < 0) return List.of();
+        Set<String> tags;
+        synchronized (this) {
+            tags = id < fileTags.size() ? fileTags.get(id) : null;
+        }
+        return tags != null ? tags.stream().sorted().toList() : List.of();
     }
 
-    public List<String> searchTags(String query) {
+    public synchronized List<String> searchTags(String query) {
         String lower = query.toLowerCase();
         return tagIndex.keySet().stream()
                 .filter(tag -> tag.startsWith(lower))
@@ -88,14 +186,21 @@ public class TagService {
                 .toList();
     }
 
-    public Map<String, Set<Path>> getAllTags() {
-        return tagIndex.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        e -> Set.copyOf(e.getValue()),
-                        (a, b) -> a,
-                        LinkedHashMap::new
-                ));
+    public synchronized Map<String, Set<Path>> getAllTags() {
+        Map<String, Set<Path>> result = new LinkedHashMap<>();
+        for (String tag : new TreeSet<>(tagIndex.keySet())) {
+            result.put(tag, paths(tagIndex.get(tag)));
+        }
+        return result;
+    }
+
+    // Caller holds the lock
+    private Set<Path> paths(BitSet ids) {
+        Set<Path> result = new HashSet<>();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            Path path = files.path(id);
+            if (path != null) result.add(path);
+        }
+        return Set.copyOf(result);
     }
 }
@@ -0,0 +1,131 @@
+package com.arbor.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events for Arbor's hot paths, shown under "Arbor" in JMC next to the
+ * JVM's own GC and I/O events. When no recording is running, {@code begin()} and
+ * {@code commit()} are close to free; callers check {@code shouldCommit()} before filling in
+ * fields that cost anything to compute.
+ */
+public final class ArborEvents {
+
+    private ArborEvents() {
+    }
+
+    @Name("com.arbor.GroveScan")
+    @Label("Grove Scan")
+    @Category({"Arbor", "Index"})
+    @Description("Full scan of the grove by one index")
+    @StackTrace(false)
+    public static final class GroveScan extends Event {
+        @Label("Index")
+        public String index;
+
+        @Label("Grove")
+        public String grove;
+
+        @Label("Entries")
+        @Description("Files or entries held by the index after the scan")
+        public int entries;
+    }
+
+    @Name("com.arbor.FileIndexUpdate")
+    @Label("File Index Update")
+    @Category({"Arbor", "Index"})
+    @Description("Re-index of one file after a save or an external change")
+    @StackTrace(false)
+    public static final class FileIndexUpdate extends Event {
+        @Label("Index")
+        public String index;
+
+        @Label("Path")
+        public String path;
+    }
+
+    @Name("com.arbor.Search")
+    @Label("Search")
+    @Category({"Arbor", "Search"})
+    @StackTrace(false)
+    public static final class Search extends Event {
+        @Label("Kind")
+        @Description("content or name")
+        public String kind;
+
+        @Label("Query")
+        public String query;
+
+        @Label("Files Read")
+        public int filesRead;
+
+        @Label("Results")
+        public int results;
+    }
+
+    @Name("com.arbor.HighlightPass")
+    @Label("Highlight Pass")
+    @Category({"Arbor", "Editor"})
+    @Description("Syntax highlighting of a whole document")
+    @StackTrace(false)
+    public static final class HighlightPass extends Event {
+        @Label("Language")
+        public String language;
+
+        @Label("Length")
+        @Description("Characters highlighted")
+        public int length;
+    }
+
+    @Name("com.arbor.OutlineBuild")
+    @Label("Outline Build")
+    @Category({"Arbor", "Editor"})
+    @StackTrace(false)
+    public static final class OutlineBuild extends Event {
+        @Label("Language")
+        public String language;
+
+        @Label("Length")
+        public int length;
+
+        @Label("Items")
+        public int items;
+    }
+
+    @Name("com.arbor.Save")
+    @Label("Save")
+    @Category({"Arbor", "Editor"})
+    @StackTrace(false)
+    public static final class Save extends Event {
+        @Label("Path")
+        public String path;
+
+        @Label("Autosave")
+        public boolean autosave;
+
+        @Label("Length")
+        @Description("Characters written")
+        public int length;
+    }
+
+    @Name("com.arbor.MarkdownRender")
+    @Label("Markdown Render")
+    @Category({"Arbor", "Render"})
+    @Description("Markdown to HTML for the preview or an export")
+    @StackTrace(false)
+    public static final class MarkdownRender extends Event {
+        @Label("Target")
+        @Description("preview or export")
+        public String target;
+
+        @Label("Markdown Length")
+        public int markdownLength;
+
+        @Label("HTML Length")
+        public int htmlLength;
+    }
+}
@@ -0,0 +1,206 @@
+package com.arbor.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Allocation-free fuzzy subsequence scoring over char arrays. A query matches when all its
+ * characters appear in order in the candidate; the score rewards matches at word starts
+ * (after a separator or a camel-case hump), runs of consecutive characters and an early
+ * first match, and penalizes gaps. Queries must already be lower-cased. A query of several
+ * words matches when every word does, in any order, so "save file" finds "File Save".
+ */
+public final class FuzzyMatcher {
+
+    public static final int NO_MATCH = Integer.MIN_VALUE;
+
+    private static final int SCORE_MATCH = 16;
+    private static final int BONUS_SEGMENT_START = 10;
+    private static final int BONUS_WORD_START = 8;
+    private static final int BONUS_CAMEL = 7;
+    private static final int BONUS_CONSECUTIVE = 5;
+    private static final int BONUS_FIRST_CHAR = 8;
+    private static final int PENALTY_GAP_START = 3;
+    private static final int PENALTY_GAP_EXTENSION = 1;
+
+    private FuzzyMatcher() {
+    }
+
+    /**
+     * Bitmask of the characters in {@code text}, for rejecting candidates that cannot contain
+     * a query before scoring them: a query can only match if its mask is a subset.
+     */
+    public static long charMask(CharSequence text) {
+        long mask = 0;
+        for (int i = 0; i < text.length(); i++) {
+            mask |= charBit(text.charAt(i));
+        }
+        return mask;
+    }
+
+    /** Mask of every token of a prepared query; see {@link #charMask(CharSequence)}. */
+    public static long charMask(char[][] tokens) {
+        long mask = 0;
+        for (char[] token : tokens) {
+            mask |= charMask(token, 0, token.length);
+        }
+        return mask;
+    }
+
+    public static long charMask(char[] text, int from, int to) {
+        long mask = 0;
+        for (int i = from; i < to; i++) {
+            mask |= charBit(text[i]);
+        }
+        return mask;
+    }
+
+    private static long charBit(char c) {
+        char lower = toLower(c);
+        if (lower >= 'a' && lower <= 'z') return 1L << (lower - 'a');
+        if (lower >= '0' && lower <= '9') return 1L << (26 + lower - '0');
+        return 1L << (36 + lower % 28);
+    }
+
+    /**
+     * Scores {@code query} against {@code text[from, to)}. {@code lower} holds the same text
+     * lower-cased, so callers that score the same candidates repeatedly can fold case once;
+     * {@code text} is only consulted for camel-case boundaries. The tightest window ending at
+     * the first complete match is scored, which keeps this linear in the candidate length.
+     *
+     * @param positions if non-null, receives the matched offsets into {@code text}
+     * @return the score, or {@link #NO_MATCH}
+     */
+    public static int score(char[] query, char[] lower, char[] text, int from, int to, int[] positions) {
+        return score(query, lower, text, from, to, positions, 0);
+    }
+
+    /**
+     * Scores each token of a prepared query on its own and sums the scores; any token that
+     * does not match makes the whole query fail. {@code positions}, if non-null, needs room
+     * for {@link #length(char[][])} offsets and receives them in ascending order.
+     */
+    public static int score(char[][] tokens, char[] lower, char[] text, int from, int to, int[] positions) {
+        if (tokens.length == 1) {
+            return score(tokens[0], lower, text, from, to, positions, 0);
+        }
+        int total = 0;
+        int offset = 0;
+        for (char[] token : tokens) {
+            int score = score(token, lower, text, from, to, positions, offset);
+            if (score == NO_MATCH) return NO_MATCH;
+            total += score;
+            offset += token.length;
+        }
+        if (positions != null) Arrays.sort(positions, 0, offset);
+        return total;
+    }
+
+    private static int score(char[] query, char[] lower, char[] text, int from, int to, int[] positions,
+                             int positionsOffset) {
+        int m = query.length;
+        if (m == 0) return 0;
+        if (m > to - from) return NO_MATCH;
+
+        // Forward: end of the first complete subsequence match
+        int qi = 0;
+        int end = -1;
+        char wanted = query[0];
+        for (int i = from; i < to; i++) {
+            if (lower[i] == wanted) {
+                if (++qi == m) {
+                    end = i;
+                    break;
+                }
+                wanted = query[qi];
+            }
+        }
+        if (end < 0) return NO_MATCH;
+
+        // Backward: match from that end to the latest possible start, scoring as we go
+        int score = 0;
+        int next = -1;
+        qi = m - 1;
+        for (int i = end; qi >= 0; i--) {
+            if (lower[i] != query[qi]) continue;
+            score += SCORE_MATCH + boundaryBonus(text, from, i);
+            if (next >= 0) {
+                int gap = next - i - 1;
+                if (gap == 0) {
+                    score += BONUS_CONSECUTIVE;
+                } else {
+                    score -= PENALTY_GAP_START + (gap - 1) * PENALTY_GAP_EXTENSION;
+                }
+            }
+            if (positions != null) positions[positionsOffset + qi] = i;
+            next = i;
+            qi--;
+        }
+        if (next == from) score += BONUS_FIRST_CHAR;
+        // Earlier matches beat later ones, slightly
+        return score - Math.min(next - from, 16);
+    }
+
+    /** Scores a candidate string; see {@link #score(char[], char[], char[], int, int, int[])}. */
+    public static int score(char[] query, String text, int[] positions) {
+        char[] chars = text.toCharArray();
+        return score(query, toLowerCase(chars), chars, 0, chars.length, positions);
+    }
+
+    /** Lower-cases each char independently, keeping offsets aligned with the original. */
+    public static char[] toLowerCase(char[] text) {
+        char[] lower = new char[text.length];
+        for (int i = 0; i < text.length; i++) {
+            lower[i] = toLower(text[i]);
+        }
+        return lower;
+    }
+
+    private static int boundaryBonus(char[] text, int from, int i) {
+        if (i == from) return BONUS_SEGMENT_START;
+        char prev = text[i - 1];
+        char c = text[i];
+        if (prev == '/' || prev == '\\') return BONUS_SEGMENT_START;
+        if (prev == '_' || prev == '-' || prev == ' ' || prev == '.') return BONUS_WORD_START;
+        if (Character.isUpperCase(c) && Character.isLowerCase(prev)) return BONUS_CAMEL;
+        if (Character.isDigit(c) && !Character.isDigit(prev)) return BONUS_CAMEL;
+        return 0;
+    }
+
+    /** Case-folds one char, with a fast path for ASCII. */
+    public static char toLower(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /** Lower-cases a query and splits it at whitespace into tokens; a blank query has none. */
+    public static char[][] prepareQuery(String query) {
+        List<char[]> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            while (i < query.length() && Character.isWhitespace(query.charAt(i))) i++;
+            int start = i;
+            while (i < query.length() && !Character.isWhitespace(query.charAt(i))) i++;
+            if (i > start) {
+                char[] token = new char[i - start];
+                for (int j = 0; j < token.length; j++) {
+                    token[j] = toLower(query.charAt(start + j));
+                }
+                tokens.add(token);
+            }
+        }
+        return tokens.toArray(new char[0][]);
+    }
+
+    /** Number of characters across all tokens, i.e. how many offsets a match reports. */
+    public static int length(char[][] tokens) {
+        int length = 0;
+        for (char[] token : tokens) {
+            length += token.length;
+        }
+        return length;
+    }
+}
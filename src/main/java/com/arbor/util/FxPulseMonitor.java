@@ -0,0 +1,184 @@
+package com.arbor.util;
+
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Watchdog for the FX thread. A background thread posts a pulse to the FX thread at a fixed
+ * interval and records how long each waited to run in the {@code fx.pulse.delay} timer; only
+ * one pulse is in flight at a time, so a long stall is measured once.
+ *
+ * <p>While a pulse is overdue past {@link #STALL_MILLIS}, the watchdog samples the FX thread's
+ * stack every {@link #SAMPLE_MILLIS}. When the stall ends it counts in {@code fx.stalls} and a
+ * report goes to the rolling stall log under {@code ~/.arbor}: the Arbor frames seen in most
+ * samples, which point at the blocking call, and the most common full stack.
+ */
+public final class FxPulseMonitor {
+    private static final Logger log = LoggerFactory.getLogger(FxPulseMonitor.class);
+
+    public static final long INTERVAL_MILLIS = 100;
+    public static final long STALL_MILLIS = 200;
+    public static final long SAMPLE_MILLIS = 20;
+
+    private static final int MAX_SAMPLES = 500;
+    private static final int MAX_APP_FRAMES = 8;
+    private static final int MAX_STACK_DEPTH = 40;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final MetricsRegistry.Timer pulseDelay = MetricsRegistry.global().timer("fx.pulse.delay");
+    private final MetricsRegistry.Counter stalls = MetricsRegistry.global().counter("fx.stalls");
+    private final Executor fxExecutor;
+    private final StallLog stallLog;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile Thread fxThread;
+    private volatile long lastDelayNanos;
+    private volatile Thread thread;
+
+    public FxPulseMonitor() {
+        this(Platform::runLater, StallLog.inArborDir());
+    }
+
+    FxPulseMonitor(Executor fxExecutor, StallLog stallLog) {
+        this.fxExecutor = fxExecutor;
+        this.stallLog = stallLog;
+    }
+
+    public Path getStallLogFile() {
+        return stallLog.getFile();
+    }
+
+    public synchronized void start() {
+        if (thread != null) return;
+        thread = Thread.startVirtualThread(this::run);
+    }
+
+    public synchronized void stop() {
+        if (thread == null) return;
+        thread.interrupt();
+        thread = null;
+    }
+
+    private void run() {
+        long posted = 0;
+        Stall stall = null;
+        while (!Thread.currentThread().isInterrupted()) {
+            long now = System.nanoTime();
+            if (pending.get()) {
+                Thread target = fxThread;
+                if (target != null && now - posted > STALL_MILLIS * 1_000_000) {
+                    if (stall == null) stall = new Stall();
+                    stall.sample(target.getStackTrace());
+                }
+            } else {
+                if (stall != null) {
+                    report(stall, lastDelayNanos);
+                    stall = null;
+                }
+                posted = now;
+                pending.set(true);
+                long postedAt = posted;
+                fxExecutor.execute(() -> pulse(postedAt));
+            }
+            try {
+                Thread.sleep(stall != null ? SAMPLE_MILLIS : INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /** Runs on the FX thread. */
+    private void pulse(long posted) {
+        long delay = System.nanoTime() - posted;
+        fxThread = Thread.currentThread();
+        pulseDelay.record(delay);
+        if (delay > STALL_MILLIS * 1_000_000) {
+            stalls.increment();
+        }
+        lastDelayNanos = delay;
+        pending.set(false);
+    }
+
+    private void report(Stall stall, long delayNanos) {
+        long millis = delayNanos / 1_000_000;
+        List<Map.Entry<String, Integer>> appFrames = stall.appFrames();
+        log.info("FX thread stalled for {}ms{}", millis,
+                appFrames.isEmpty() ? "" : " in " + appFrames.getFirst().getKey());
+
+        StringBuilder entry = new StringBuilder();
+        entry.append(LocalDateTime.now().format(TIMESTAMP))
+                .append(" FX thread stalled for ").append(millis).append(" ms (")
+                .append(stall.samples).append(" samples)\n");
+        if (!appFrames.isEmpty()) {
+            entry.append("  Arbor frames by samples:\n");
+            for (var frame : appFrames) {
+                entry.append(String.format("    %3d/%d  %s%n", frame.getValue(), stall.samples, frame.getKey()));
+            }
+        }
+        var common = stall.mostCommonStack();
+        if (common != null) {
+            entry.append("  Most common stack (").append(common.getValue()).append('/').append(stall.samples).append("):\n");
+            for (String frame : common.getKey()) {
+                entry.append("    at ").append(frame).append('\n');
+            }
+        }
+        entry.append('\n');
+        stallLog.append(entry.toString());
+    }
+
+    /** Stack samples taken during one stall. */
+    private static final class Stall {
+        private final Map<List<String>, Integer> stacks = new HashMap<>();
+        private final Map<String, Integer> appFrameCounts = new HashMap<>();
+        private final Map<String, Integer> appFrameDepths = new HashMap<>();
+        private int samples;
+
+        void sample(StackTraceElement[] trace) {
+            if (samples >= MAX_SAMPLES || trace.length == 0) return;
+            samples++;
+            List<String> frames = new ArrayList<>(Math.min(trace.length, MAX_STACK_DEPTH));
+            for (int i = 0; i < trace.length && i < MAX_STACK_DEPTH; i++) {
+                frames.add(trace[i].toString());
+            }
+            stacks.merge(frames, 1, Integer::sum);
+            // Count each app frame once per sample, so recursion doesn't inflate it
+            Set<String> seen = new HashSet<>();
+            for (int depth = 0; depth < trace.length; depth++) {
+                String frame = trace[depth].toString();
+                if (trace[depth].getClassName().startsWith("com.arbor.") && seen.add(frame)) {
+                    appFrameCounts.merge(frame, 1, Integer::sum);
+                    appFrameDepths.merge(frame, depth, Math::min);
+                }
+            }
+        }
+
+        /** App frames seen in the most samples; ties go to the innermost, the likely culprit. */
+        List<Map.Entry<String, Integer>> appFrames() {
+            return appFrameCounts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                            .thenComparing(e -> appFrameDepths.get(e.getKey())))
+                    .limit(MAX_APP_FRAMES)
+                    .toList();
+        }
+
+        Map.Entry<List<String>, Integer> mostCommonStack() {
+            return stacks.entrySet().stream()
+                    .max(Comparator.comparingInt(Map.Entry::getValue))
+                    .orElse(null);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.text.Text;
 
+import java.util.HashMap;
 import java.util.Map;
 
 public final class IconFactory {
@@ -38,39 +39,57 @@ public final class IconFactory {
             Map.entry("md",    new double[]{0.0, 0.0})
     );
 
+    // One tint per extension, shared by every leaf icon; unlike nodes, effects can be reused
+    private static final Map<String, ColorAdjust> TINTS = new HashMap<>();
+
+    static {
+        HUE_MAP.forEach((extension, adjust) -> {
+            if (adjust[0] != 0.0 || adjust[1] != 0.0) {
+                ColorAdjust colorAdjust = new ColorAdjust();
+                colorAdjust.setHue(adjust[0]);
+                colorAdjust.setSaturation(adjust[1]);
+                TINTS.put(extension, colorAdjust);
+            }
+        });
+    }
+
     private IconFactory() {
     }
 
     public static Node folderIcon() {
-        ImageView icon = new ImageView(TREE_IMAGE);
-        icon.setFitHeight(16);
-        icon.setPreserveRatio(true);
+        ImageView icon = iconView();
+        setFolderIcon(icon);
         return icon;
     }
 
     public static Node fileIcon() {
-        ImageView icon = new ImageView(LEAF_IMAGE);
-        icon.setFitHeight(16);
-        icon.setPreserveRatio(true);
+        ImageView icon = iconView();
+        icon.setImage(LEAF_IMAGE);
         return icon;
     }
 
     public static Node fileIcon(String extension) {
-        ImageView icon = new ImageView(LEAF_IMAGE);
+        ImageView icon = iconView();
+        setFileIcon(icon, extension);
+        return icon;
+    }
+
+    /** An empty icon-sized view, for cells that swap icons in place as they are reused. */
+    public static ImageView iconView() {
+        ImageView icon = new ImageView();
         icon.setFitHeight(16);
         icon.setPreserveRatio(true);
+        return icon;
+    }
 
-        if (extension != null) {
-            double[] adjust = HUE_MAP.get(extension.toLowerCase());
-            if (adjust != null && (adjust[0] != 0.0 || adjust[1] != 0.0)) {
-                ColorAdjust colorAdjust = new ColorAdjust();
-                colorAdjust.setHue(adjust[0]);
-                colorAdjust.setSaturation(adjust[1]);
-                icon.setEffect(colorAdjust);
-            }
-        }
+    public static void setFolderIcon(ImageView icon) {
+        icon.setImage(TREE_IMAGE);
+        icon.setEffect(null);
+    }
 
-        return icon;
+    public static void setFileIcon(ImageView icon, String extension) {
+        icon.setImage(LEAF_IMAGE);
+        icon.setEffect(extension == null ? null : TINTS.get(extension.toLowerCase()));
     }
 
     public static Node searchIcon() {
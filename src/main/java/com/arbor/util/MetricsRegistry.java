@@ -0,0 +1,222 @@
+package com.arbor.util;
+
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide counters, timers and histograms for the Performance panel and the metrics dump.
+ * Recording is lock-free and allocation-free, so instruments can sit on hot paths such as
+ * per-keystroke highlighting. Metrics are created on first use by name.
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /** A histogram of plain values, such as result counts or sizes. */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /** A histogram of durations, recorded in nanoseconds and reported in milliseconds. */
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, n -> new Timer());
+    }
+
+    public void reset() {
+        counters.values().forEach(Counter::reset);
+        histograms.values().forEach(Histogram::reset);
+        timers.values().forEach(timer -> timer.histogram.reset());
+    }
+
+    /** Point-in-time values of every metric, sorted by name. */
+    public List<MetricSnapshot> snapshot() {
+        Map<String, MetricSnapshot> sorted = new TreeMap<>();
+        counters.forEach((name, counter) -> sorted.put(name, new MetricSnapshot(name, "counter",
+                counter.get(), 0, 0, 0, 0, 0, 0)));
+        histograms.forEach((name, histogram) -> sorted.put(name, histogram.snapshot(name, "histogram", 1)));
+        timers.forEach((name, timer) -> sorted.put(name, timer.histogram.snapshot(name, "timer", 1_000_000)));
+        return new ArrayList<>(sorted.values());
+    }
+
+    /** The snapshot as JSON, keyed by metric name; built by hand since records need reflection. */
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        for (MetricSnapshot metric : snapshot()) {
+            JsonObject values = new JsonObject();
+            values.addProperty("type", metric.type());
+            values.addProperty("count", metric.count());
+            if (!metric.type().equals("counter")) {
+                values.addProperty("mean", metric.mean());
+                values.addProperty("p50", metric.p50());
+                values.addProperty("p90", metric.p90());
+                values.addProperty("p99", metric.p99());
+                values.addProperty("p999", metric.p999());
+                values.addProperty("max", metric.max());
+            }
+            json.add(metric.name(), values);
+        }
+        return json;
+    }
+
+    /**
+     * One metric's values. Counters only fill {@code count}; timers report milliseconds and
+     * histograms their raw units. Percentiles are upper bounds of the bucket they fall in.
+     */
+    public record MetricSnapshot(String name, String type, long count, double mean,
+                                 double p50, double p90, double p99, double p999, double max) {
+    }
+
+    public static final class Counter {
+        private final LongAdder adder = new LongAdder();
+
+        public void increment() {
+            adder.increment();
+        }
+
+        public void add(long delta) {
+            adder.add(delta);
+        }
+
+        public long get() {
+            return adder.sum();
+        }
+
+        private void reset() {
+            adder.reset();
+        }
+    }
+
+    public static final class Timer {
+        private final Histogram histogram = new Histogram();
+
+        public void record(long nanos) {
+            histogram.record(nanos);
+        }
+
+        /** Records the time since {@code startNanos}, a value from {@link System#nanoTime()}. */
+        public void recordSince(long startNanos) {
+            histogram.record(System.nanoTime() - startNanos);
+        }
+
+        public void time(Runnable work) {
+            long start = System.nanoTime();
+            try {
+                work.run();
+            } finally {
+                recordSince(start);
+            }
+        }
+
+        public <T> T time(Supplier<T> work) {
+            long start = System.nanoTime();
+            try {
+                return work.get();
+            } finally {
+                recordSince(start);
+            }
+        }
+    }
+
+    /**
+     * HDR-style log-linear histogram: each power of two is split into 32 equal buckets, so
+     * any recorded value is reported within about 3% while the whole long range fits in a
+     * fixed array of counts.
+     */
+    public static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder total = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public void record(long value) {
+            if (value < 0) value = 0;
+            counts.incrementAndGet(bucket(value));
+            total.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        /** The largest value that lands in {@code bucket}. */
+        private static long highestValue(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int shift = bucket / SUB_BUCKETS - 1;
+            long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+            return lowest + (1L << shift) - 1;
+        }
+
+        private MetricSnapshot snapshot(String name, String type, double unit) {
+            long[] copy = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = counts.get(i);
+                count += copy[i];
+            }
+            if (count == 0) {
+                return new MetricSnapshot(name, type, 0, 0, 0, 0, 0, 0, 0);
+            }
+            long maximum = max.get();
+            return new MetricSnapshot(name, type, count,
+                    round(sum.sum() / (double) total.sum() / unit),
+                    round(Math.min(percentile(copy, count, 0.50), maximum) / unit),
+                    round(Math.min(percentile(copy, count, 0.90), maximum) / unit),
+                    round(Math.min(percentile(copy, count, 0.99), maximum) / unit),
+                    round(Math.min(percentile(copy, count, 0.999), maximum) / unit),
+                    round(maximum / unit));
+        }
+
+        private static long percentile(long[] counts, long count, double quantile) {
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return highestValue(i);
+            }
+            return highestValue(counts.length - 1);
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 1000) / 1000.0;
+        }
+
+        private void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            total.reset();
+            sum.reset();
+            max.reset();
+        }
+    }
+}
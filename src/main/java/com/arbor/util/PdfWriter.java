@@ -0,0 +1,252 @@
+package com.arbor.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Minimal streaming PDF 1.4 writer for text documents. Each page is compressed and written
+ * out as soon as it ends, so memory use does not grow with the document; only object offsets
+ * are kept for the cross-reference table written on {@link #close()}. Text uses the standard
+ * Type 1 fonts with WinAnsi encoding, so no font files are embedded and characters outside
+ * that encoding print as '?'.
+ */
+public final class PdfWriter implements Closeable {
+
+    public static final float PAGE_WIDTH = 595.28f;
+    public static final float PAGE_HEIGHT = 841.89f;
+
+    public enum Font {
+        REGULAR("F1", "Helvetica"),
+        BOLD("F2", "Helvetica-Bold"),
+        ITALIC("F3", "Helvetica-Oblique"),
+        MONO("F4", "Courier");
+
+        private final String resource;
+        private final String baseFont;
+
+        Font(String resource, String baseFont) {
+            this.resource = resource;
+            this.baseFont = baseFont;
+        }
+    }
+
+    // Objects 1 and 2 are the catalog and page tree, written last; fonts follow
+    private static final int CATALOG = 1;
+    private static final int PAGE_TREE = 2;
+    private static final int FIRST_FONT = 3;
+
+    // Advance widths in 1/1000 em for ' ' through '~', from the standard font metrics
+    private static final short[] HELVETICA_WIDTHS = {
+            278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,
+            1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,
+            333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,
+            556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584
+    };
+    private static final short[] HELVETICA_BOLD_WIDTHS = {
+            278, 333, 474, 556, 556, 889, 722, 238, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 333, 333, 584, 584, 584, 611,
+            975, 722, 722, 722, 722, 667, 611, 778, 722, 278, 556, 722, 611, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 333, 278, 333, 584, 556,
+            333, 556, 611, 556, 611, 556, 333, 611, 611, 278, 278, 556, 278, 889, 611, 611,
+            611, 611, 389, 556, 333, 611, 556, 778, 556, 556, 500, 389, 280, 389, 584
+    };
+    private static final int MONO_WIDTH = 600;
+
+    private final OutputStream out;
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Integer> pageObjects = new ArrayList<>();
+    private long position;
+    private StringBuilder page;
+
+    public PdfWriter(OutputStream out) throws IOException {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        offsets.add(0L);
+        // Reserve the catalog and page tree numbers
+        offsets.add(0L);
+        offsets.add(0L);
+        write("%PDF-1.4\n%âãÏÓ\n");
+        for (Font font : Font.values()) {
+            beginObject();
+            write("<< /Type /Font /Subtype /Type1 /BaseFont /" + font.baseFont
+                    + " /Encoding /WinAnsiEncoding >>\nendobj\n");
+        }
+    }
+
+    public void beginPage() {
+        if (page != null) throw new IllegalStateException("Page already open");
+        page = new StringBuilder(4096);
+    }
+
+    /** Draws {@code text} with its baseline starting at (x, y), measured from the bottom left. */
+    public void text(float x, float y, Font font, float size, int rgb, String text) {
+        page.append("BT\n");
+        appendColor(rgb, "rg");
+        page.append('/').append(font.resource).append(' ').append(number(size)).append(" Tf\n")
+                .append(number(x)).append(' ').append(number(y)).append(" Td\n(");
+        appendEncoded(text);
+        page.append(") Tj\nET\n");
+    }
+
+    public void line(float x1, float y1, float x2, float y2, float width, int rgb) {
+        appendColor(rgb, "RG");
+        page.append(number(width)).append(" w\n")
+                .append(number(x1)).append(' ').append(number(y1)).append(" m ")
+                .append(number(x2)).append(' ').append(number(y2)).append(" l S\n");
+    }
+
+    /** Compresses and writes the open page, then forgets its content. */
+    public void endPage() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(page.length() / 3 + 64);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+            deflater.write(page.toString().getBytes(StandardCharsets.ISO_8859_1));
+        }
+        page = null;
+
+        int content = beginObject();
+        write("<< /Length " + compressed.size() + " /Filter /FlateDecode >>\nstream\n");
+        writeBytes(compressed.toByteArray());
+        write("\nendstream\nendobj\n");
+
+        int pageObject = beginObject();
+        StringBuilder fonts = new StringBuilder();
+        for (Font font : Font.values()) {
+            fonts.append('/').append(font.resource).append(' ').append(FIRST_FONT + font.ordinal()).append(" 0 R ");
+        }
+        write("<< /Type /Page /Parent " + PAGE_TREE + " 0 R /MediaBox [0 0 " + number(PAGE_WIDTH) + " "
+                + number(PAGE_HEIGHT) + "] /Resources << /Font << " + fonts + ">> >> /Contents "
+                + content + " 0 R >>\nendobj\n");
+        pageObjects.add(pageObject);
+    }
+
+    public int getPageCount() {
+        return pageObjects.size();
+    }
+
+    /** Writes the page tree, catalog and cross-reference table, and closes the stream. */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (page != null) endPage();
+            if (pageObjects.isEmpty()) {
+                beginPage();
+                endPage();
+            }
+
+            offsets.set(PAGE_TREE, position);
+            StringBuilder kids = new StringBuilder();
+            for (int pageObject : pageObjects) {
+                kids.append(pageObject).append(" 0 R ");
+            }
+            write(PAGE_TREE + " 0 obj\n<< /Type /Pages /Kids [" + kids + "] /Count " + pageObjects.size()
+                    + " >>\nendobj\n");
+            offsets.set(CATALOG, position);
+            write(CATALOG + " 0 obj\n<< /Type /Catalog /Pages " + PAGE_TREE + " 0 R >>\nendobj\n");
+
+            long xref = position;
+            StringBuilder table = new StringBuilder("xref\n0 " + offsets.size() + "\n0000000000 65535 f \n");
+            for (int i = 1; i < offsets.size(); i++) {
+                table.append(String.format(Locale.ROOT, "%010d 00000 n \n", offsets.get(i)));
+            }
+            table.append("trailer\n<< /Size ").append(offsets.size()).append(" /Root ").append(CATALOG)
+                    .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+            write(table.toString());
+        } finally {
+            out.close();
+        }
+    }
+
+    /** Width of {@code text} in points when set in {@code font} at {@code size}. */
+    public static float width(Font font, float size, CharSequence text) {
+        int units = 0;
+        for (int i = 0; i < text.length(); i++) {
+            units += charWidth(font, text.charAt(i));
+        }
+        return units * size / 1000f;
+    }
+
+    private static int charWidth(Font font, char c) {
+        if (font == Font.MONO) return MONO_WIDTH;
+        short[] widths = font == Font.BOLD ? HELVETICA_BOLD_WIDTHS : HELVETICA_WIDTHS;
+        if (c >= ' ' && c <= '~') return widths[c - ' '];
+        return switch (winAnsi(c)) {
+            case 0x95 -> 350;
+            case 0x85, 0x97 -> 1000;
+            case 0x91, 0x92 -> font == Font.BOLD ? 278 : 222;
+            case 0x93, 0x94 -> font == Font.BOLD ? 500 : 333;
+            case 0xA0 -> 278;
+            default -> 556;
+        };
+    }
+
+    /** The WinAnsi code for {@code c}, or '?' if the encoding has none. */
+    private static int winAnsi(char c) {
+        if (c < 0x80 || (c >= 0xA0 && c <= 0xFF)) return c;
+        return switch (c) {
+            case '•' -> 0x95;
+            case '…' -> 0x85;
+            case '–' -> 0x96;
+            case '—' -> 0x97;
+            case '‘' -> 0x91;
+            case '’' -> 0x92;
+            case '“' -> 0x93;
+            case '”' -> 0x94;
+            case '€' -> 0x80;
+            case '™' -> 0x99;
+            default -> '?';
+        };
+    }
+
+    private void appendEncoded(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                page.append('\\').append(c);
+            } else if (c < ' ') {
+                page.append(' ');
+            } else {
+                page.append((char) winAnsi(c));
+            }
+        }
+    }
+
+    private void appendColor(int rgb, String operator) {
+        page.append(number(((rgb >> 16) & 0xFF) / 255f)).append(' ')
+                .append(number(((rgb >> 8) & 0xFF) / 255f)).append(' ')
+                .append(number((rgb & 0xFF) / 255f)).append(' ').append(operator).append('\n');
+    }
+
+    /** Formats to two decimals without going through String.format, which dominates otherwise. */
+    private static String number(float value) {
+        long hundredths = Math.round(value * 100.0);
+        if (hundredths % 100 == 0) return Long.toString(hundredths / 100);
+        long abs = Math.abs(hundredths);
+        long fraction = abs % 100;
+        return (hundredths < 0 ? "-" : "") + abs / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    private int beginObject() throws IOException {
+        int number = offsets.size();
+        offsets.add(position);
+        write(number + " 0 obj\n");
+        return number;
+    }
+
+    private void write(String text) throws IOException {
+        writeBytes(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        out.write(bytes);
+        position += bytes.length;
+    }
+}
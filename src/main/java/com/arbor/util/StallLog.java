@@ -0,0 +1,65 @@
+package com.arbor.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Rolling text log of FX-thread stalls. Entries are appended to {@code stalls.log}; once it
+ * passes {@link #MAX_BYTES} it is rotated to {@code stalls.log.1}, shifting older files up to
+ * {@link #MAX_BACKUPS}, so the log never grows without bound.
+ */
+final class StallLog {
+    private static final Logger log = LoggerFactory.getLogger(StallLog.class);
+
+    static final long MAX_BYTES = 1024 * 1024;
+    static final int MAX_BACKUPS = 3;
+
+    private final Path file;
+
+    StallLog(Path file) {
+        this.file = file;
+    }
+
+    static StallLog inArborDir() {
+        return new StallLog(Paths.get(System.getProperty("user.home"), ".arbor", "stalls.log"));
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    synchronized void append(String entry) {
+        try {
+            Files.createDirectories(file.getParent());
+            if (Files.exists(file) && Files.size(file) > MAX_BYTES) {
+                rotate();
+            }
+            Files.writeString(file, entry, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("Could not write stall log {}", file, e);
+        }
+    }
+
+    private void rotate() throws IOException {
+        Files.deleteIfExists(backup(MAX_BACKUPS));
+        for (int i = MAX_BACKUPS - 1; i >= 1; i--) {
+            if (Files.exists(backup(i))) {
+                Files.move(backup(i), backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, backup(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path backup(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
@@ -0,0 +1,110 @@
+package com.arbor.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Times application startup. Work on the FX thread is split into consecutive phases with
+ * {@link #mark}, ordered by where the calls sit in {@code App.start}; the grove scans run on
+ * virtual threads with {@link #async} so they overlap with building and showing the window.
+ * The scans don't depend on each other, and anything one needs from the FX thread must be
+ * built before it is started. {@link #finish} logs every phase once the background work is
+ * done.
+ */
+public final class StartupGraph {
+    private static final Logger log = LoggerFactory.getLogger(StartupGraph.class);
+
+    private static final Executor VIRTUAL = Thread::startVirtualThread;
+
+    /** One timed phase; offsets are milliseconds since the graph was created. */
+    public record Phase(String name, String thread, long startMillis, long durationMillis) {
+    }
+
+    private final long origin = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+    private final List<CompletableFuture<?>> tasks = new ArrayList<>();
+    private long lastMark = origin;
+
+    /** Records a phase on the calling thread covering the time since the previous mark. */
+    public void mark(String name) {
+        long now = System.nanoTime();
+        record(name, lastMark, now);
+        lastMark = now;
+    }
+
+    /**
+     * Runs {@code work} on a virtual thread right away. Failures are logged and complete the
+     * returned future exceptionally.
+     */
+    public CompletableFuture<Void> async(String name, Runnable work) {
+        CompletableFuture<Void> task = CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                log.error("Startup task {} failed", name, e);
+                throw e;
+            } finally {
+                record(name, start, System.nanoTime());
+            }
+        }, VIRTUAL);
+        synchronized (this) {
+            tasks.add(task);
+        }
+        return task;
+    }
+
+    /**
+     * Logs the phase table once every task started so far has finished. The returned future
+     * completes after that, on the thread that finished the last task.
+     */
+    public CompletableFuture<Void> finish() {
+        CompletableFuture<?>[] pending;
+        synchronized (this) {
+            pending = tasks.stream().map(task -> task.exceptionally(e -> null)).toArray(CompletableFuture[]::new);
+        }
+        return CompletableFuture.allOf(pending).thenRun(() -> log.info(report()));
+    }
+
+    /** Milliseconds since the JVM was launched, or since this graph was created if unknown. */
+    public long millisSinceLaunch() {
+        return ProcessHandle.current().info().startInstant()
+                .map(jvmStart -> Duration.between(jvmStart, Instant.now()).toMillis())
+                .orElse((System.nanoTime() - origin) / 1_000_000);
+    }
+
+    public synchronized List<Phase> getPhases() {
+        return List.copyOf(phases);
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder("Startup phases (start + duration, ms)");
+        long sinceJvm = millisSinceLaunch() - (System.nanoTime() - origin) / 1_000_000;
+        if (sinceJvm > 0) {
+            sb.append("; app started ").append(sinceJvm).append("ms after JVM launch");
+        }
+        List<Phase> sorted = new ArrayList<>(getPhases());
+        sorted.sort(Comparator.comparingLong(Phase::startMillis));
+        for (Phase phase : sorted) {
+            sb.append(String.format("%n  %-22s %-16s %6d + %5d", phase.name(), phase.thread(),
+                    phase.startMillis(), phase.durationMillis()));
+        }
+        return sb.toString();
+    }
+
+    private void record(String name, long start, long end) {
+        Thread thread = Thread.currentThread();
+        String threadName = thread.isVirtual() ? "virtual" : thread.getName();
+        synchronized (this) {
+            phases.add(new Phase(name, threadName, (start - origin) / 1_000_000, (end - start) / 1_000_000));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.arbor.view;
 
 import com.arbor.model.CommandEntry;
 import com.arbor.service.CommandRegistry;
+import com.arbor.service.CommandRegistry.Match;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
@@ -13,11 +14,15 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
+
+import java.util.Arrays;
 
 public class CommandPalette extends VBox {
     private final CommandRegistry registry;
     private final TextField searchField;
-    private final ListView<CommandEntry> commandList;
+    private final ListView<Match> commandList;
     private Runnable onHide;
 
     public CommandPalette(CommandRegistry registry) {
@@ -46,7 +51,7 @@ public class CommandPalette extends VBox {
 
         // Filter on text change
         searchField.textProperty().addListener((obs, oldVal, newVal) -> {
-            commandList.getItems().setAll(registry.search(newVal));
+            commandList.getItems().setAll(registry.match(newVal));
             if (!commandList.getItems().isEmpty()) {
                 commandList.getSelectionModel().selectFirst();
             }
@@ -97,10 +102,11 @@ public class CommandPalette extends VBox {
     }
 
     private void executeSelected() {
-        CommandEntry selected = commandList.getSelectionModel().getSelectedItem();
+        Match selected = commandList.getSelectionModel().getSelectedItem();
         if (selected != null) {
             hide();
-            selected.action().run();
+            registry.recordUse(selected.command());
+            selected.command().action().run();
         }
     }
 
@@ -116,7 +122,7 @@ public class CommandPalette extends VBox {
         setVisible(true);
         setManaged(true);
         searchField.clear();
-        commandList.getItems().setAll(registry.getAll());
+        commandList.getItems().setAll(registry.match(""));
         if (!commandList.getItems().isEmpty()) {
             commandList.getSelectionModel().selectFirst();
         }
@@ -135,10 +141,10 @@ public class CommandPalette extends VBox {
         this.onHide = onHide;
     }
 
-    private static class CommandCell extends ListCell<CommandEntry> {
+    private static class CommandCell extends ListCell<Match> {
         private final HBox container;
         private final Label categoryLabel;
-        private final Label nameLabel;
+        private final TextFlow nameFlow;
         private final Label shortcutLabel;
 
         CommandCell() {
@@ -148,7 +154,8 @@ public class CommandPalette extends VBox {
             categoryLabel = new Label();
             categoryLabel.getStyleClass().add("command-category-chip");
 
-            nameLabel = new Label();
+            nameFlow = new TextFlow();
+            nameFlow.getStyleClass().add("command-name");
 
             Region spacer = new Region();
             HBox.setHgrow(spacer, Priority.ALWAYS);
@@ -156,23 +163,43 @@ public class CommandPalette extends VBox {
             shortcutLabel = new Label();
             shortcutLabel.getStyleClass().add("command-shortcut");
 
-            container.getChildren().addAll(categoryLabel, nameLabel, spacer, shortcutLabel);
+            container.getChildren().addAll(categoryLabel, nameFlow, spacer, shortcutLabel);
         }
 
         @Override
-        protected void updateItem(CommandEntry item, boolean empty) {
-            super.updateItem(item, empty);
-            if (empty || item == null) {
+        protected void updateItem(Match match, boolean empty) {
+            super.updateItem(match, empty);
+            if (empty || match == null) {
                 setGraphic(null);
                 setText(null);
             } else {
+                CommandEntry item = match.command();
                 categoryLabel.setText(item.category());
-                nameLabel.setText(item.name());
+                setName(item.name(), match.namePositions());
                 shortcutLabel.setText(item.shortcut() != null ? item.shortcut() : "");
                 shortcutLabel.setVisible(item.shortcut() != null);
                 setGraphic(container);
                 setText(null);
             }
         }
+
+        /** Splits the name into runs so matched characters can be styled. */
+        private void setName(String name, int[] positions) {
+            nameFlow.getChildren().clear();
+            int runStart = 0;
+            boolean runMatched = false;
+            for (int i = 0; i <= name.length(); i++) {
+                boolean matched = i < name.length() && Arrays.binarySearch(positions, i) >= 0;
+                if (i == name.length() || matched != runMatched) {
+                    if (i > runStart) {
+                        Text run = new Text(name.substring(runStart, i));
+                        run.getStyleClass().add(runMatched ? "command-name-match" : "command-name-text");
+                        nameFlow.getChildren().add(run);
+                    }
+                    runStart = i;
+                    runMatched = matched;
+                }
+            }
+        }
     }
 }
@@ -3,9 +3,15 @@ package com.arbor.view;
 import com.arbor.service.BracketMatchService;
 import com.arbor.service.FileOperationService;
 import com.arbor.service.SyntaxHighlightService;
+import com.arbor.util.ArborEvents;
+import com.arbor.util.MetricsRegistry;
 import javafx.application.Platform;
+import javafx.concurrent.Worker;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Tab;
 import javafx.scene.control.ToggleButton;
 import javafx.scene.control.ToggleGroup;
@@ -24,15 +30,18 @@ import org.fxmisc.flowless.VirtualizedScrollPane;
 import org.fxmisc.richtext.StyleClassedTextArea;
 import org.fxmisc.richtext.model.StyleSpans;
 import org.fxmisc.richtext.model.StyleSpansBuilder;
+import org.reactfx.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Collection;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 
@@ -40,6 +49,7 @@ public class EditorTab extends Tab {
     private static final Logger log = LoggerFactory.getLogger(EditorTab.class);
     private static final long AUTOSAVE_DELAY_MS = 2000;
     private static final long PREVIEW_DEBOUNCE_MS = 300;
+    private static final int LOAD_CHUNK_CHARS = 256 * 1024;
 
     private static final Parser MD_PARSER = Parser.builder().build();
     private static final HtmlRenderer MD_RENDERER = HtmlRenderer.builder().build();
@@ -47,24 +57,34 @@ public class EditorTab extends Tab {
     public enum ViewMode { EDIT, SPLIT, PREVIEW }
 
     private final Path filePath;
-    private final StyleClassedTextArea textArea;
+    private StyleClassedTextArea textArea;
     private final FileOperationService fileOps;
     private final boolean isMarkdown;
+    private final long largeFileThreshold;
 
     private final BorderPane rootPane;
-    private final VirtualizedScrollPane<StyleClassedTextArea> editorScrollPane;
-    private final StackPane editorWrapper;
+    private VirtualizedScrollPane<StyleClassedTextArea> editorScrollPane;
+    private StackPane editorWrapper;
     private WebView webView;
 
     private static final SyntaxHighlightService syntaxService = new SyntaxHighlightService();
     private static final BracketMatchService bracketService = new BracketMatchService();
+    private static final MetricsRegistry.Timer HIGHLIGHT_TIMER = MetricsRegistry.global().timer("editor.highlight");
+    private static final MetricsRegistry.Timer SAVE_TIMER = MetricsRegistry.global().timer("editor.save");
+    private static final MetricsRegistry.Timer PREVIEW_TIMER = MetricsRegistry.global().timer("preview.render");
     private int prevBracketA = -1;
     private int prevBracketB = -1;
 
     private FindReplaceBar findReplaceBar;
     private ViewMode currentMode = ViewMode.EDIT;
     private boolean dirty = false;
-    private String savedContent;
+    private boolean loaded = false;
+    private Subscription editorSubscription;
+    private long lastActiveMillis = System.currentTimeMillis();
+    private int restoreCaret = 0;
+    private int restoreTopParagraph = 0;
+    private boolean largeFile = false;
+    private volatile boolean closed = false;
     private Timer autosaveTimer;
     private Timer previewTimer;
     private final String language;
@@ -76,13 +96,98 @@ public class EditorTab extends Tab {
     private boolean typewriterMode = false;
     private javafx.beans.value.ChangeListener<Integer> typewriterListener;
     private int lastFocusParagraph = -1;
+    private final java.util.List<Runnable> onLoaded = new java.util.ArrayList<>();
+    private long previewStartNanos;
 
     public EditorTab(Path filePath, FileOperationService fileOps) {
+        this(filePath, fileOps, 0);
+    }
+
+    /**
+     * @param largeFileThreshold files larger than this many bytes open read-only without
+     *                           highlighting, outline or bracket matching; {@code <= 0} disables
+     */
+    public EditorTab(Path filePath, FileOperationService fileOps, long largeFileThreshold) {
+        this(filePath, fileOps, largeFileThreshold, false);
+    }
+
+    /**
+     * @param deferred when {@code true} the tab starts as a lightweight placeholder: the file is
+     *                 not read and no text area is built until the tab is first selected or its
+     *                 editor is requested
+     */
+    public EditorTab(Path filePath, FileOperationService fileOps, long largeFileThreshold, boolean deferred) {
         this.filePath = filePath;
         this.fileOps = fileOps;
+        this.largeFileThreshold = largeFileThreshold;
         this.isMarkdown = filePath.getFileName().toString().toLowerCase().endsWith(".md");
         this.language = syntaxService.detectLanguage(filePath);
 
+        rootPane = new BorderPane();
+
+        // Add mode toggle bar for markdown files
+        if (isMarkdown) {
+            rootPane.setTop(createModeToggleBar());
+        }
+
+        // Tab context menu
+        javafx.scene.control.ContextMenu contextMenu = new javafx.scene.control.ContextMenu();
+        javafx.scene.control.MenuItem splitRightItem = new javafx.scene.control.MenuItem("Split Right");
+        splitRightItem.setOnAction(e -> { if (onSplitRight != null) onSplitRight.run(); });
+        javafx.scene.control.MenuItem closeItem = new javafx.scene.control.MenuItem("Close");
+        closeItem.setOnAction(e -> {
+            if (isDirty()) {
+                boolean save = com.arbor.util.DialogHelper.showConfirmation("Unsaved Changes",
+                        "Save changes before closing?");
+                if (save) save();
+            }
+            if (getTabPane() != null) getTabPane().getTabs().remove(this);
+        });
+        javafx.scene.control.MenuItem closeOthersItem = new javafx.scene.control.MenuItem("Close Others");
+        closeOthersItem.setOnAction(e -> {
+            if (getTabPane() != null) {
+                getTabPane().getTabs().removeIf(t -> t != this && t.isClosable());
+            }
+        });
+        contextMenu.getItems().addAll(splitRightItem, closeItem, closeOthersItem);
+        setContextMenu(contextMenu);
+
+        setContent(rootPane);
+        updateTabTitle();
+
+        // Cancel timers (and any in-flight load) when tab is closed
+        setOnClosed(e -> {
+            closed = true;
+            if (autosaveTimer != null) {
+                autosaveTimer.cancel();
+            }
+            if (previewTimer != null) {
+                previewTimer.cancel();
+            }
+        });
+
+        // Deferred tabs materialize on first selection. The check runs on the next pulse so a
+        // tab that is only selected in passing (e.g. while restoring a session) stays light.
+        selectedProperty().addListener((obs, wasSelected, isSelected) -> {
+            lastActiveMillis = System.currentTimeMillis();
+            if (!isSelected) {
+                captureViewState();
+            } else {
+                Platform.runLater(() -> {
+                    if (isSelected()) materialize();
+                });
+            }
+        });
+
+        if (!deferred) {
+            materialize();
+        }
+    }
+
+    /** Builds the editor and starts loading the file. Safe to call repeatedly. */
+    private void materialize() {
+        if (textArea != null) return;
+
         textArea = new StyleClassedTextArea();
         textArea.getStyleClass().add("editor-area");
         textArea.setWrapText(true);
@@ -93,13 +198,6 @@ public class EditorTab extends Tab {
         // Wrap in StackPane so VirtualizedScrollPane sizes properly in SplitPane
         editorWrapper = new StackPane(editorScrollPane);
 
-        rootPane = new BorderPane();
-
-        // Add mode toggle bar for markdown files
-        if (isMarkdown) {
-            rootPane.setTop(createModeToggleBar());
-        }
-
         // Find/Replace bar (hidden by default)
         findReplaceBar = new FindReplaceBar(textArea);
         findReplaceBar.setVisible(false);
@@ -151,53 +249,22 @@ public class EditorTab extends Tab {
             }
         });
 
-        // Tab context menu
-        javafx.scene.control.ContextMenu contextMenu = new javafx.scene.control.ContextMenu();
-        javafx.scene.control.MenuItem splitRightItem = new javafx.scene.control.MenuItem("Split Right");
-        splitRightItem.setOnAction(e -> { if (onSplitRight != null) onSplitRight.run(); });
-        javafx.scene.control.MenuItem closeItem = new javafx.scene.control.MenuItem("Close");
-        closeItem.setOnAction(e -> {
-            if (isDirty()) {
-                boolean save = com.arbor.util.DialogHelper.showConfirmation("Unsaved Changes",
-                        "Save changes before closing?");
-                if (save) save();
-            }
-            if (getTabPane() != null) getTabPane().getTabs().remove(this);
-        });
-        javafx.scene.control.MenuItem closeOthersItem = new javafx.scene.control.MenuItem("Close Others");
-        closeOthersItem.setOnAction(e -> {
-            if (getTabPane() != null) {
-                getTabPane().getTabs().removeIf(t -> t != this && t.isClosable());
-            }
-        });
-        contextMenu.getItems().addAll(splitRightItem, closeItem, closeOthersItem);
-        setContextMenu(contextMenu);
-
-        setContent(rootPane);
-        updateTabTitle();
-
-        // Load file content
-        try {
-            savedContent = fileOps.readFile(filePath);
-            textArea.replaceText(savedContent);
-        } catch (IOException e) {
-            log.error("Failed to read file: {}", filePath, e);
-            savedContent = "";
-        }
-
         // Apply syntax highlighting (also overlays backlink styles)
-        applySyntaxHighlighting();
-        textArea.multiPlainChanges()
+        Subscription highlighting = textArea.multiPlainChanges()
                 .successionEnds(Duration.ofMillis(150))
                 .subscribe(changes -> applySyntaxHighlighting());
 
-        // Track dirty state, schedule autosave, and update preview
-        textArea.textProperty().addListener((obs, oldText, newText) -> {
-            boolean wasDirty = dirty;
-            dirty = !newText.equals(savedContent);
-            if (wasDirty != dirty) {
-                updateTabTitle();
-            }
+        // Track dirty state via the undo manager's saved mark: undoing back to the
+        // saved position clears the dirty flag without comparing document contents
+        textArea.getUndoManager().atMarkedPositionProperty().addListener((obs, wasAtMark, atMark) -> {
+            if (!loaded) return;
+            dirty = !atMark;
+            updateTabTitle();
+        });
+
+        // Schedule autosave and update preview
+        Subscription edits = textArea.plainTextChanges().subscribe(change -> {
+            if (!loaded) return;
             if (dirty) {
                 scheduleAutosave();
             }
@@ -205,16 +272,188 @@ public class EditorTab extends Tab {
                 schedulePreviewUpdate();
             }
         });
+        editorSubscription = highlighting.and(edits);
 
-        // Cancel timers when tab is closed
-        setOnClosed(e -> {
-            if (autosaveTimer != null) {
-                autosaveTimer.cancel();
-            }
-            if (previewTimer != null) {
-                previewTimer.cancel();
+        if (focusMode) {
+            setFocusMode(true);
+        }
+        if (typewriterMode) {
+            setTypewriterMode(true);
+        }
+        if (currentMode != ViewMode.EDIT) {
+            setViewMode(currentMode);
+        }
+
+        loadContent();
+    }
+
+    public boolean isMaterialized() {
+        return textArea != null;
+    }
+
+    /**
+     * Drops the editor, its style spans, line-number graphics and any preview WebView, keeping
+     * only the caret and scroll position. The tab rebuilds itself from disk when next selected.
+     * Tabs that are selected, dirty or still loading are left alone.
+     *
+     * @return {@code true} if the tab was hibernated
+     */
+    public boolean hibernate() {
+        if (textArea == null || !loaded || dirty || isSelected()) {
+            return false;
+        }
+        captureViewState();
+        if (previewTimer != null) {
+            previewTimer.cancel();
+            previewTimer = null;
+        }
+        if (editorSubscription != null) {
+            editorSubscription.unsubscribe();
+            editorSubscription = null;
+        }
+        if (typewriterListener != null) {
+            textArea.caretPositionProperty().removeListener(typewriterListener);
+            typewriterListener = null;
+        }
+        rootPane.setCenter(null);
+        textArea = null;
+        editorScrollPane = null;
+        editorWrapper = null;
+        findReplaceBar = null;
+        webView = null;
+        loaded = false;
+        largeFile = false;
+        prevBracketA = -1;
+        prevBracketB = -1;
+        lastFocusParagraph = -1;
+        log.debug("Hibernated tab: {}", filePath);
+        return true;
+    }
+
+    /**
+     * Re-reads the file after it was rewritten outside the editor, keeping the caret and
+     * scroll position. Tabs with unsaved edits or still loading are left alone.
+     *
+     * @return {@code true} if the tab now reflects the file on disk
+     */
+    public boolean reloadFromDisk() {
+        if (textArea == null) {
+            // Not materialized; it reads the file fresh when next selected
+            return true;
+        }
+        if (!loaded || dirty) {
+            return false;
+        }
+        captureViewState();
+        loaded = false;
+        textArea.clear();
+        loadContent();
+        return true;
+    }
+
+    /** Wall-clock time this tab was last selected or deselected. */
+    public long getLastActiveMillis() {
+        return lastActiveMillis;
+    }
+
+    private void captureViewState() {
+        if (textArea == null || !loaded) return;
+        restoreCaret = textArea.getCaretPosition();
+        try {
+            restoreTopParagraph = textArea.firstVisibleParToAllParIndex();
+        } catch (RuntimeException e) {
+            // No visible cells (e.g. never laid out); keep the previous value
+        }
+    }
+
+    /**
+     * Streams the file into the editor from a background thread. Chunks are appended one
+     * at a time on the FX thread (the reader waits for each to land) so the UI keeps
+     * painting the progress overlay while large files load.
+     */
+    private void loadContent() {
+        StyleClassedTextArea area = textArea;
+        area.setEditable(false);
+
+        Label loadingLabel = new Label("Loading " + filePath.getFileName() + "...");
+        loadingLabel.getStyleClass().add("editor-loading-label");
+        ProgressBar progressBar = new ProgressBar(0);
+        VBox loadingPane = new VBox(8, loadingLabel, progressBar);
+        loadingPane.setAlignment(Pos.CENTER);
+        loadingPane.getStyleClass().add("editor-loading");
+        editorWrapper.getChildren().add(loadingPane);
+
+        Thread.startVirtualThread(() -> {
+            try {
+                boolean large = largeFileThreshold > 0 && Files.size(filePath) > largeFileThreshold;
+                Platform.runLater(() -> largeFile = large);
+                fileOps.readFileChunked(filePath, LOAD_CHUNK_CHARS, (chunk, progress) -> {
+                    CompletableFuture<Boolean> appended = new CompletableFuture<>();
+                    Platform.runLater(() -> {
+                        // Stop if the tab was closed or hibernated while loading
+                        if (closed || textArea != area) {
+                            appended.complete(false);
+                            return;
+                        }
+                        area.appendText(chunk);
+                        progressBar.setProgress(progress);
+                        appended.complete(true);
+                    });
+                    return appended.join();
+                });
+            } catch (IOException e) {
+                log.error("Failed to read file: {}", filePath, e);
+                Platform.runLater(() -> {
+                    if (textArea == area) showLoadError(area, loadingPane, e);
+                });
+                return;
             }
+            Platform.runLater(() -> {
+                if (textArea == area) {
+                    editorWrapper.getChildren().remove(loadingPane);
+                    finishLoading();
+                }
+            });
+        });
+    }
+
+    /**
+     * Replaces the progress overlay with the read error. The partial text is dropped and the
+     * tab stays read-only and unloaded, so it can't be edited or saved over the file.
+     */
+    private void showLoadError(StyleClassedTextArea area, VBox loadingPane, IOException e) {
+        area.clear();
+        Label errorLabel = new Label("Could not read " + filePath.getFileName() + ": " + e.getMessage());
+        errorLabel.getStyleClass().add("editor-loading-error");
+        errorLabel.setWrapText(true);
+        Button retryBtn = new Button("Retry");
+        retryBtn.getStyleClass().add("find-action-button");
+        retryBtn.setOnAction(ev -> {
+            editorWrapper.getChildren().remove(loadingPane);
+            loadContent();
         });
+        loadingPane.getChildren().setAll(errorLabel, retryBtn);
+    }
+
+    private void finishLoading() {
+        // The loaded text becomes the saved baseline in the undo history
+        textArea.getUndoManager().forgetHistory();
+        textArea.getUndoManager().mark();
+        loaded = true;
+        textArea.setEditable(!largeFile);
+        textArea.moveTo(Math.min(restoreCaret, textArea.getLength()));
+        textArea.showParagraphAtTop(Math.min(restoreTopParagraph, textArea.getParagraphs().size() - 1));
+        updateTabTitle();
+
+        applySyntaxHighlighting();
+        if (isMarkdown && currentMode != ViewMode.EDIT) {
+            refreshPreview();
+        }
+        if (largeFile) {
+            log.debug("Opened large file read-only: {}", filePath);
+        }
+        onLoaded.forEach(Runnable::run);
+        onLoaded.clear();
     }
 
     private HBox createModeToggleBar() {
@@ -252,6 +491,8 @@ public class EditorTab extends Tab {
     }
 
     private void applySyntaxHighlighting() {
+        if (!loaded || largeFile) return;
+        long start = System.nanoTime();
         try {
             String text = textArea.getText();
             var spans = syntaxService.computeHighlighting(text, language);
@@ -261,9 +502,11 @@ public class EditorTab extends Tab {
         } catch (Exception e) {
             log.debug("Syntax highlighting failed", e);
         }
+        HIGHLIGHT_TIMER.recordSince(start);
     }
 
     private void updateBracketHighlights(int caretPos) {
+        if (!loaded || largeFile) return;
         try {
             // Clear previous bracket highlights by re-applying syntax spans at those positions
             if (prevBracketA >= 0 && prevBracketA < textArea.getLength()) {
@@ -316,6 +559,13 @@ public class EditorTab extends Tab {
     private WebView getOrCreateWebView() {
         if (webView == null) {
             webView = new WebView();
+            // Preview render time runs from the Markdown parse until WebKit finishes loading
+            webView.getEngine().getLoadWorker().stateProperty().addListener((obs, oldState, state) -> {
+                if (state == Worker.State.SUCCEEDED && previewStartNanos != 0) {
+                    PREVIEW_TIMER.recordSince(previewStartNanos);
+                    previewStartNanos = 0;
+                }
+            });
             applyPreviewStylesheet();
         }
         return webView;
@@ -337,6 +587,7 @@ public class EditorTab extends Tab {
     }
 
     private void setViewMode(ViewMode mode) {
+        materialize();
         currentMode = mode;
         javafx.scene.Node mainContent;
         switch (mode) {
@@ -360,8 +611,18 @@ public class EditorTab extends Tab {
 
     private void refreshPreview() {
         if (webView == null) return;
+        previewStartNanos = System.nanoTime();
         String markdown = textArea.getText();
+        ArborEvents.MarkdownRender event = new ArborEvents.MarkdownRender();
+        event.begin();
         String html = MD_RENDERER.render(MD_PARSER.parse(markdown));
+        event.end();
+        if (event.shouldCommit()) {
+            event.target = "preview";
+            event.markdownLength = markdown.length();
+            event.htmlLength = html.length();
+            event.commit();
+        }
         String fullHtml = "<html><head><meta charset='UTF-8'></head><body>" + html + "</body></html>";
         webView.getEngine().loadContent(fullHtml, "text/html");
     }
@@ -389,7 +650,7 @@ public class EditorTab extends Tab {
             public void run() {
                 Platform.runLater(() -> {
                     if (dirty) {
-                        save();
+                        save(true);
                         log.debug("Autosaved: {}", filePath);
                     }
                 });
@@ -399,14 +660,33 @@ public class EditorTab extends Tab {
 
     private void updateTabTitle() {
         String name = filePath.getFileName().toString();
+        if (largeFile) {
+            name += " (read-only)";
+        }
         setText(dirty ? "* " + name : name);
     }
 
     public boolean save() {
+        return save(false);
+    }
+
+    private boolean save(boolean autosave) {
+        if (!loaded || largeFile) return false;
+        long start = System.nanoTime();
+        ArborEvents.Save event = new ArborEvents.Save();
+        event.begin();
         try {
-            String content = textArea.getText();
-            fileOps.writeFile(filePath, content);
-            savedContent = content;
+            String text = textArea.getText();
+            fileOps.writeFile(filePath, text);
+            SAVE_TIMER.recordSince(start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = filePath.toString();
+                event.autosave = autosave;
+                event.length = text.length();
+                event.commit();
+            }
+            textArea.getUndoManager().mark();
             dirty = false;
             updateTabTitle();
             log.debug("Saved: {}", filePath);
@@ -428,15 +708,19 @@ public class EditorTab extends Tab {
         return filePath;
     }
 
+    /** Returns the editor, materializing a deferred tab on first access. */
     public StyleClassedTextArea getTextArea() {
+        materialize();
         return textArea;
     }
 
     public void showFind() {
+        materialize();
         findReplaceBar.show(false);
     }
 
     public void showFindAndReplace() {
+        materialize();
         findReplaceBar.show(true);
     }
 
@@ -448,6 +732,24 @@ public class EditorTab extends Tab {
         return isMarkdown;
     }
 
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Runs {@code action} once the file has loaded and been highlighted, or now if it has. */
+    public void whenLoaded(Runnable action) {
+        if (loaded) {
+            action.run();
+        } else {
+            onLoaded.add(action);
+        }
+    }
+
+    /** Large files open read-only with highlighting, outline and bracket matching disabled. */
+    public boolean isLargeFile() {
+        return largeFile;
+    }
+
     public void setOnBacklinkNavigate(Consumer<String> onBacklinkNavigate) {
         this.onBacklinkNavigate = onBacklinkNavigate;
     }
@@ -470,6 +772,7 @@ public class EditorTab extends Tab {
 
     public void setFocusMode(boolean enabled) {
         this.focusMode = enabled;
+        if (textArea == null) return;
         if (enabled) {
             textArea.getStyleClass().add("focus-mode");
             updateFocusParagraphStyles();
@@ -489,6 +792,7 @@ public class EditorTab extends Tab {
 
     public void setTypewriterMode(boolean enabled) {
         this.typewriterMode = enabled;
+        if (textArea == null) return;
         if (enabled) {
             typewriterListener = (obs, oldVal, newVal) -> scrollCaretToCenter();
             textArea.caretPositionProperty().addListener(typewriterListener);
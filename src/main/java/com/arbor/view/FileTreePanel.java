@@ -1,5 +1,6 @@
 package com.arbor.view;
 
+import com.arbor.model.FileChange;
 import com.arbor.service.FileOperationService;
 import com.arbor.service.FileTreeService;
 import com.arbor.service.TagService;
@@ -16,6 +17,7 @@ import javafx.scene.layout.VBox;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -23,14 +25,14 @@ public class FileTreePanel extends VBox {
     private final TreeView<Path> treeView;
     private final FileTreeService treeService;
     private final FileOperationService fileOps;
-    private final TagService tagService;
+    private final PathMetadataCache metadataCache;
     private TreeItem<Path> rootItem;
 
     public FileTreePanel(FileTreeService treeService, FileOperationService fileOps, Consumer<Path> onFileOpen,
                          TagService tagService) {
         this.treeService = treeService;
         this.fileOps = fileOps;
-        this.tagService = tagService;
+        this.metadataCache = new PathMetadataCache(tagService);
 
         getStyleClass().add("file-tree-panel");
 
@@ -47,7 +49,7 @@ public class FileTreePanel extends VBox {
         // Tree view
         treeView = new TreeView<>();
         treeView.setShowRoot(true);
-        treeView.setCellFactory(tv -> new PathTreeCell(fileOps, treeService, onFileOpen, tagService));
+        setOnFileOpen(onFileOpen);
         VBox.setVgrow(treeView, Priority.ALWAYS);
 
         // Separator line + New Folder link
@@ -62,8 +64,8 @@ public class FileTreePanel extends VBox {
                 Optional<String> name = DialogHelper.showTextInput("New Folder", "Folder name:", "New Folder");
                 name.ifPresent(n -> {
                     try {
-                        fileOps.createDirectory(rootItem.getValue(), n);
-                        treeService.populateChildren(rootItem);
+                        Path dir = fileOps.createDirectory(rootItem.getValue(), n);
+                        applyChanges(List.of(FileChange.created(dir, true)));
                     } catch (IOException ex) {
                         DialogHelper.showError("Error", "Could not create folder: " + ex.getMessage());
                     }
@@ -77,10 +79,15 @@ public class FileTreePanel extends VBox {
     }
 
     public void loadGrove(Path rootPath) {
+        metadataCache.clear();
         rootItem = treeService.buildTree(rootPath);
         treeView.setRoot(rootItem);
     }
 
+    public void setOnFileOpen(Consumer<Path> onFileOpen) {
+        treeView.setCellFactory(tv -> new PathTreeCell(fileOps, treeService, onFileOpen, metadataCache));
+    }
+
     public TreeView<Path> getTreeView() {
         return treeView;
     }
@@ -91,7 +98,19 @@ public class FileTreePanel extends VBox {
         }
     }
 
+    /** Applies file-system changes to the loaded part of the tree. Must run on the FX thread. */
+    public void applyChanges(List<FileChange> changes) {
+        metadataCache.invalidate(changes);
+        if (rootItem != null) {
+            treeService.applyChanges(rootItem, changes);
+        }
+    }
+
+    /** Repaints the visible cells after tags were re-indexed. */
     public void refreshCells() {
-        Platform.runLater(treeView::refresh);
+        Platform.runLater(() -> {
+            metadataCache.clear();
+            treeView.refresh();
+        });
     }
 }
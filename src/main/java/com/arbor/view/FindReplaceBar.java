@@ -1,5 +1,8 @@
 package com.arbor.view;
 
+import com.arbor.model.MatchMode;
+import com.arbor.service.FindService;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
@@ -9,25 +12,45 @@ import javafx.scene.control.TextField;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import org.fxmisc.richtext.MultiChangeBuilder;
+import org.fxmisc.richtext.Selection;
+import org.fxmisc.richtext.SelectionImpl;
 import org.fxmisc.richtext.StyleClassedTextArea;
+import org.fxmisc.richtext.model.Paragraph;
+import org.fxmisc.richtext.model.StyledDocument;
+import org.fxmisc.richtext.model.TwoDimensional;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.function.BooleanSupplier;
+import java.util.regex.PatternSyntaxException;
 
 public class FindReplaceBar extends VBox {
+    private static final FindService findService = new FindService();
+    private static final int MAX_OVERLAY_MATCHES = 500;
+    private static final long RESEARCH_DELAY_MS = 200;
+
     private final StyleClassedTextArea textArea;
     private final TextField findField;
     private final TextField replaceField;
     private final Label matchCountLabel;
     private final CheckBox caseSensitiveBox;
+    private final CheckBox wholeWordBox;
+    private final CheckBox regexBox;
     private final HBox replaceRow;
 
-    private final List<int[]> matches = new ArrayList<>();
+    // Overlay selections for matches in the viewport; syntax highlighting styles are never touched
+    private final List<Selection<Collection<String>, String, Collection<String>>> overlay = new ArrayList<>();
+    private FindService.MatchSet matches = FindService.MatchSet.EMPTY;
     private int currentMatchIndex = -1;
     private boolean replaceVisible = false;
+    private long textVersion;
+    private volatile long searchGeneration;
+    private Timer researchTimer;
 
     public FindReplaceBar(StyleClassedTextArea textArea) {
         this.textArea = textArea;
@@ -45,6 +68,20 @@ public class FindReplaceBar extends VBox {
         caseSensitiveBox.getStyleClass().add("find-option");
         caseSensitiveBox.setOnAction(e -> performSearch());
 
+        wholeWordBox = new CheckBox("W");
+        wholeWordBox.getStyleClass().add("find-option");
+        regexBox = new CheckBox(".*");
+        regexBox.getStyleClass().add("find-option");
+        // Whole word and regex are exclusive
+        wholeWordBox.setOnAction(e -> {
+            if (wholeWordBox.isSelected()) regexBox.setSelected(false);
+            performSearch();
+        });
+        regexBox.setOnAction(e -> {
+            if (regexBox.isSelected()) wholeWordBox.setSelected(false);
+            performSearch();
+        });
+
         matchCountLabel = new Label("");
         matchCountLabel.getStyleClass().add("match-count");
         matchCountLabel.setMinWidth(70);
@@ -90,7 +127,7 @@ public class FindReplaceBar extends VBox {
         closeBtn.getStyleClass().add("find-nav-button");
         closeBtn.setOnAction(e -> close());
 
-        HBox findRow = new HBox(4, toggleReplaceBtn, findField, caseSensitiveBox, matchCountLabel, prevBtn, nextBtn, closeBtn);
+        HBox findRow = new HBox(4, toggleReplaceBtn, findField, caseSensitiveBox, wholeWordBox, regexBox, matchCountLabel, prevBtn, nextBtn, closeBtn);
         findRow.setAlignment(Pos.CENTER_LEFT);
 
         getChildren().addAll(findRow, replaceRow);
@@ -101,6 +138,13 @@ public class FindReplaceBar extends VBox {
         // Enter navigates to next match
         findField.setOnAction(e -> navigateMatch(1));
         replaceField.setOnAction(e -> replaceCurrent());
+
+        // Keep results in step with edits and the overlay in step with scrolling
+        textArea.plainTextChanges().subscribe(change -> {
+            textVersion++;
+            if (isVisible()) scheduleResearch();
+        });
+        textArea.viewportDirtyEvents().subscribe(e -> renderVisibleMatches());
     }
 
     public void show(boolean withReplace) {
@@ -122,50 +166,164 @@ public class FindReplaceBar extends VBox {
     public void close() {
         setVisible(false);
         setManaged(false);
-        clearHighlights();
+        cancelResearch();
+        searchGeneration++;
+        matches = FindService.MatchSet.EMPTY;
+        currentMatchIndex = -1;
+        clearOverlay();
         textArea.requestFocus();
     }
 
     private void performSearch() {
-        clearHighlights();
-        matches.clear();
-        currentMatchIndex = -1;
-
         String query = findField.getText();
+        long generation = ++searchGeneration;
         if (query == null || query.isEmpty()) {
+            matches = FindService.MatchSet.EMPTY;
+            currentMatchIndex = -1;
             matchCountLabel.setText("");
+            clearOverlay();
             return;
         }
 
-        String text = textArea.getText();
+        MatchMode mode = matchMode();
         boolean caseSensitive = caseSensitiveBox.isSelected();
+        if (!isValidQuery(query, mode, caseSensitive)) {
+            matches = FindService.MatchSet.EMPTY;
+            currentMatchIndex = -1;
+            matchCountLabel.setText("Invalid regex");
+            clearOverlay();
+            return;
+        }
+
+        // The area's content is live; snapshot() hands back the immutable document behind it,
+        // taken here on the FX thread together with the version it belongs to
+        StyledDocument<Collection<String>, String, Collection<String>> snapshot = textArea.getContent().snapshot();
+        long version = textVersion;
+        FindService.MatchSet previous = matches;
+
+        Thread.startVirtualThread(() -> {
+            BooleanSupplier cancelled = () -> generation != searchGeneration;
+            // Literal search works on the joined text so growing queries can narrow; the
+            // pattern modes go paragraph by paragraph, matching what replace-all will touch
+            FindService.MatchSet result = mode == MatchMode.LITERAL
+                    ? findService.search(snapshot.getText(), query, mode, caseSensitive, version, previous, cancelled)
+                    : findService.search(paragraphTexts(snapshot), query, mode, caseSensitive, version, null, cancelled);
+            if (result == null) return;
+            Platform.runLater(() -> {
+                if (generation != searchGeneration) return;
+                applyResults(result);
+            });
+        });
+    }
 
-        int flags = caseSensitive ? 0 : Pattern.CASE_INSENSITIVE;
-        Pattern pattern = Pattern.compile(Pattern.quote(query), flags);
-        Matcher matcher = pattern.matcher(text);
+    private MatchMode matchMode() {
+        if (regexBox.isSelected()) return MatchMode.REGEX;
+        if (wholeWordBox.isSelected()) return MatchMode.WHOLE_WORD;
+        return MatchMode.LITERAL;
+    }
 
-        while (matcher.find()) {
-            matches.add(new int[]{matcher.start(), matcher.end()});
+    private static boolean isValidQuery(String query, MatchMode mode, boolean caseSensitive) {
+        try {
+            mode.compile(query, caseSensitive);
+            return true;
+        } catch (PatternSyntaxException e) {
+            return false;
         }
+    }
+
+    /** Shows a bad REGEX replacement in the bar; returns whether the replacement can be used. */
+    private boolean checkReplacement(String query, MatchMode mode, boolean caseSensitive, String replacement) {
+        if (mode != MatchMode.REGEX) return true;
+        String error = FindService.replacementError(mode.compile(query, caseSensitive), replacement);
+        if (error == null) return true;
+        matchCountLabel.setText(error);
+        return false;
+    }
 
+    private static Iterator<String> paragraphTexts(StyledDocument<Collection<String>, String, Collection<String>> doc) {
+        return doc.getParagraphs().stream().map(Paragraph::getText).iterator();
+    }
+
+    private void applyResults(FindService.MatchSet result) {
+        matches = result;
+        currentMatchIndex = -1;
         matchCountLabel.setText(matches.isEmpty() ? "No results" : matches.size() + " found");
 
-        // Highlight all matches
-        for (int[] match : matches) {
-            textArea.setStyleClass(match[0], match[1], "find-highlight");
+        // Navigate to first match near caret
+        if (!matches.isEmpty() && matches.getVersion() == textVersion) {
+            int index = matches.indexAtOrAfter(textArea.getCaretPosition());
+            currentMatchIndex = index < matches.size() ? index : 0;
+            highlightCurrentMatch();
+        }
+        renderVisibleMatches();
+    }
+
+    private void scheduleResearch() {
+        cancelResearch();
+        researchTimer = new Timer(true);
+        researchTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                Platform.runLater(() -> {
+                    if (isVisible()) performSearch();
+                });
+            }
+        }, RESEARCH_DELAY_MS);
+    }
+
+    private void cancelResearch() {
+        if (researchTimer != null) {
+            researchTimer.cancel();
+            researchTimer = null;
         }
+    }
 
-        // Navigate to first match near caret
-        if (!matches.isEmpty()) {
-            int caretPos = textArea.getCaretPosition();
-            currentMatchIndex = 0;
-            for (int i = 0; i < matches.size(); i++) {
-                if (matches.get(i)[0] >= caretPos) {
-                    currentMatchIndex = i;
-                    break;
-                }
+    private void renderVisibleMatches() {
+        if (!isVisible() || matches.isEmpty() || textArea.getVisibleParagraphs().isEmpty()) {
+            clearOverlay();
+            return;
+        }
+        int firstPar = textArea.visibleParToAllParIndex(0);
+        int lastPar = textArea.visibleParToAllParIndex(textArea.getVisibleParagraphs().size() - 1);
+        int from = textArea.getAbsolutePosition(firstPar, 0);
+        int to = textArea.getAbsolutePosition(lastPar, textArea.getParagraphLength(lastPar));
+        int length = textArea.getLength();
+
+        int index = matches.indexAtOrAfter(from);
+        if (index > 0 && matches.end(index - 1) > from) index--;
+
+        int used = 0;
+        for (; index < matches.size() && matches.start(index) <= to && used < MAX_OVERLAY_MATCHES; index++) {
+            int start = matches.start(index);
+            int end = matches.end(index);
+            // Results may trail the text by one debounce interval; skip spans past the end
+            if (end > length) break;
+            Selection<Collection<String>, String, Collection<String>> selection;
+            if (used < overlay.size()) {
+                selection = overlay.get(used);
+            } else {
+                selection = new SelectionImpl<>("find-match-" + used, textArea,
+                        path -> path.getStyleClass().add("find-highlight"));
+                textArea.addSelection(selection);
+                overlay.add(selection);
             }
-            highlightCurrentMatch();
+            if (selection.getStartPosition() != start || selection.getEndPosition() != end) {
+                selection.selectRange(start, end);
+            }
+            used++;
+        }
+        trimOverlay(used);
+    }
+
+    private void clearOverlay() {
+        trimOverlay(0);
+    }
+
+    private void trimOverlay(int size) {
+        while (overlay.size() > size) {
+            Selection<Collection<String>, String, Collection<String>> selection = overlay.remove(overlay.size() - 1);
+            textArea.removeSelection(selection);
+            selection.dispose();
         }
     }
 
@@ -178,39 +336,74 @@ public class FindReplaceBar extends VBox {
 
     private void highlightCurrentMatch() {
         if (currentMatchIndex < 0 || currentMatchIndex >= matches.size()) return;
-        int[] match = matches.get(currentMatchIndex);
-        textArea.selectRange(match[0], match[1]);
+        if (matches.end(currentMatchIndex) > textArea.getLength()) return;
+        textArea.selectRange(matches.start(currentMatchIndex), matches.end(currentMatchIndex));
         textArea.requestFollowCaret();
         matchCountLabel.setText((currentMatchIndex + 1) + " of " + matches.size());
     }
 
     private void replaceCurrent() {
+        if (!textArea.isEditable()) return;
         if (currentMatchIndex < 0 || currentMatchIndex >= matches.size()) return;
-        int[] match = matches.get(currentMatchIndex);
+        if (matches.getVersion() != textVersion) return;
+        int start = matches.start(currentMatchIndex);
+        int end = matches.end(currentMatchIndex);
         String replacement = replaceField.getText();
-        textArea.replaceText(match[0], match[1], replacement);
+        MatchMode mode = matchMode();
+        if (!checkReplacement(matches.getQuery(), mode, caseSensitiveBox.isSelected(), replacement)) return;
+        if (mode == MatchMode.REGEX) {
+            // Expand $1 etc. by re-matching just the paragraph holding this match
+            int paragraph = textArea.offsetToPosition(start, TwoDimensional.Bias.Forward).getMajor();
+            int paragraphStart = textArea.getAbsolutePosition(paragraph, 0);
+            FindService.MatchSet local = findService.search(
+                    List.of(textArea.getParagraph(paragraph).getText()).iterator(), matches.getQuery(), mode,
+                    caseSensitiveBox.isSelected(), textVersion, replacement, () -> false);
+            int index = local.indexAtOrAfter(start - paragraphStart);
+            if (index >= local.size() || local.start(index) != start - paragraphStart) return;
+            replacement = local.replacement(index);
+        }
+        textArea.replaceText(start, end, replacement);
         performSearch();
     }
 
     private void replaceAll() {
         String query = findField.getText();
         String replacement = replaceField.getText();
-        if (query == null || query.isEmpty()) return;
-
+        if (query == null || query.isEmpty() || !textArea.isEditable()) return;
+        MatchMode mode = matchMode();
         boolean caseSensitive = caseSensitiveBox.isSelected();
-        int flags = caseSensitive ? 0 : Pattern.CASE_INSENSITIVE;
-        String newText = Pattern.compile(Pattern.quote(query), flags)
-                .matcher(textArea.getText())
-                .replaceAll(Matcher.quoteReplacement(replacement));
-        textArea.replaceText(newText);
-        performSearch();
+        if (!isValidQuery(query, mode, caseSensitive)) return;
+        if (!checkReplacement(query, mode, caseSensitive, replacement)) return;
+
+        // Snapshot and version are taken together so the ranges can be checked against the text on apply
+        StyledDocument<Collection<String>, String, Collection<String>> snapshot = textArea.getContent().snapshot();
+        long version = textVersion;
+
+        // Ranges are computed paragraph by paragraph off the FX thread, then applied as one undoable change
+        Thread.startVirtualThread(() -> {
+            FindService.MatchSet ranges = findService.search(paragraphTexts(snapshot), query, mode,
+                    caseSensitive, version, replacement, () -> false);
+            Platform.runLater(() -> applyReplaceAll(ranges, replacement));
+        });
     }
 
-    private void clearHighlights() {
-        // Reset all styling — this will clear find highlights
-        // Syntax highlighting will re-apply via the listener
-        if (!textArea.getText().isEmpty()) {
-            textArea.setStyleClass(0, textArea.getLength(), "");
+    private void applyReplaceAll(FindService.MatchSet ranges, String replacement) {
+        if (ranges.isEmpty() || !textArea.isEditable()) return;
+        // The document moved on while the ranges were computed; they no longer line up
+        if (ranges.getVersion() != textVersion) {
+            matchCountLabel.setText("Text changed, try again");
+            return;
+        }
+
+        MultiChangeBuilder<Collection<String>, String, Collection<String>> change =
+                textArea.createMultiChange(ranges.size());
+        // Descending order keeps every earlier offset valid as later text shifts
+        for (int i = ranges.size() - 1; i >= 0; i--) {
+            String expanded = ranges.replacement(i);
+            change.replaceText(ranges.start(i), ranges.end(i), expanded != null ? expanded : replacement);
         }
+        change.commit();
+        matchCountLabel.setText(ranges.size() + " replaced");
+        performSearch();
     }
 }
@@ -0,0 +1,243 @@
+package com.arbor.view;
+
+import com.arbor.service.GroveReplaceService;
+import com.arbor.service.GroveReplaceService.FilePlan;
+import com.arbor.service.GroveReplaceService.LineChange;
+import com.arbor.service.GroveReplaceService.ReplaceResult;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+public class GroveReplaceDialog extends Stage {
+    private final GroveReplaceService replaceService;
+    private final Path grovePath;
+    private final Set<Path> unsavedPaths;
+    private final Consumer<ReplaceResult> onApplied;
+
+    private final TextField findField;
+    private final TextField replaceField;
+    private final CheckBox caseSensitiveBox;
+    private final Label summaryLabel;
+    private final ListView<FilePlan> planList;
+    private final Button replaceBtn;
+    private final Set<Path> excluded = new HashSet<>();
+
+    private volatile long planGeneration;
+    private String plannedQuery;
+    private String plannedReplacement;
+    private boolean plannedCaseSensitive;
+
+    public GroveReplaceDialog(Stage owner, GroveReplaceService replaceService, Path grovePath,
+                              Set<Path> unsavedPaths, boolean dark, Consumer<ReplaceResult> onApplied) {
+        this.replaceService = replaceService;
+        this.grovePath = grovePath;
+        this.unsavedPaths = unsavedPaths;
+        this.onApplied = onApplied;
+        initModality(Modality.WINDOW_MODAL);
+        initOwner(owner);
+        setTitle("Replace in Grove");
+
+        VBox root = new VBox(10);
+        root.setPadding(new Insets(16));
+        root.getStyleClass().add("grove-replace-dialog");
+        if (dark) {
+            root.getStyleClass().add("dark");
+        }
+
+        findField = new TextField();
+        findField.setPromptText("Find in grove...");
+        findField.getStyleClass().add("find-field");
+        HBox.setHgrow(findField, Priority.ALWAYS);
+
+        caseSensitiveBox = new CheckBox("Aa");
+        caseSensitiveBox.getStyleClass().add("find-option");
+
+        Button previewBtn = new Button("Preview");
+        previewBtn.getStyleClass().add("find-action-button");
+        previewBtn.setOnAction(e -> preview());
+
+        HBox findRow = new HBox(6, findField, caseSensitiveBox, previewBtn);
+        findRow.setAlignment(Pos.CENTER_LEFT);
+
+        replaceField = new TextField();
+        replaceField.setPromptText("Replace with...");
+        replaceField.getStyleClass().add("find-field");
+        HBox.setHgrow(replaceField, Priority.ALWAYS);
+
+        replaceBtn = new Button("Replace All");
+        replaceBtn.getStyleClass().add("find-action-button");
+        replaceBtn.setDisable(true);
+        replaceBtn.setOnAction(e -> apply());
+
+        HBox replaceRow = new HBox(6, replaceField, replaceBtn);
+        replaceRow.setAlignment(Pos.CENTER_LEFT);
+
+        summaryLabel = new Label("");
+        summaryLabel.getStyleClass().add("match-count");
+
+        planList = new ListView<>();
+        planList.getStyleClass().add("grove-replace-list");
+        planList.setCellFactory(lv -> new PlanCell());
+        VBox.setVgrow(planList, Priority.ALWAYS);
+
+        // A preview only holds for the exact query it was made with
+        findField.textProperty().addListener((obs, oldVal, newVal) -> invalidatePreview());
+        replaceField.textProperty().addListener((obs, oldVal, newVal) -> invalidatePreview());
+        caseSensitiveBox.selectedProperty().addListener((obs, oldVal, newVal) -> invalidatePreview());
+        findField.setOnAction(e -> preview());
+        replaceField.setOnAction(e -> preview());
+
+        root.getChildren().addAll(findRow, replaceRow, summaryLabel, planList);
+
+        Scene scene = new Scene(root, 640, 520);
+        var cssUrl = getClass().getResource("/css/arbor.css");
+        if (cssUrl != null) {
+            scene.getStylesheets().add(cssUrl.toExternalForm());
+        }
+        setScene(scene);
+        setOnHidden(e -> planGeneration++);
+    }
+
+    public void setInitialQuery(String query) {
+        if (query != null && !query.isEmpty() && !query.contains("\n")) {
+            findField.setText(query);
+        }
+        findField.selectAll();
+    }
+
+    private void preview() {
+        String query = findField.getText();
+        if (query == null || query.isEmpty()) return;
+        String replacement = replaceField.getText();
+        boolean caseSensitive = caseSensitiveBox.isSelected();
+        long generation = ++planGeneration;
+
+        summaryLabel.setText("Searching...");
+        planList.getItems().clear();
+        replaceBtn.setDisable(true);
+
+        Thread.startVirtualThread(() -> {
+            List<FilePlan> plans = replaceService.plan(grovePath, query, replacement, caseSensitive,
+                    () -> generation != planGeneration);
+            Platform.runLater(() -> {
+                if (generation != planGeneration) return;
+                plannedQuery = query;
+                plannedReplacement = replacement;
+                plannedCaseSensitive = caseSensitive;
+                excluded.clear();
+                excluded.addAll(unsavedPaths);
+                planList.getItems().setAll(plans);
+                updateSummary();
+            });
+        });
+    }
+
+    private void invalidatePreview() {
+        planGeneration++;
+        plannedQuery = null;
+        replaceBtn.setDisable(true);
+        if (!planList.getItems().isEmpty()) {
+            planList.getItems().clear();
+            summaryLabel.setText("Press Enter to preview");
+        }
+    }
+
+    private void updateSummary() {
+        int files = 0;
+        int matches = 0;
+        for (FilePlan plan : planList.getItems()) {
+            if (!excluded.contains(plan.path())) {
+                files++;
+                matches += plan.matchCount();
+            }
+        }
+        summaryLabel.setText(planList.getItems().isEmpty() ? "No results"
+                : matches + " matches in " + files + (files == 1 ? " file" : " files"));
+        replaceBtn.setDisable(plannedQuery == null || files == 0);
+    }
+
+    private void apply() {
+        if (plannedQuery == null) return;
+        List<FilePlan> selected = planList.getItems().stream()
+                .filter(plan -> !excluded.contains(plan.path()))
+                .toList();
+        String query = plannedQuery;
+        String replacement = plannedReplacement;
+        boolean caseSensitive = plannedCaseSensitive;
+
+        getScene().getRoot().setDisable(true);
+        summaryLabel.setText("Replacing in " + selected.size() + " files...");
+
+        Thread.startVirtualThread(() -> {
+            ReplaceResult result = replaceService.apply(selected, query, replacement, caseSensitive);
+            Platform.runLater(() -> {
+                onApplied.accept(result);
+                close();
+            });
+        });
+    }
+
+    private class PlanCell extends ListCell<FilePlan> {
+        @Override
+        protected void updateItem(FilePlan plan, boolean empty) {
+            super.updateItem(plan, empty);
+            if (empty || plan == null) {
+                setText(null);
+                setGraphic(null);
+                return;
+            }
+
+            boolean unsaved = unsavedPaths.contains(plan.path());
+            CheckBox include = new CheckBox();
+            include.setSelected(!excluded.contains(plan.path()));
+            include.setDisable(unsaved);
+            include.setOnAction(e -> {
+                if (include.isSelected()) {
+                    excluded.remove(plan.path());
+                } else {
+                    excluded.add(plan.path());
+                }
+                updateSummary();
+            });
+
+            Label name = new Label(grovePath.relativize(plan.path()).toString());
+            name.getStyleClass().add("grove-replace-file");
+            Label count = new Label(unsaved ? "unsaved in editor, skipped" : String.valueOf(plan.matchCount()));
+            count.getStyleClass().add("match-count");
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+            HBox header = new HBox(6, include, name, spacer, count);
+            header.setAlignment(Pos.CENTER_LEFT);
+
+            VBox box = new VBox(2, header);
+            for (LineChange change : plan.preview()) {
+                Label before = new Label((change.lineNumber() + 1) + "  - " + change.before().strip());
+                before.getStyleClass().add("grove-replace-removed");
+                Label after = new Label((change.lineNumber() + 1) + "  + " + change.after().strip());
+                after.getStyleClass().add("grove-replace-added");
+                box.getChildren().addAll(before, after);
+            }
+            setText(null);
+            setGraphic(box);
+        }
+    }
+}
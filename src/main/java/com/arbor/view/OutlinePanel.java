@@ -13,6 +13,7 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import org.fxmisc.richtext.StyleClassedTextArea;
+import org.reactfx.Subscription;
 
 import java.util.*;
 
@@ -21,8 +22,9 @@ public class OutlinePanel extends VBox {
     private final OutlineService outlineService;
     private final TreeView<OutlineItem> treeView;
     private Timer debounceTimer;
-    private javafx.beans.value.ChangeListener<String> textListener;
+    private Subscription textSubscription;
     private EditorTab boundTab;
+    private long refreshGeneration;
 
     public OutlinePanel(OutlineService outlineService) {
         this.outlineService = outlineService;
@@ -76,17 +78,17 @@ public class OutlinePanel extends VBox {
         // Initial build
         refreshOutline(tab);
 
-        // Listen for text changes with debounce
-        textListener = (obs, oldText, newText) -> scheduleRefresh(tab);
-        tab.getTextArea().textProperty().addListener(textListener);
+        // Listen for edits with debounce; plainTextChanges avoids materializing the full text per keystroke
+        textSubscription = tab.getTextArea().plainTextChanges().subscribe(change -> scheduleRefresh(tab));
     }
 
     public void unbind() {
-        if (boundTab != null && textListener != null) {
-            boundTab.getTextArea().textProperty().removeListener(textListener);
+        if (textSubscription != null) {
+            textSubscription.unsubscribe();
         }
         boundTab = null;
-        textListener = null;
+        textSubscription = null;
+        refreshGeneration++;
         cancelTimer();
     }
 
@@ -114,14 +116,26 @@ public class OutlinePanel extends VBox {
     }
 
     private void refreshOutline(EditorTab tab) {
+        if (tab.isLargeFile()) {
+            refreshGeneration++;
+            treeView.setRoot(null);
+            return;
+        }
         String text = tab.getTextArea().getText();
         String language = tab.getLanguage();
         boolean markdown = tab.isMarkdown();
-
-        List<OutlineItem> items = outlineService.buildOutline(text, language, markdown);
-        TreeItem<OutlineItem> root = buildTree(items);
-        treeView.setRoot(root);
-        expandAll(root);
+        long generation = ++refreshGeneration;
+
+        // Parse off the FX thread; drop the result if a newer refresh or rebind happened meanwhile
+        Thread.startVirtualThread(() -> {
+            List<OutlineItem> items = outlineService.buildOutline(text, language, markdown);
+            Platform.runLater(() -> {
+                if (generation != refreshGeneration || boundTab != tab) return;
+                TreeItem<OutlineItem> root = buildTree(items);
+                treeView.setRoot(root);
+                expandAll(root);
+            });
+        });
     }
 
     private TreeItem<OutlineItem> buildTree(List<OutlineItem> items) {
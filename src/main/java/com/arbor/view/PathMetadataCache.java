@@ -0,0 +1,63 @@
+package com.arbor.view;
+
+import com.arbor.model.FileChange;
+import com.arbor.service.TagService;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a tree cell shows for a path, worked out once and reused as cells scroll. Entries are
+ * dropped when the path changes on disk or when tags are re-indexed. FX thread only.
+ */
+final class PathMetadataCache {
+
+    /** Display data for one path; {@code tags} is null when the file has none. */
+    record Metadata(String name, String extension, String tags) {
+    }
+
+    private final TagService tagService;
+    private final Map<Path, Metadata> entries = new HashMap<>();
+
+    PathMetadataCache(TagService tagService) {
+        this.tagService = tagService;
+    }
+
+    Metadata get(Path path) {
+        return entries.computeIfAbsent(path, this::load);
+    }
+
+    private Metadata load(Path path) {
+        String name = path.getFileName() == null ? path.toString() : path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String extension = dot >= 0 ? name.substring(dot + 1) : "";
+        String tags = null;
+        if (tagService != null) {
+            List<String> fileTags = tagService.getTagsForFile(path);
+            if (!fileTags.isEmpty()) {
+                tags = String.join(", ", fileTags);
+            }
+        }
+        return new Metadata(name, extension, tags);
+    }
+
+    void invalidate(List<FileChange> changes) {
+        for (FileChange change : changes) {
+            if (change.directory() || change.kind() == FileChange.Kind.OVERFLOW) {
+                Path dir = change.path();
+                entries.keySet().removeIf(path -> path.startsWith(dir));
+            } else {
+                entries.remove(change.path());
+            }
+            if (change.target() != null) {
+                entries.remove(change.target());
+            }
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+}
@@ -1,43 +1,82 @@
 package com.arbor.view;
 
+import com.arbor.model.FileChange;
 import com.arbor.service.FileOperationService;
 import com.arbor.service.FileTreeService;
-import com.arbor.service.TagService;
 import com.arbor.util.DialogHelper;
 import com.arbor.util.IconFactory;
 import javafx.geometry.Pos;
 import javafx.geometry.Side;
 import javafx.scene.control.*;
+import javafx.scene.image.ImageView;
+import javafx.scene.input.ContextMenuEvent;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
+/**
+ * Tree row for a file or folder. Cells are recycled as the tree scrolls, so each one builds its
+ * nodes once and only swaps text, icon and tags per item; display data comes from the shared
+ * {@link PathMetadataCache} and the context menu is built when it is opened.
+ */
 public class PathTreeCell extends TreeCell<Path> {
     private final FileOperationService fileOps;
     private final FileTreeService treeService;
     private final Consumer<Path> onFileOpen;
-    private final TagService tagService;
+    private final PathMetadataCache metadataCache;
 
-    public PathTreeCell(FileOperationService fileOps, FileTreeService treeService, Consumer<Path> onFileOpen,
-                        TagService tagService) {
+    private final ImageView icon = IconFactory.iconView();
+    private final Label nameLabel = new Label();
+    private final Label tagsLabel = new Label();
+    private final HBox taggedGraphic;
+    private final ContextMenu contextMenu = new ContextMenu();
+
+    PathTreeCell(FileOperationService fileOps, FileTreeService treeService, Consumer<Path> onFileOpen,
+                 PathMetadataCache metadataCache) {
         this.fileOps = fileOps;
         this.treeService = treeService;
         this.onFileOpen = onFileOpen;
-        this.tagService = tagService;
+        this.metadataCache = metadataCache;
+
+        nameLabel.textFillProperty().bind(textFillProperty());
+        tagsLabel.getStyleClass().add("tree-cell-tags");
+        taggedGraphic = new HBox(2, icon, nameLabel, tagsLabel);
+        taggedGraphic.setAlignment(Pos.CENTER_LEFT);
+
+        // Filters run before the control's own handler shows the menu, so fill it in just then
+        addEventFilter(ContextMenuEvent.CONTEXT_MENU_REQUESTED, e -> {
+            Path path = getItem();
+            if (path != null) {
+                contextMenu.getItems().setAll(createMenuItems(path));
+            }
+        });
+
+        setOnMouseClicked(event -> {
+            Path path = getItem();
+            if (event.getClickCount() == 2 && path != null && !isDirectory() && !isEmpty()) {
+                onFileOpen.accept(path);
+            }
+        });
     }
 
     @Override
     protected void updateItem(Path path, boolean empty) {
         super.updateItem(path, empty);
+        getStyleClass().remove("tree-loading-cell");
+        if (!empty && getTreeItem() instanceof FileTreeService.LoadingItem) {
+            setText("Loading\u2026");
+            setGraphic(null);
+            setContextMenu(null);
+            getStyleClass().add("tree-loading-cell");
+            return;
+        }
         if (empty || path == null) {
             setText(null);
             setGraphic(null);
@@ -45,106 +84,103 @@ public class PathTreeCell extends TreeCell<Path> {
             return;
         }
 
-        String fileName = path.getFileName().toString();
+        PathMetadataCache.Metadata metadata = metadataCache.get(path);
         boolean isRoot = getTreeItem() != null && getTreeItem().getParent() == null;
 
         if (isRoot) {
             setText(null);
-            Label nameLabel = new Label(fileName);
-            nameLabel.setStyle("-fx-padding: 0;");
-            nameLabel.textFillProperty().bind(textFillProperty());
-
-            Region spacer = new Region();
-            HBox.setHgrow(spacer, Priority.ALWAYS);
-
-            Label addBtn = new Label("+");
-            addBtn.getStyleClass().add("tree-panel-add-button");
-            addBtn.setOnMouseClicked(e -> {
-                e.consume();
-                ContextMenu addMenu = new ContextMenu();
-                MenuItem newFile = new MenuItem("New File");
-                newFile.setOnAction(ev -> {
-                    Optional<String> name = DialogHelper.showTextInput("New File", "File name:", "untitled.md");
-                    name.ifPresent(n -> {
-                        try {
-                            fileOps.createFile(path, n);
-                            treeService.populateChildren(getTreeItem());
-                            getTreeItem().setExpanded(true);
-                        } catch (IOException ex) {
-                            DialogHelper.showError("Error", "Could not create file: " + ex.getMessage());
-                        }
-                    });
-                });
-                MenuItem newFolder = new MenuItem("New Folder");
-                newFolder.setOnAction(ev -> {
-                    Optional<String> name = DialogHelper.showTextInput("New Folder", "Folder name:", "New Folder");
-                    name.ifPresent(n -> {
-                        try {
-                            fileOps.createDirectory(path, n);
-                            treeService.populateChildren(getTreeItem());
-                            getTreeItem().setExpanded(true);
-                        } catch (IOException ex) {
-                            DialogHelper.showError("Error", "Could not create folder: " + ex.getMessage());
-                        }
-                    });
-                });
-                addMenu.getItems().addAll(newFile, newFolder);
-                addMenu.show(addBtn, Side.BOTTOM, 0, 0);
-            });
-
-            HBox rootGraphic = new HBox(4, IconFactory.folderIcon(), nameLabel, spacer, addBtn);
-            rootGraphic.setAlignment(Pos.CENTER_LEFT);
-            rootGraphic.setMaxWidth(Double.MAX_VALUE);
-            setGraphic(rootGraphic);
+            setGraphic(createRootGraphic(path, metadata.name()));
+        } else if (isDirectory()) {
+            IconFactory.setFolderIcon(icon);
+            setText(metadata.name());
+            setGraphic(icon);
         } else {
-            if (Files.isDirectory(path)) {
-                setText(fileName);
-                setGraphic(IconFactory.folderIcon());
-            } else {
-                int dot = fileName.lastIndexOf('.');
-                String ext = dot >= 0 ? fileName.substring(dot + 1) : "";
-
-                // Look up tags for this file
-                String tagsText = getTagsForFile(path);
-                if (tagsText != null) {
-                    setText(null);
-                    Label nameLabel = new Label(fileName);
-                    nameLabel.textFillProperty().bind(textFillProperty());
-
-                    Label tagsLabel = new Label(" [" + tagsText + "]");
-                    tagsLabel.getStyleClass().add("tree-cell-tags");
-
-                    HBox cellGraphic = new HBox(2, IconFactory.fileIcon(ext), nameLabel, tagsLabel);
-                    cellGraphic.setAlignment(Pos.CENTER_LEFT);
-                    setGraphic(cellGraphic);
-                } else {
-                    setText(fileName);
-                    setGraphic(IconFactory.fileIcon(ext));
+            IconFactory.setFileIcon(icon, metadata.extension());
+            if (metadata.tags() != null) {
+                setText(null);
+                nameLabel.setText(metadata.name());
+                tagsLabel.setText(" [" + metadata.tags() + "]");
+                // The icon may currently be the graphic itself; reattach it to the row
+                if (taggedGraphic.getChildren().getFirst() != icon) {
+                    taggedGraphic.getChildren().addFirst(icon);
                 }
+                setGraphic(taggedGraphic);
+            } else {
+                setText(metadata.name());
+                setGraphic(icon);
             }
         }
-        setContextMenu(createContextMenu(path));
+        setContextMenu(contextMenu);
+    }
 
-        setOnMouseClicked(event -> {
-            if (event.getClickCount() == 2 && !Files.isDirectory(path)) {
-                onFileOpen.accept(path);
-            }
+    /** Whether this cell shows a directory, as recorded when its parent was listed. */
+    private boolean isDirectory() {
+        return getTreeItem() instanceof FileTreeService.PathItem item && item.isDirectory();
+    }
+
+    private HBox createRootGraphic(Path path, String fileName) {
+        Label rootLabel = new Label(fileName);
+        rootLabel.setStyle("-fx-padding: 0;");
+        rootLabel.textFillProperty().bind(textFillProperty());
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+
+        Label addBtn = new Label("+");
+        addBtn.getStyleClass().add("tree-panel-add-button");
+        addBtn.setOnMouseClicked(e -> {
+            e.consume();
+            ContextMenu addMenu = new ContextMenu();
+            MenuItem newFile = new MenuItem("New File");
+            newFile.setOnAction(ev -> {
+                Optional<String> name = DialogHelper.showTextInput("New File", "File name:", "untitled.md");
+                name.ifPresent(n -> {
+                    try {
+                        Path created = fileOps.createFile(path, n);
+                        applyChange(FileChange.created(created, false));
+                        getTreeItem().setExpanded(true);
+                    } catch (IOException ex) {
+                        DialogHelper.showError("Error", "Could not create file: " + ex.getMessage());
+                    }
+                });
+            });
+            MenuItem newFolder = new MenuItem("New Folder");
+            newFolder.setOnAction(ev -> {
+                Optional<String> name = DialogHelper.showTextInput("New Folder", "Folder name:", "New Folder");
+                name.ifPresent(n -> {
+                    try {
+                        Path created = fileOps.createDirectory(path, n);
+                        applyChange(FileChange.created(created, true));
+                        getTreeItem().setExpanded(true);
+                    } catch (IOException ex) {
+                        DialogHelper.showError("Error", "Could not create folder: " + ex.getMessage());
+                    }
+                });
+            });
+            addMenu.getItems().addAll(newFile, newFolder);
+            addMenu.show(addBtn, Side.BOTTOM, 0, 0);
         });
+
+        HBox rootGraphic = new HBox(4, IconFactory.folderIcon(), rootLabel, spacer, addBtn);
+        rootGraphic.setAlignment(Pos.CENTER_LEFT);
+        rootGraphic.setMaxWidth(Double.MAX_VALUE);
+        return rootGraphic;
     }
 
-    private ContextMenu createContextMenu(Path path) {
-        ContextMenu menu = new ContextMenu();
+    private List<MenuItem> createMenuItems(Path path) {
+        List<MenuItem> items = new ArrayList<>();
+        boolean directory = isDirectory();
 
-        if (Files.isDirectory(path)) {
+        if (directory) {
             MenuItem newFile = new MenuItem("New File");
             newFile.setOnAction(e -> {
                 Optional<String> name = DialogHelper.showTextInput("New File", "File name:", "untitled.md");
                 name.ifPresent(n -> {
                     try {
-                        fileOps.createFile(path, n);
+                        Path created = fileOps.createFile(path, n);
+                        applyChange(FileChange.created(created, false));
                         TreeItem<Path> item = getTreeItem();
                         if (item != null) {
-                            treeService.populateChildren(item);
                             item.setExpanded(true);
                         }
                     } catch (IOException ex) {
@@ -158,10 +194,10 @@ public class PathTreeCell extends TreeCell<Path> {
                 Optional<String> name = DialogHelper.showTextInput("New Folder", "Folder name:", "New Folder");
                 name.ifPresent(n -> {
                     try {
-                        fileOps.createDirectory(path, n);
+                        Path created = fileOps.createDirectory(path, n);
+                        applyChange(FileChange.created(created, true));
                         TreeItem<Path> item = getTreeItem();
                         if (item != null) {
-                            treeService.populateChildren(item);
                             item.setExpanded(true);
                         }
                     } catch (IOException ex) {
@@ -170,7 +206,7 @@ public class PathTreeCell extends TreeCell<Path> {
                 });
             });
 
-            menu.getItems().addAll(newFile, newFolder, new SeparatorMenuItem());
+            items.addAll(List.of(newFile, newFolder, new SeparatorMenuItem()));
         }
 
         MenuItem rename = new MenuItem("Rename");
@@ -178,11 +214,8 @@ public class PathTreeCell extends TreeCell<Path> {
             Optional<String> name = DialogHelper.showTextInput("Rename", "New name:", path.getFileName().toString());
             name.ifPresent(n -> {
                 try {
-                    fileOps.rename(path, n);
-                    TreeItem<Path> item = getTreeItem();
-                    if (item != null && item.getParent() != null) {
-                        treeService.populateChildren(item.getParent());
-                    }
+                    Path renamed = fileOps.rename(path, n);
+                    applyChange(FileChange.renamed(path, renamed, directory));
                 } catch (IOException ex) {
                     DialogHelper.showError("Error", "Could not rename: " + ex.getMessage());
                 }
@@ -196,28 +229,23 @@ public class PathTreeCell extends TreeCell<Path> {
             if (confirmed) {
                 try {
                     fileOps.delete(path);
-                    TreeItem<Path> item = getTreeItem();
-                    if (item != null && item.getParent() != null) {
-                        treeService.populateChildren(item.getParent());
-                    }
+                    applyChange(FileChange.deleted(path, directory));
                 } catch (IOException ex) {
                     DialogHelper.showError("Error", "Could not delete: " + ex.getMessage());
                 }
             }
         });
 
-        menu.getItems().addAll(rename, delete);
-        return menu;
+        items.add(rename);
+        items.add(delete);
+        return items;
     }
 
-    private String getTagsForFile(Path path) {
-        if (tagService == null) return null;
-        Map<String, Set<Path>> allTags = tagService.getAllTags();
-        String tags = allTags.entrySet().stream()
-                .filter(entry -> entry.getValue().contains(path))
-                .map(Map.Entry::getKey)
-                .sorted()
-                .collect(Collectors.joining(", "));
-        return tags.isEmpty() ? null : tags;
+    /** Applies our own change right away; the watcher's later report of it is a no-op. */
+    private void applyChange(FileChange change) {
+        metadataCache.invalidate(List.of(change));
+        if (getTreeView() != null) {
+            treeService.applyChanges(getTreeView().getRoot(), List.of(change));
+        }
     }
 }
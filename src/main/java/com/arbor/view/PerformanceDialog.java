@@ -0,0 +1,127 @@
+package com.arbor.view;
+
+import com.arbor.util.GsonFactory;
+import com.arbor.util.MetricsRegistry;
+import com.arbor.util.MetricsRegistry.MetricSnapshot;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.util.function.Function;
+
+/**
+ * Live view of {@link MetricsRegistry}: one row per metric with its count and latency
+ * percentiles, refreshed every second while the window is open.
+ */
+public class PerformanceDialog extends Stage {
+    private final MetricsRegistry registry;
+    private final TableView<MetricSnapshot> table = new TableView<>();
+    private final Timeline refresher;
+
+    public PerformanceDialog(Stage owner, MetricsRegistry registry, boolean dark) {
+        this.registry = registry;
+        initOwner(owner);
+        setTitle("Performance");
+
+        VBox root = new VBox(10);
+        root.setPadding(new Insets(16));
+        root.getStyleClass().add("performance-dialog");
+        if (dark) {
+            root.getStyleClass().add("dark");
+        }
+
+        Label hint = new Label("Timers in milliseconds. Percentiles are accurate to about 3%.");
+        hint.getStyleClass().add("match-count");
+
+        table.getColumns().add(textColumn("Metric", MetricSnapshot::name, 200));
+        table.getColumns().add(textColumn("Type", MetricSnapshot::type, 80));
+        table.getColumns().add(numberColumn("Count", m -> Long.toString(m.count())));
+        table.getColumns().add(numberColumn("Mean", m -> formatValue(m, m.mean())));
+        table.getColumns().add(numberColumn("p50", m -> formatValue(m, m.p50())));
+        table.getColumns().add(numberColumn("p90", m -> formatValue(m, m.p90())));
+        table.getColumns().add(numberColumn("p99", m -> formatValue(m, m.p99())));
+        table.getColumns().add(numberColumn("p99.9", m -> formatValue(m, m.p999())));
+        table.getColumns().add(numberColumn("Max", m -> formatValue(m, m.max())));
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        table.setPlaceholder(new Label("Nothing recorded yet"));
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        Button copyBtn = new Button("Copy JSON");
+        copyBtn.getStyleClass().add("find-action-button");
+        copyBtn.setOnAction(e -> {
+            ClipboardContent content = new ClipboardContent();
+            content.putString(GsonFactory.gson().toJson(registry.toJson()));
+            Clipboard.getSystemClipboard().setContent(content);
+        });
+
+        Button resetBtn = new Button("Reset");
+        resetBtn.getStyleClass().add("find-action-button");
+        resetBtn.setOnAction(e -> {
+            registry.reset();
+            refresh();
+        });
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox buttons = new HBox(6, hint, spacer, resetBtn, copyBtn);
+        buttons.setAlignment(Pos.CENTER_LEFT);
+
+        root.getChildren().addAll(table, buttons);
+
+        Scene scene = new Scene(root, 820, 460);
+        var cssUrl = getClass().getResource("/css/arbor.css");
+        if (cssUrl != null) {
+            scene.getStylesheets().add(cssUrl.toExternalForm());
+        }
+        setScene(scene);
+
+        refresher = new Timeline(new KeyFrame(Duration.seconds(1), e -> refresh()));
+        refresher.setCycleCount(Timeline.INDEFINITE);
+        setOnShown(e -> {
+            refresh();
+            refresher.play();
+        });
+        setOnHidden(e -> refresher.stop());
+    }
+
+    private void refresh() {
+        table.getItems().setAll(registry.snapshot());
+    }
+
+    private static TableColumn<MetricSnapshot, String> textColumn(String title, Function<MetricSnapshot, String> value,
+                                                                   double width) {
+        TableColumn<MetricSnapshot, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.apply(cell.getValue())));
+        column.setPrefWidth(width);
+        return column;
+    }
+
+    /** Counters have no distribution, so only their count is shown. */
+    private static String formatValue(MetricSnapshot metric, double value) {
+        if (metric.type().equals("counter")) return "";
+        return value == Math.rint(value) ? Long.toString((long) value) : String.format("%.2f", value);
+    }
+
+    private static TableColumn<MetricSnapshot, String> numberColumn(String title, Function<MetricSnapshot, String> value) {
+        TableColumn<MetricSnapshot, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.apply(cell.getValue())));
+        column.setStyle("-fx-alignment: CENTER-RIGHT;");
+        column.setPrefWidth(70);
+        return column;
+    }
+}
@@ -0,0 +1,198 @@
+package com.arbor.view;
+
+import com.arbor.service.PathIndexService;
+import com.arbor.service.PathIndexService.Match;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/** Fuzzy file finder over the grove's path index, styled like the command palette. */
+public class QuickOpenPalette extends VBox {
+    private static final int MAX_RESULTS = 50;
+
+    private final PathIndexService pathIndex;
+    private final TextField searchField;
+    private final ListView<Match> resultList;
+    private Consumer<Path> onFileOpen;
+    private Runnable onHide;
+
+    public QuickOpenPalette(PathIndexService pathIndex) {
+        this.pathIndex = pathIndex;
+
+        getStyleClass().addAll("command-palette", "quick-open");
+        setVisible(false);
+        setManaged(false);
+        setMaxWidth(520);
+        setMaxHeight(380);
+        setMinWidth(520);
+
+        searchField = new TextField();
+        searchField.setPromptText("Go to file...");
+        searchField.getStyleClass().add("command-palette-field");
+
+        resultList = new ListView<>();
+        resultList.getStyleClass().add("command-palette-list");
+        resultList.setCellFactory(lv -> new MatchCell());
+        VBox.setVgrow(resultList, Priority.ALWAYS);
+
+        getChildren().addAll(searchField, resultList);
+        setPadding(Insets.EMPTY);
+
+        // The index answers in a few milliseconds, so query on every keystroke
+        searchField.textProperty().addListener((obs, oldVal, newVal) -> refreshResults());
+
+        searchField.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.ESCAPE) {
+                hide();
+                event.consume();
+            } else if (event.getCode() == KeyCode.DOWN) {
+                moveSelection(1);
+                event.consume();
+            } else if (event.getCode() == KeyCode.UP) {
+                moveSelection(-1);
+                event.consume();
+            } else if (event.getCode() == KeyCode.ENTER) {
+                openSelected();
+                event.consume();
+            }
+        });
+
+        resultList.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.ESCAPE) {
+                hide();
+                event.consume();
+            } else if (event.getCode() == KeyCode.ENTER) {
+                openSelected();
+                event.consume();
+            }
+        });
+
+        resultList.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 1) {
+                openSelected();
+            }
+        });
+    }
+
+    private void refreshResults() {
+        resultList.getItems().setAll(pathIndex.search(searchField.getText(), MAX_RESULTS));
+        if (!resultList.getItems().isEmpty()) {
+            resultList.getSelectionModel().selectFirst();
+            resultList.scrollTo(0);
+        }
+    }
+
+    private void moveSelection(int delta) {
+        int count = resultList.getItems().size();
+        if (count == 0) return;
+        int index = Math.floorMod(resultList.getSelectionModel().getSelectedIndex() + delta, count);
+        resultList.getSelectionModel().select(index);
+        resultList.scrollTo(index);
+    }
+
+    private void openSelected() {
+        Match selected = resultList.getSelectionModel().getSelectedItem();
+        if (selected == null) return;
+        if (!Files.isRegularFile(selected.path())) {
+            // Deleted outside the tree since it was indexed
+            pathIndex.remove(selected.path());
+            refreshResults();
+            return;
+        }
+        hide();
+        if (onFileOpen != null) {
+            onFileOpen.accept(selected.path());
+        }
+    }
+
+    public void toggle() {
+        if (isVisible()) {
+            hide();
+        } else {
+            show();
+        }
+    }
+
+    public void show() {
+        setVisible(true);
+        setManaged(true);
+        searchField.clear();
+        refreshResults();
+        searchField.requestFocus();
+    }
+
+    public void hide() {
+        setVisible(false);
+        setManaged(false);
+        if (onHide != null) {
+            onHide.run();
+        }
+    }
+
+    public void setOnFileOpen(Consumer<Path> onFileOpen) {
+        this.onFileOpen = onFileOpen;
+    }
+
+    public void setOnHide(Runnable onHide) {
+        this.onHide = onHide;
+    }
+
+    /** File name with matched characters highlighted, followed by its folder. */
+    private static class MatchCell extends ListCell<Match> {
+        @Override
+        protected void updateItem(Match item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setGraphic(null);
+                setText(null);
+                return;
+            }
+            String relative = item.relativePath();
+            int nameStart = Math.max(relative.lastIndexOf('/'), relative.lastIndexOf('\\')) + 1;
+
+            TextFlow name = new TextFlow();
+            name.getStyleClass().add("quick-open-name");
+            appendHighlighted(name, relative, nameStart, relative.length(), item.positions());
+            TextFlow folder = new TextFlow();
+            folder.getStyleClass().add("quick-open-folder");
+            if (nameStart > 0) {
+                appendHighlighted(folder, relative, 0, nameStart - 1, item.positions());
+            }
+
+            HBox container = new HBox(10, name, folder);
+            container.setAlignment(Pos.CENTER_LEFT);
+            setGraphic(container);
+            setText(null);
+        }
+
+        private static void appendHighlighted(TextFlow flow, String text, int from, int to, int[] positions) {
+            int runStart = from;
+            boolean runMatched = false;
+            for (int i = from; i <= to; i++) {
+                boolean matched = i < to && Arrays.binarySearch(positions, i) >= 0;
+                if (i == to || matched != runMatched) {
+                    if (i > runStart) {
+                        Text run = new Text(text.substring(runStart, i));
+                        run.getStyleClass().add(runMatched ? "quick-open-match" : "quick-open-text");
+                        flow.getChildren().add(run);
+                    }
+                    runStart = i;
+                    runMatched = matched;
+                }
+            }
+        }
+    }
+}
@@ -1,19 +1,30 @@
 package com.arbor.view;
 
+import com.arbor.model.MatchMode;
 import com.arbor.service.SearchService;
+import com.arbor.service.SearchService.SearchResult;
+import com.arbor.service.SearchService.Snippet;
 import com.arbor.service.TagService;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.function.Consumer;
+import java.util.regex.PatternSyntaxException;
 
 public class SearchBar extends VBox {
     private final SearchService searchService;
@@ -22,7 +33,12 @@ public class SearchBar extends VBox {
     private final ToggleButton fileToggle;
     private final ToggleButton contentToggle;
     private final ToggleButton tagToggle;
-    private final ListView<Path> resultsList;
+    private final ToggleButton wholeWordToggle;
+    private final ToggleButton regexToggle;
+    private final ListView<SearchResult> resultsList;
+    // Written on the FX thread; read by running content searches to stop once superseded
+    private volatile long searchGeneration;
+    private Timer debounceTimer;
 
     private Path rootPath;
     private Consumer<Path> onFileOpen;
@@ -63,6 +79,19 @@ public class SearchBar extends VBox {
             }
         });
 
+        // Content match options, shown only in Content mode; whole word and regex are exclusive
+        ToggleGroup matchModeGroup = new ToggleGroup();
+        wholeWordToggle = new ToggleButton("W");
+        wholeWordToggle.setToggleGroup(matchModeGroup);
+        wholeWordToggle.getStyleClass().add("search-bar-toggle");
+        regexToggle = new ToggleButton(".*");
+        regexToggle.setToggleGroup(matchModeGroup);
+        regexToggle.getStyleClass().add("search-bar-toggle");
+        for (ToggleButton option : List.of(wholeWordToggle, regexToggle)) {
+            option.visibleProperty().bind(contentToggle.selectedProperty());
+            option.managedProperty().bind(contentToggle.selectedProperty());
+        }
+
         // Close button
         Label closeBtn = new Label("\u2715");
         closeBtn.getStyleClass().add("search-bar-close");
@@ -80,27 +109,17 @@ public class SearchBar extends VBox {
         });
 
         // Search row
-        HBox searchRow = new HBox(8, searchField, fileToggle, contentToggle, tagToggle, closeBtn);
+        HBox searchRow = new HBox(8, searchField, wholeWordToggle, regexToggle, fileToggle, contentToggle, tagToggle, closeBtn);
         searchRow.setAlignment(Pos.CENTER_LEFT);
         searchRow.setPadding(new Insets(8, 12, 4, 12));
 
         // Results dropdown
         resultsList = new ListView<>();
         resultsList.getStyleClass().add("search-bar-results");
-        resultsList.setMaxHeight(200);
+        resultsList.setMaxHeight(320);
         resultsList.setVisible(false);
         resultsList.setManaged(false);
-        resultsList.setCellFactory(lv -> new ListCell<>() {
-            @Override
-            protected void updateItem(Path item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null || rootPath == null) {
-                    setText(null);
-                } else {
-                    setText(rootPath.relativize(item).toString());
-                }
-            }
-        });
+        resultsList.setCellFactory(lv -> new ResultCell());
 
         getChildren().addAll(searchRow, resultsList);
 
@@ -109,6 +128,7 @@ public class SearchBar extends VBox {
 
         // Re-search when toggle changes
         modeGroup.selectedToggleProperty().addListener((obs, oldVal, newVal) -> performSearch(searchField.getText()));
+        matchModeGroup.selectedToggleProperty().addListener((obs, oldVal, newVal) -> performSearch(searchField.getText()));
 
         // Open file on click
         resultsList.setOnMouseClicked(event -> {
@@ -139,24 +159,66 @@ public class SearchBar extends VBox {
     }
 
     private void performSearch(String query) {
+        long generation = ++searchGeneration;
+        cancelTimer();
         if (query == null || query.trim().isEmpty() || rootPath == null) {
-            resultsList.getItems().clear();
-            resultsList.setVisible(false);
-            resultsList.setManaged(false);
+            showResults(List.of());
             return;
         }
 
-        List<Path> results;
         if (tagToggle.isSelected()) {
             String tagQuery = query.trim().startsWith("#") ? query.trim().substring(1) : query.trim();
-            results = new java.util.ArrayList<>(tagService.getFilesForTag(tagQuery));
+            showPaths(tagService.getFilesForTag(tagQuery));
         } else if (contentToggle.isSelected()) {
-            results = searchService.searchByContent(rootPath, query.trim())
-                    .stream().map(SearchService.SearchResult::path).toList();
+            MatchMode mode = regexToggle.isSelected() ? MatchMode.REGEX
+                    : wholeWordToggle.isSelected() ? MatchMode.WHOLE_WORD : MatchMode.LITERAL;
+            String contentQuery = mode == MatchMode.REGEX ? query : query.trim();
+            scheduleContentSearch(rootPath, contentQuery, mode, generation);
         } else {
-            results = searchService.searchByName(rootPath, query.trim());
+            showPaths(searchService.searchByName(rootPath, query.trim()));
+        }
+    }
+
+    /**
+     * Reads file contents, so it waits for typing to pause and runs off the FX thread; a newer
+     * query stops a running search between files and its results are dropped.
+     */
+    private void scheduleContentSearch(Path root, String query, MatchMode mode, long generation) {
+        debounceTimer = new Timer(true);
+        debounceTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                Thread.startVirtualThread(() -> {
+                    List<SearchResult> results;
+                    try {
+                        results = searchService.searchByContent(root, query, mode, false,
+                                () -> generation != searchGeneration);
+                    } catch (PatternSyntaxException e) {
+                        results = List.of();
+                    }
+                    List<SearchResult> found = results;
+                    Platform.runLater(() -> {
+                        if (generation == searchGeneration) showResults(found);
+                    });
+                });
+            }
+        }, 250);
+    }
+
+    private void cancelTimer() {
+        if (debounceTimer != null) {
+            debounceTimer.cancel();
+            debounceTimer = null;
         }
+    }
+
+    private void showPaths(Collection<Path> paths) {
+        showResults(paths.stream()
+                .map(path -> new SearchResult(path, path.getFileName().toString()))
+                .toList());
+    }
 
+    private void showResults(List<SearchResult> results) {
         resultsList.getItems().setAll(results);
         boolean hasResults = !results.isEmpty();
         resultsList.setVisible(hasResults);
@@ -164,9 +226,9 @@ public class SearchBar extends VBox {
     }
 
     private void openSelected() {
-        Path selected = resultsList.getSelectionModel().getSelectedItem();
-        if (selected != null && !Files.isDirectory(selected) && onFileOpen != null) {
-            onFileOpen.accept(selected);
+        SearchResult selected = resultsList.getSelectionModel().getSelectedItem();
+        if (selected != null && !Files.isDirectory(selected.path()) && onFileOpen != null) {
+            onFileOpen.accept(selected.path());
             hide();
         }
     }
@@ -187,6 +249,8 @@ public class SearchBar extends VBox {
     }
 
     public void hide() {
+        searchGeneration++;
+        cancelTimer();
         setVisible(false);
         setManaged(false);
         searchField.clear();
@@ -207,4 +271,69 @@ public class SearchBar extends VBox {
     public void setOnFileOpen(Consumer<Path> onFileOpen) {
         this.onFileOpen = onFileOpen;
     }
+
+    /** Shows the relative path, and for content results the hit count and highlighted snippets. */
+    private class ResultCell extends ListCell<SearchResult> {
+        @Override
+        protected void updateItem(SearchResult item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null || rootPath == null) {
+                setText(null);
+                setGraphic(null);
+                return;
+            }
+            String relative = rootPath.relativize(item.path()).toString();
+            if (item.snippets().isEmpty()) {
+                setText(relative);
+                setGraphic(null);
+                return;
+            }
+
+            Label name = new Label(relative);
+            name.getStyleClass().add("search-result-file");
+            Label count = new Label(item.hitCount() == 1 ? "1 match" : item.hitCount() + " matches");
+            count.getStyleClass().add("search-result-count");
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+            HBox header = new HBox(6, name, spacer, count);
+            header.setAlignment(Pos.CENTER_LEFT);
+
+            VBox box = new VBox(2, header);
+            for (Snippet snippet : item.snippets()) {
+                box.getChildren().add(snippetFlow(snippet));
+            }
+            setText(null);
+            setGraphic(box);
+        }
+
+        private TextFlow snippetFlow(Snippet snippet) {
+            TextFlow flow = new TextFlow();
+            flow.getStyleClass().add("search-snippet");
+            Text lineNumber = new Text((snippet.lineNumber() + 1) + "  ");
+            lineNumber.getStyleClass().add("search-snippet-line");
+            flow.getChildren().add(lineNumber);
+
+            String text = snippet.text();
+            int[] highlights = snippet.highlights();
+            int pos = 0;
+            for (int i = 0; i < highlights.length; i += 2) {
+                if (highlights[i] > pos) {
+                    flow.getChildren().add(snippetText(text.substring(pos, highlights[i]), false));
+                }
+                flow.getChildren().add(snippetText(text.substring(highlights[i], highlights[i + 1]), true));
+                pos = highlights[i + 1];
+            }
+            if (pos < text.length()) {
+                flow.getChildren().add(snippetText(text.substring(pos), false));
+            }
+            return flow;
+        }
+
+        private Text snippetText(String value, boolean match) {
+            // Tabs render at full width and would push the match out of view
+            Text text = new Text(value.replace('\t', ' '));
+            text.getStyleClass().add(match ? "search-snippet-match" : "search-snippet-text");
+            return text;
+        }
+    }
 }
@@ -104,6 +104,66 @@ public class SettingsDialog extends Stage {
 
         Separator sepDailyNotes = new Separator();
 
+        // Editor section
+        Label editorLabel = new Label("Editor");
+        editorLabel.getStyleClass().add("settings-section-label");
+
+        CheckBox largeFileBox = new CheckBox("Open large files read-only");
+        largeFileBox.getStyleClass().add("settings-value");
+        largeFileBox.setSelected(config.isLargeFileModeEnabled());
+
+        Label thresholdLabel = new Label("Threshold (MB):");
+        thresholdLabel.getStyleClass().add("settings-value");
+
+        TextField thresholdField = new TextField(String.valueOf(config.getLargeFileThresholdMb()));
+        thresholdField.setPrefWidth(80);
+        thresholdField.disableProperty().bind(largeFileBox.selectedProperty().not());
+        thresholdField.focusedProperty().addListener((obs, wasFocused, isFocused) -> {
+            if (!isFocused) {
+                try {
+                    int value = Integer.parseInt(thresholdField.getText().trim());
+                    if (value > 0) {
+                        config.setLargeFileThresholdMb(value);
+                        configService.save();
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+                thresholdField.setText(String.valueOf(config.getLargeFileThresholdMb()));
+            }
+        });
+
+        largeFileBox.setOnAction(e -> {
+            config.setLargeFileModeEnabled(largeFileBox.isSelected());
+            configService.save();
+        });
+
+        HBox thresholdRow = new HBox(8, thresholdLabel, thresholdField);
+        thresholdRow.setAlignment(Pos.CENTER_LEFT);
+
+        Label hibernateLabel = new Label("Unload idle tabs after (min, 0 = never):");
+        hibernateLabel.getStyleClass().add("settings-value");
+
+        TextField hibernateField = new TextField(String.valueOf(config.getHibernateTabsAfterMinutes()));
+        hibernateField.setPrefWidth(60);
+        hibernateField.focusedProperty().addListener((obs, wasFocused, isFocused) -> {
+            if (!isFocused) {
+                try {
+                    int value = Integer.parseInt(hibernateField.getText().trim());
+                    if (value >= 0) {
+                        config.setHibernateTabsAfterMinutes(value);
+                        configService.save();
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+                hibernateField.setText(String.valueOf(config.getHibernateTabsAfterMinutes()));
+            }
+        });
+
+        HBox hibernateRow = new HBox(8, hibernateLabel, hibernateField);
+        hibernateRow.setAlignment(Pos.CENTER_LEFT);
+
+        Separator sepEditor = new Separator();
+
         // Grove section
         Label groveLabel = new Label("Current Grove");
         groveLabel.getStyleClass().add("settings-section-label");
@@ -135,10 +195,11 @@ public class SettingsDialog extends Stage {
         root.getChildren().addAll(heading,
                 appearanceLabel, themeButtons, sepAppearance,
                 dailyNotesLabel, dailyNotesRow, sepDailyNotes,
+                editorLabel, largeFileBox, thresholdRow, hibernateRow, sepEditor,
                 groveLabel, grovePathLabel, switchGroveBtn, sep2,
                 aboutLabel, version, tagline);
 
-        Scene scene = new Scene(root, 440, 500);
+        Scene scene = new Scene(root, 440, 640);
         var cssUrl = getClass().getResource("/css/arbor.css");
         if (cssUrl != null) {
             scene.getStylesheets().add(cssUrl.toExternalForm());
@@ -1,5 +1,6 @@
 package com.arbor.view;
 
+import javafx.beans.value.ChangeListener;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
@@ -16,6 +17,9 @@ public class StatusBar extends HBox {
     private final Label wordCountLabel;
     private final Label focusIndicator;
     private final Label typewriterIndicator;
+    private EditorTab boundTab;
+    private StyleClassedTextArea boundArea;
+    private ChangeListener<Integer> caretListener;
 
     public StatusBar() {
         getStyleClass().add("status-bar");
@@ -60,24 +64,24 @@ public class StatusBar extends HBox {
     }
 
     private void updateForTab(Tab tab) {
+        unbindTextArea();
         if (tab instanceof EditorTab editorTab) {
-            StyleClassedTextArea textArea = editorTab.getTextArea();
             String fileName = editorTab.getFilePath().getFileName().toString();
+            boundTab = editorTab;
 
             // File type
             int dot = fileName.lastIndexOf('.');
             String ext = dot >= 0 ? fileName.substring(dot + 1).toUpperCase() : "TEXT";
             fileTypeLabel.setText(ext);
 
-            // Update cursor position on caret changes
-            textArea.caretPositionProperty().addListener((o, oldPos, newPos) -> {
-                updateCursorPosition(textArea);
-                updateWordCount(textArea, fileName);
+            // Restored and hibernated tabs build their editor only once shown; asking for the
+            // text area here would force that, so follow the caret once the file has loaded
+            cursorPositionLabel.setText("");
+            wordCountLabel.setText("");
+            editorTab.whenLoaded(() -> {
+                if (boundTab != editorTab || boundArea != null || !editorTab.isMaterialized()) return;
+                bindTextArea(editorTab.getTextArea(), fileName);
             });
-
-            // Initial update
-            updateCursorPosition(textArea);
-            updateWordCount(textArea, fileName);
         } else {
             cursorPositionLabel.setText("");
             fileTypeLabel.setText("");
@@ -85,6 +89,29 @@ public class StatusBar extends HBox {
         }
     }
 
+    private void bindTextArea(StyleClassedTextArea textArea, String fileName) {
+        boundArea = textArea;
+        caretListener = (o, oldPos, newPos) -> {
+            updateCursorPosition(textArea);
+            updateWordCount(textArea, fileName);
+        };
+        textArea.caretPositionProperty().addListener(caretListener);
+
+        // Initial update
+        updateCursorPosition(textArea);
+        updateWordCount(textArea, fileName);
+    }
+
+    /** Stops following the previous tab's caret. */
+    private void unbindTextArea() {
+        if (boundArea != null) {
+            boundArea.caretPositionProperty().removeListener(caretListener);
+        }
+        boundTab = null;
+        boundArea = null;
+        caretListener = null;
+    }
+
     private void updateCursorPosition(StyleClassedTextArea textArea) {
         int caretPos = textArea.getCaretPosition();
         int paragraph = textArea.getCurrentParagraph() + 1;
@@ -5,11 +5,13 @@ module com.arbor {
     requires javafx.web;
     requires org.fxmisc.richtext;
     requires org.fxmisc.flowless;
+    requires org.fxmisc.undo;
     requires reactfx;
     requires com.google.gson;
     requires org.slf4j;
     requires org.commonmark;
     requires java.desktop;
+    requires jdk.jfr;
 
     opens com.arbor to javafx.fxml;
     opens com.arbor.model to com.google.gson;
@@ -0,0 +1,197 @@
+package com.arbor.service;
+
+import com.arbor.model.BacklinkEntry;
+import com.arbor.util.MetricsRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the graph and its overlay against a direct scan of the files on disk, through
+ * incremental rescans, repeated rescans of one file, deletions and compactions.
+ */
+class BacklinkServiceTest {
+
+    private static final int NOTES = 60;
+    private static final Comparator<BacklinkEntry> ORDER = Comparator
+            .comparing((BacklinkEntry e) -> e.sourcePath().toString())
+            .thenComparingInt(BacklinkEntry::lineNumber)
+            .thenComparing(BacklinkEntry::linkTarget);
+
+    @TempDir
+    Path grove;
+
+    private final Random random = new Random(42);
+    private final List<Path> notes = new ArrayList<>();
+
+    @BeforeEach
+    void createGrove() throws IOException {
+        for (int i = 0; i < NOTES; i++) {
+            notes.add(grove.resolve("Note" + i + ".md"));
+        }
+        // A file without links leaves an empty row that finding a link's source must skip
+        Files.writeString(grove.resolve("Empty.md"), "no links here");
+        for (Path note : notes) {
+            writeRandomLinks(note);
+        }
+        Files.writeString(grove.resolve("Plain.txt"), "[[Note1]] and [[ note2.MD ]]");
+    }
+
+    @Test
+    void fullScanMatchesDirectScan() {
+        BacklinkService service = scanned();
+        assertMatchesDisk(service);
+    }
+
+    @Test
+    void rescansMatchDirectScanAcrossCompactions() throws IOException {
+        BacklinkService service = scanned();
+        long compactionsBefore = compactions();
+
+        for (int op = 0; op < 300; op++) {
+            Path note = notes.get(random.nextInt(NOTES));
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                Files.deleteIfExists(note);
+            } else if (kind == 1) {
+                Files.writeString(note, "");
+            } else {
+                writeRandomLinks(note);
+            }
+            service.rescanFile(note);
+            if (kind == 2) {
+                // A second rescan of the same file replaces its overlay entry again
+                writeRandomLinks(note);
+                service.rescanFile(note);
+            }
+            assertMatchesDisk(service);
+        }
+
+        assertTrue(compactions() - compactionsBefore >= 2, "expected the overlay to be compacted");
+        // A fresh scan, with no overlay at all, must agree with the incrementally built index
+        BacklinkService fresh = scanned();
+        for (Path target : allTargets()) {
+            assertEquals(sorted(fresh.getBacklinksTo(target)), sorted(service.getBacklinksTo(target)),
+                    "backlinks to " + target.getFileName());
+        }
+        assertEquals(fresh.getLinkCount(), service.getLinkCount());
+    }
+
+    @Test
+    void newFilesGetIdsBeyondTheGraph() throws IOException {
+        BacklinkService service = scanned();
+        for (int i = 0; i < 20; i++) {
+            Path note = grove.resolve("Late" + i + ".md");
+            notes.add(note);
+            writeRandomLinks(note);
+            service.rescanFile(note);
+        }
+        assertMatchesDisk(service);
+    }
+
+    private BacklinkService scanned() {
+        BacklinkService service = new BacklinkService(new FileRegistry());
+        service.setGrovePath(grove);
+        service.fullScan();
+        return service;
+    }
+
+    private void writeRandomLinks(Path note) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int links = random.nextInt(8) == 0 ? 0 : random.nextInt(120);
+        for (int i = 0; i < links; i++) {
+            int n = random.nextInt(NOTES + 5);
+            String target = switch (random.nextInt(5)) {
+                case 0 -> "Note" + n;
+                case 1 -> "note" + n + ".md";
+                case 2 -> "  NOTE" + n + " ";
+                case 3 -> "Plain.txt";
+                default -> "Missing" + n;
+            };
+            sb.append("text [[").append(target).append("]]");
+            sb.append(random.nextBoolean() ? "\n" : " ");
+        }
+        Files.writeString(note, sb.toString());
+    }
+
+    private void assertMatchesDisk(BacklinkService service) {
+        List<BacklinkEntry> onDisk = new ArrayList<>();
+        for (Path source : existingFiles()) {
+            onDisk.addAll(links(source));
+        }
+        for (Path target : allTargets()) {
+            List<BacklinkEntry> expected = directScan(target, onDisk);
+            List<BacklinkEntry> actual = service.getBacklinksTo(target);
+            assertEquals(sorted(expected), sorted(actual), "backlinks to " + target.getFileName());
+            assertEquals(expected.size(), service.countBacklinksTo(target),
+                    "backlink count of " + target.getFileName());
+        }
+        assertEquals(onDisk.size(), service.getLinkCount());
+    }
+
+    private List<Path> allTargets() {
+        List<Path> targets = new ArrayList<>(notes);
+        targets.add(grove.resolve("Empty.md"));
+        targets.add(grove.resolve("Plain.txt"));
+        return targets;
+    }
+
+    private List<Path> existingFiles() {
+        return allTargets().stream().filter(Files::exists).toList();
+    }
+
+    /** Backlinks to {@code target} among every link on disk, matched as the service matches them. */
+    private static List<BacklinkEntry> directScan(Path target, List<BacklinkEntry> onDisk) {
+        String name = target.getFileName().toString().toLowerCase();
+        String bare = name.substring(0, name.lastIndexOf('.'));
+        List<BacklinkEntry> found = new ArrayList<>();
+        for (BacklinkEntry link : onDisk) {
+            String key = link.linkTarget().toLowerCase();
+            if (key.equals(name) || key.equals(bare)) {
+                found.add(link);
+            }
+        }
+        return found;
+    }
+
+    private static List<BacklinkEntry> links(Path source) {
+        List<BacklinkEntry> links = new ArrayList<>();
+        try {
+            String[] lines = Files.readString(source).split("\n", -1);
+            for (int line = 0; line < lines.length; line++) {
+                Matcher matcher = BacklinkService.BACKLINK_PATTERN.matcher(lines[line]);
+                while (matcher.find()) {
+                    links.add(new BacklinkEntry(source, matcher.group(1).trim(), line));
+                }
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return links;
+    }
+
+    private static List<BacklinkEntry> sorted(List<BacklinkEntry> entries) {
+        List<BacklinkEntry> copy = new ArrayList<>(entries);
+        copy.sort(ORDER);
+        return copy;
+    }
+
+    private static long compactions() {
+        return MetricsRegistry.global().snapshot().stream()
+                .filter(metric -> metric.name().equals("scan.backlinks.compact"))
+                .mapToLong(MetricsRegistry.MetricSnapshot::count)
+                .findFirst().orElse(0);
+    }
+}